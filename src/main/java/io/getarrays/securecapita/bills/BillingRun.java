@@ -0,0 +1,55 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One monthly billing run. The work is split into one {@link BillingRunPartition} per town, and the
+ * meter readings it bills from are kept in {@link BillingRunReading} so a partition can be resumed.
+ */
+@Entity
+@Table(name = "billing_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate billingPeriodStart;
+
+    @Column(nullable = false)
+    private LocalDate billingPeriodEnd;
+
+    @Column(nullable = false)
+    private LocalDate dueDate;
+
+    @Column(nullable = false)
+    private BigDecimal ratePerUnit;
+
+    @Column(nullable = false)
+    private BigDecimal tax;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private BillingRunStatus status = BillingRunStatus.PENDING;
+
+    // Auditor recorded on the bills the run creates
+    @Column
+    private String createdBy;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime completedAt;
+}
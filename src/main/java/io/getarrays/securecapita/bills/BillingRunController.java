@@ -0,0 +1,37 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("water-bills/billing-runs")
+@RequiredArgsConstructor
+public class BillingRunController {
+
+    private final BillingRunService billingRunService;
+
+    // Runs in the background; poll GET /{id} for progress
+    @PostMapping
+    public ResponseEntity<BillingRunDto> startBillingRun(@RequestBody BillingRunRequest request) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(billingRunService.startRun(request));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<BillingRunDto>> getBillingRuns() {
+        return ResponseEntity.ok(billingRunService.getRuns());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BillingRunDto> getBillingRun(@PathVariable Long id) {
+        return ResponseEntity.ok(billingRunService.getRun(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<BillingRunDto> resumeBillingRun(@PathVariable Long id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(billingRunService.resumeRun(id));
+    }
+}
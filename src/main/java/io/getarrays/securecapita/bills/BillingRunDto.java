@@ -0,0 +1,40 @@
+package io.getarrays.securecapita.bills;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A billing run with its totals and per town partitions.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BillingRunDto {
+
+    private Long id;
+    private LocalDate billingPeriodStart;
+    private LocalDate billingPeriodEnd;
+    private LocalDate dueDate;
+    private BigDecimal ratePerUnit;
+    private BillingRunStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    private int partitionsTotal;
+    private int partitionsCompleted;
+    private int partitionsFailed;
+    private long billsCreated;
+    private long addressesSkipped;
+
+    private List<BillingRunPartition> partitions;
+}
@@ -0,0 +1,56 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The customer addresses of one town within a billing run. Addresses are billed in id order and
+ * {@code lastCustomerAddressId} is committed with each chunk of bills, so a failed or interrupted
+ * partition resumes after the last chunk it wrote.
+ */
+@Entity
+@Table(name = "billing_run_partitions", indexes = {
+        @Index(name = "idx_billing_run_partitions_run", columnList = "billing_run_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingRunPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "billing_run_id", nullable = false)
+    private Long billingRunId;
+
+    @Column(name = "town_address_id", nullable = false)
+    private Long townAddressId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private BillingRunStatus status = BillingRunStatus.PENDING;
+
+    @Column(name = "last_customer_address_id", nullable = false)
+    private long lastCustomerAddressId;
+
+    @Column(nullable = false)
+    private int billsCreated;
+
+    // Addresses without a reading, plus readings that are invalid or already billed for the period
+    @Column(nullable = false)
+    private int addressesSkipped;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column
+    private LocalDateTime startedAt;
+
+    @Column
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,41 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * A meter reading submitted with a billing run. Without a previous reading the run takes the
+ * current reading of the address's last bill for the same meter, and skips the reading if there is none.
+ */
+@Entity
+@Table(name = "billing_run_readings", indexes = {
+        @Index(name = "idx_billing_run_readings_address", columnList = "billing_run_id, customer_address_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingRunReading {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "billing_run_id", nullable = false)
+    private Long billingRunId;
+
+    @Column(name = "customer_address_id", nullable = false)
+    private Long customerAddressId;
+
+    @Column(name = "meter_number", nullable = false)
+    private String meterNumber;
+
+    @Column(name = "previous_reading")
+    private BigDecimal previousReading;
+
+    @Column(name = "current_reading", nullable = false)
+    private BigDecimal currentReading;
+}
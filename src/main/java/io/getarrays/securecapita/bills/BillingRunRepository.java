@@ -0,0 +1,12 @@
+package io.getarrays.securecapita.bills;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BillingRunRepository extends JpaRepository<BillingRun, Long> {
+
+    List<BillingRun> findTop20ByOrderByIdDesc();
+}
@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Input of a billing run: the period, the tariff and one reading per metered customer address,
+ * given inline or as the id of a meter reading import. Due date defaults to 30 days after the
+ * period and tax to zero, as for single bills.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BillingRunRequest {
+
+    private LocalDate billingPeriodStart;
+    private LocalDate billingPeriodEnd;
+    private LocalDate dueDate;
+    private BigDecimal ratePerUnit;
+    private BigDecimal tax;
+    private List<MeterReading> readings;
+    private Long readingImportId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MeterReading {
+        private Long customerAddressId;
+        private String meterNumber;
+        private BigDecimal previousReading;
+        private BigDecimal currentReading;
+    }
+}
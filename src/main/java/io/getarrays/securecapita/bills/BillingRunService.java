@@ -0,0 +1,438 @@
+package io.getarrays.securecapita.bills;
+
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import io.getarrays.securecapita.utils.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates a month of water bills in one run. Active customer addresses are partitioned by town and
+ * the towns are billed in parallel; within a town, addresses are read in id order a chunk at a time
+ * and each chunk's bills are inserted through JDBC batches in the same transaction that advances
+ * the partition's checkpoint. A failed or interrupted run is resumed partition by partition from
+ * the last committed chunk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BillingRunService {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final String INSERT_READING_SQL = "INSERT INTO billing_run_readings (billing_run_id, customer_address_id, " +
+            "meter_number, previous_reading, current_reading) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PARTITIONS_SQL = "INSERT INTO billing_run_partitions (billing_run_id, town_address_id, " +
+            "status, last_customer_address_id, bills_created, addresses_skipped) " +
+            "SELECT ?, town_address_id, 'PENDING', 0, 0, 0 FROM customer_addresses WHERE is_active = true GROUP BY town_address_id";
+
+    private static final String TOWN_SQL = "SELECT town_name, state FROM town_addresses WHERE id = ?";
+    private static final String ADDRESS_CHUNK_SQL = "SELECT id, customer_name, customer_phone, customer_whatsapp, street_address, " +
+            "apartment_unit, neighborhood, landmark FROM customer_addresses " +
+            "WHERE town_address_id = ? AND is_active = true AND id > ? ORDER BY id LIMIT ?";
+    private static final String READINGS_SQL = "SELECT id, customer_address_id, meter_number, previous_reading, current_reading " +
+            "FROM billing_run_readings WHERE billing_run_id = ? AND customer_address_id IN (%s)";
+    private static final String LAST_READINGS_SQL = "SELECT customer_address_id, meter_number, current_reading FROM " +
+            "(SELECT customer_address_id, meter_number, current_reading, ROW_NUMBER() OVER (PARTITION BY " +
+            "customer_address_id, meter_number ORDER BY billing_period_end DESC, id DESC) AS recency FROM water_bills " +
+            "WHERE customer_address_id IN (%s) AND billing_period_end < ?) latest WHERE recency = 1";
+    private static final String BILLED_SQL = "SELECT customer_address_id, meter_number FROM water_bills " +
+            "WHERE customer_address_id IN (%s) AND billing_period_start = ?";
+    private static final String INSERT_BILL_SQL = "INSERT INTO water_bills (bill_number, customer_name, customer_phone, " +
+            "whatsapp_number, home_address, meter_number, billing_period_start, billing_period_end, previous_reading, " +
+            "current_reading, consumption, rate_per_unit, subtotal, tax, total_amount, due_date, status, delivery_method, " +
+            "customer_address_id, town_address_id, created_by, created_date, last_modified_by, last_modified_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CHECKPOINT_SQL = "UPDATE billing_run_partitions SET last_customer_address_id = ?, " +
+            "bills_created = bills_created + ?, addresses_skipped = addresses_skipped + ? WHERE id = ?";
+
+    private final BillingRunRepository billingRunRepository;
+    private final BillingRunPartitionRepository billingRunPartitionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final AuditorAware<String> auditorAware;
+    private final MeterReadingImportService meterReadingImportService;
+    private final WaterBillTotalsService waterBillTotalsService;
+    private final IdGenerator idGenerator;
+
+    @Value("${water-bills.billing-runs.parallelism:4}")
+    private int parallelism;
+
+    // Partitions being billed by this node, so a resume does not start them twice
+    private final Set<Long> activePartitions = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "billing-run-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        // Interrupted partitions keep their checkpoint and are picked up by a resume
+        executor.shutdownNow();
+    }
+
+    public BillingRunDto startRun(BillingRunRequest request) {
+        if (request.getReadingImportId() != null) {
+            if (request.getReadings() != null && !request.getReadings().isEmpty()) {
+                throw new IllegalArgumentException("Give either readings or a reading import id, not both");
+            }
+            request.setReadings(meterReadingImportService.readingsForBillingRun(request.getReadingImportId()));
+        }
+        validate(request);
+        BillingRun run = new BillingRun();
+        run.setBillingPeriodStart(request.getBillingPeriodStart());
+        run.setBillingPeriodEnd(request.getBillingPeriodEnd());
+        run.setDueDate(request.getDueDate() != null ? request.getDueDate() : request.getBillingPeriodEnd().plusDays(30));
+        run.setRatePerUnit(request.getRatePerUnit());
+        run.setTax(request.getTax() != null ? request.getTax() : BigDecimal.ZERO);
+        run.setStatus(BillingRunStatus.RUNNING);
+        run.setCreatedBy(auditorAware.getCurrentAuditor().orElse(null));
+        run.setCreatedAt(LocalDateTime.now());
+
+        BillingRun saved = new TransactionTemplate(transactionManager).execute(status -> {
+            BillingRun created = billingRunRepository.save(run);
+            List<BillingRunRequest.MeterReading> readings = request.getReadings();
+            jdbcTemplate.batchUpdate(INSERT_READING_SQL, readings, CHUNK_SIZE, (ps, reading) -> {
+                ps.setLong(1, created.getId());
+                ps.setLong(2, reading.getCustomerAddressId());
+                ps.setString(3, reading.getMeterNumber().trim());
+                ps.setBigDecimal(4, reading.getPreviousReading());
+                ps.setBigDecimal(5, reading.getCurrentReading());
+            });
+            jdbcTemplate.update(INSERT_PARTITIONS_SQL, created.getId());
+            if (request.getReadingImportId() != null) {
+                meterReadingImportService.markBilled(request.getReadingImportId(), created.getId());
+            }
+            return created;
+        });
+
+        List<BillingRunPartition> partitions = billingRunPartitionRepository.findByBillingRunIdOrderByTownAddressId(saved.getId());
+        log.info("Started billing run {} for {} to {} over {} towns with {} readings", saved.getId(),
+                saved.getBillingPeriodStart(), saved.getBillingPeriodEnd(), partitions.size(), request.getReadings().size());
+        if (partitions.isEmpty()) {
+            finishRunIfDone(saved.getId());
+        }
+        submit(saved, partitions);
+        return getRun(saved.getId());
+    }
+
+    /**
+     * Bills the partitions of a run that have not completed, each from its last checkpoint.
+     */
+    public BillingRunDto resumeRun(Long runId) {
+        BillingRun run = findRun(runId);
+        List<BillingRunPartition> partitions = billingRunPartitionRepository.findByBillingRunIdOrderByTownAddressId(runId);
+        List<BillingRunPartition> resumable = partitions.stream()
+                .filter(partition -> partition.getStatus() != BillingRunStatus.COMPLETED)
+                .filter(partition -> !activePartitions.contains(partition.getId()))
+                .toList();
+        if (resumable.isEmpty()) {
+            throw new IllegalArgumentException("Billing run " + runId + " has no partitions to resume");
+        }
+        run.setStatus(BillingRunStatus.RUNNING);
+        run.setCompletedAt(null);
+        billingRunRepository.save(run);
+        log.info("Resuming {} partitions of billing run {}", resumable.size(), runId);
+        submit(run, resumable);
+        return getRun(runId);
+    }
+
+    public BillingRunDto getRun(Long runId) {
+        return toDto(findRun(runId), billingRunPartitionRepository.findByBillingRunIdOrderByTownAddressId(runId));
+    }
+
+    public List<BillingRunDto> getRuns() {
+        return billingRunRepository.findTop20ByOrderByIdDesc().stream()
+                .map(run -> toDto(run, null))
+                .toList();
+    }
+
+    private BillingRun findRun(Long runId) {
+        return billingRunRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Billing run not found with id: " + runId));
+    }
+
+    private void validate(BillingRunRequest request) {
+        if (request.getBillingPeriodStart() == null || request.getBillingPeriodEnd() == null) {
+            throw new IllegalArgumentException("Billing period start and end are required");
+        }
+        if (request.getBillingPeriodEnd().isBefore(request.getBillingPeriodStart())) {
+            throw new IllegalArgumentException("Billing period end must not be before its start");
+        }
+        if (request.getRatePerUnit() == null || request.getRatePerUnit().signum() <= 0) {
+            throw new IllegalArgumentException("Rate per unit must be greater than zero");
+        }
+        if (request.getReadings() == null || request.getReadings().isEmpty()) {
+            throw new IllegalArgumentException("At least one meter reading is required");
+        }
+        Set<String> meters = new HashSet<>();
+        for (BillingRunRequest.MeterReading reading : request.getReadings()) {
+            if (reading.getCustomerAddressId() == null || reading.getMeterNumber() == null
+                    || reading.getMeterNumber().isBlank() || reading.getCurrentReading() == null) {
+                throw new IllegalArgumentException("Every reading needs a customer address id, meter number and current reading");
+            }
+            if (!meters.add(reading.getCustomerAddressId() + "|" + reading.getMeterNumber().trim())) {
+                throw new IllegalArgumentException("Duplicate reading for meter " + reading.getMeterNumber()
+                        + " of customer address " + reading.getCustomerAddressId());
+            }
+        }
+    }
+
+    // Every partition is marked active before any starts, so the run cannot be finished early
+    private void submit(BillingRun run, List<BillingRunPartition> partitions) {
+        List<BillingRunPartition> submitted = partitions.stream()
+                .filter(partition -> activePartitions.add(partition.getId()))
+                .toList();
+        for (BillingRunPartition partition : submitted) {
+            executor.execute(() -> {
+                try {
+                    billPartition(run, partition);
+                } finally {
+                    activePartitions.remove(partition.getId());
+                    finishRunIfDone(run.getId());
+                }
+            });
+        }
+    }
+
+    private void billPartition(BillingRun run, BillingRunPartition partition) {
+        partition.setStatus(BillingRunStatus.RUNNING);
+        partition.setStartedAt(LocalDateTime.now());
+        partition.setLastError(null);
+        billingRunPartitionRepository.save(partition);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long lastAddressId = partition.getLastCustomerAddressId();
+        try {
+            Map<String, Object> town = jdbcTemplate.queryForMap(TOWN_SQL, partition.getTownAddressId());
+            String townSuffix = town.get("town_name") + ", " + town.get("state");
+            while (!Thread.currentThread().isInterrupted()) {
+                List<AddressRow> addresses = jdbcTemplate.query(ADDRESS_CHUNK_SQL, (rs, rowNum) -> new AddressRow(
+                                rs.getLong("id"), rs.getString("customer_name"), rs.getString("customer_phone"),
+                                rs.getString("customer_whatsapp"), String.format("%s, %s, %s, %s, %s",
+                                rs.getString("street_address"), rs.getString("apartment_unit"), rs.getString("neighborhood"),
+                                rs.getString("landmark"), townSuffix)),
+                        partition.getTownAddressId(), lastAddressId, CHUNK_SIZE);
+                if (addresses.isEmpty()) {
+                    break;
+                }
+                long chunkEnd = addresses.get(addresses.size() - 1).id();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> billChunk(run, partition, addresses, chunkEnd));
+                } catch (DuplicateKeyException e) {
+                    // Another node resuming the same partition billed some of these meters first; the
+                    // retry reads them back as already billed and skips them
+                    log.warn("Billing run {} chunk ending at customer address {} overlapped another node; retrying",
+                            run.getId(), chunkEnd);
+                    transactionTemplate.executeWithoutResult(status -> billChunk(run, partition, addresses, chunkEnd));
+                }
+                lastAddressId = chunkEnd;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            partition.setStatus(BillingRunStatus.COMPLETED);
+            partition.setCompletedAt(LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Billing run {} failed for town {} after customer address {}: {}", run.getId(),
+                    partition.getTownAddressId(), lastAddressId, e.getMessage());
+            partition.setStatus(BillingRunStatus.FAILED);
+            String error = String.valueOf(e.getMessage());
+            partition.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        }
+        // Counters and checkpoint were advanced by the chunk transactions; only the status fields change here
+        BillingRunPartition current = billingRunPartitionRepository.findById(partition.getId()).orElse(partition);
+        current.setStatus(partition.getStatus());
+        current.setCompletedAt(partition.getCompletedAt());
+        current.setLastError(partition.getLastError());
+        billingRunPartitionRepository.save(current);
+    }
+
+    // Builds and inserts the bills of one chunk of addresses and moves the partition's checkpoint past it
+    private void billChunk(BillingRun run, BillingRunPartition partition, List<AddressRow> addresses, long chunkEnd) {
+        List<Object> addressIds = addresses.stream().map(address -> (Object) address.id()).toList();
+        String placeholders = String.join(", ", Collections.nCopies(addressIds.size(), "?"));
+
+        Map<Long, List<ReadingRow>> readingsByAddress = new HashMap<>();
+        List<Object> readingArgs = new ArrayList<>();
+        readingArgs.add(run.getId());
+        readingArgs.addAll(addressIds);
+        jdbcTemplate.query(String.format(READINGS_SQL, placeholders), rs -> {
+            ReadingRow reading = new ReadingRow(rs.getLong("id"), rs.getLong("customer_address_id"),
+                    rs.getString("meter_number"), rs.getBigDecimal("previous_reading"), rs.getBigDecimal("current_reading"));
+            readingsByAddress.computeIfAbsent(reading.customerAddressId(), id -> new ArrayList<>()).add(reading);
+        }, readingArgs.toArray());
+
+        // Latest earlier reading per address and meter, for readings submitted without a previous value
+        Map<String, BigDecimal> lastReadings = new HashMap<>();
+        List<Object> lastReadingArgs = new ArrayList<>(addressIds);
+        lastReadingArgs.add(Date.valueOf(run.getBillingPeriodStart()));
+        jdbcTemplate.query(String.format(LAST_READINGS_SQL, placeholders), rs -> {
+            lastReadings.put(rs.getLong("customer_address_id") + "|" + rs.getString("meter_number"),
+                    rs.getBigDecimal("current_reading"));
+        }, lastReadingArgs.toArray());
+
+        // Meters already billed for a period starting the same day, by an earlier attempt or by hand;
+        // the same columns as uk_water_bills_address_meter_period, so a skipped meter never hits the key
+        Set<String> billed = new HashSet<>();
+        List<Object> billedArgs = new ArrayList<>(addressIds);
+        billedArgs.add(Date.valueOf(run.getBillingPeriodStart()));
+        jdbcTemplate.query(String.format(BILLED_SQL, placeholders), rs -> {
+            billed.add(rs.getLong("customer_address_id") + "|" + rs.getString("meter_number"));
+        }, billedArgs.toArray());
+
+        List<WaterBill> bills = new ArrayList<>();
+        int skipped = 0;
+        for (AddressRow address : addresses) {
+            List<ReadingRow> readings = readingsByAddress.getOrDefault(address.id(), List.of());
+            if (readings.isEmpty()) {
+                skipped++;
+            }
+            for (ReadingRow reading : readings) {
+                String meterKey = address.id() + "|" + reading.meterNumber();
+                BigDecimal previousReading = reading.previousReading() != null
+                        ? reading.previousReading() : lastReadings.get(meterKey);
+                if (billed.contains(meterKey) || previousReading == null
+                        || reading.currentReading().compareTo(previousReading) < 0) {
+                    skipped++;
+                    continue;
+                }
+                bills.add(buildBill(run, address, reading, previousReading));
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_BILL_SQL, bills, CHUNK_SIZE, (ps, bill) -> {
+            ps.setString(1, bill.getBillNumber());
+            ps.setString(2, bill.getCustomerName());
+            ps.setString(3, bill.getCustomerPhone());
+            ps.setString(4, bill.getWhatsappNumber());
+            ps.setString(5, bill.getHomeAddress());
+            ps.setString(6, bill.getMeterNumber());
+            ps.setDate(7, Date.valueOf(bill.getBillingPeriodStart()));
+            ps.setDate(8, Date.valueOf(bill.getBillingPeriodEnd()));
+            ps.setBigDecimal(9, bill.getPreviousReading());
+            ps.setBigDecimal(10, bill.getCurrentReading());
+            ps.setBigDecimal(11, bill.getConsumption());
+            ps.setBigDecimal(12, bill.getRatePerUnit());
+            ps.setBigDecimal(13, bill.getSubtotal());
+            ps.setBigDecimal(14, bill.getTax());
+            ps.setBigDecimal(15, bill.getTotalAmount());
+            ps.setDate(16, Date.valueOf(bill.getDueDate()));
+            ps.setString(17, bill.getStatus().name());
+            ps.setString(18, bill.getDeliveryMethod().name());
+            ps.setLong(19, bill.getCustomerAddress().getId());
+            ps.setLong(20, partition.getTownAddressId());
+            ps.setString(21, run.getCreatedBy());
+            ps.setTimestamp(22, now);
+            ps.setString(23, run.getCreatedBy());
+            ps.setTimestamp(24, now);
+        });
+        waterBillTotalsService.billsCreated(bills, partition.getTownAddressId());
+        jdbcTemplate.update(CHECKPOINT_SQL, chunkEnd, bills.size(), skipped, partition.getId());
+    }
+
+    private WaterBill buildBill(BillingRun run, AddressRow address, ReadingRow reading, BigDecimal previousReading) {
+        CustomerAddress customerAddress = new CustomerAddress();
+        customerAddress.setId(address.id());
+
+        WaterBill bill = new WaterBill();
+        bill.setBillNumber(idGenerator.nextCode(WaterBillServiceImpl.BILL_NUMBER_PREFIX));
+        bill.setCustomerName(address.customerName());
+        bill.setCustomerPhone(address.customerPhone());
+        bill.setWhatsappNumber(address.customerWhatsapp());
+        bill.setHomeAddress(address.fullAddress());
+        bill.setMeterNumber(reading.meterNumber());
+        bill.setPreviousReading(previousReading);
+        bill.setCurrentReading(reading.currentReading());
+        bill.setRatePerUnit(run.getRatePerUnit());
+        bill.setBillingPeriodStart(run.getBillingPeriodStart());
+        bill.setBillingPeriodEnd(run.getBillingPeriodEnd());
+        bill.setDueDate(run.getDueDate());
+        bill.setTax(run.getTax());
+        bill.setStatus(WaterBillStatus.PENDING);
+        bill.setDeliveryMethod(DeliveryMethod.WHATSAPP);
+        bill.setCustomerAddress(customerAddress);
+        bill.calculateFields();
+        return bill;
+    }
+
+    private synchronized void finishRunIfDone(Long runId) {
+        BillingRun run = billingRunRepository.findById(runId).orElse(null);
+        if (run == null || run.getStatus() != BillingRunStatus.RUNNING) {
+            return;
+        }
+        List<BillingRunPartition> partitions = billingRunPartitionRepository.findByBillingRunIdOrderByTownAddressId(runId);
+        if (partitions.stream().anyMatch(partition -> activePartitions.contains(partition.getId()))) {
+            return;
+        }
+        boolean failed = partitions.stream().anyMatch(partition -> partition.getStatus() != BillingRunStatus.COMPLETED);
+        run.setStatus(failed ? BillingRunStatus.FAILED : BillingRunStatus.COMPLETED);
+        run.setCompletedAt(LocalDateTime.now());
+        billingRunRepository.save(run);
+        log.info("Billing run {} {}", runId, failed ? "finished with failed partitions" : "completed");
+    }
+
+    private BillingRunDto toDto(BillingRun run, List<BillingRunPartition> partitions) {
+        BillingRunDto.BillingRunDtoBuilder dto = BillingRunDto.builder()
+                .id(run.getId())
+                .billingPeriodStart(run.getBillingPeriodStart())
+                .billingPeriodEnd(run.getBillingPeriodEnd())
+                .dueDate(run.getDueDate())
+                .ratePerUnit(run.getRatePerUnit())
+                .status(run.getStatus())
+                .createdAt(run.getCreatedAt())
+                .completedAt(run.getCompletedAt());
+        if (partitions != null) {
+            dto.partitionsTotal(partitions.size())
+                    .partitionsCompleted((int) partitions.stream().filter(p -> p.getStatus() == BillingRunStatus.COMPLETED).count())
+                    .partitionsFailed((int) partitions.stream().filter(p -> p.getStatus() == BillingRunStatus.FAILED).count())
+                    .billsCreated(partitions.stream().mapToLong(BillingRunPartition::getBillsCreated).sum())
+                    .addressesSkipped(partitions.stream().mapToLong(BillingRunPartition::getAddressesSkipped).sum())
+                    .partitions(partitions);
+        }
+        return dto.build();
+    }
+
+    private record AddressRow(long id, String customerName, String customerPhone, String customerWhatsapp, String fullAddress) {
+    }
+
+    private record ReadingRow(long id, long customerAddressId, String meterNumber, BigDecimal previousReading,
+                              BigDecimal currentReading) {
+    }
+}
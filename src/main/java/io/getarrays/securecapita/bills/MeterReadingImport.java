@@ -0,0 +1,53 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One uploaded file of meter readings. Its accepted rows are staged in {@link StagedMeterReading}
+ * until a billing run bills them, after which {@code billingRunId} is set. Only COMPLETED imports
+ * can be billed; a failed import has its staged rows removed.
+ */
+@Entity
+@Table(name = "meter_reading_imports")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MeterReadingImport {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MeterReadingImportStatus status;
+
+    @Column(nullable = false)
+    private int totalRows;
+
+    @Column(nullable = false)
+    private int stagedCount;
+
+    @Column(nullable = false)
+    private int rejectedCount;
+
+    @Column(length = 1000)
+    private String errorMessage;
+
+    @Column(name = "billing_run_id")
+    private Long billingRunId;
+
+    @Column
+    private String createdBy;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
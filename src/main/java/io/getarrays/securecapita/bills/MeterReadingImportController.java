@@ -0,0 +1,37 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("water-bills/meter-readings")
+@RequiredArgsConstructor
+public class MeterReadingImportController {
+
+    private final MeterReadingImportService meterReadingImportService;
+
+    // Stages a CSV or XLSX file of readings; bill them with a billing run given the returned importId
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> importReadings(@RequestParam("file") MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Please upload a non-empty .csv or .xlsx file");
+        }
+        MeterReadingImportResultDto result = meterReadingImportService.importReadings(file);
+        return ResponseEntity.ok(Map.of(
+            "success", true,
+            "message", "Staged " + result.getStagedCount() + " of " + result.getTotalRows() + " meter readings",
+            "result", result
+        ));
+    }
+
+    @GetMapping("/imports/{id}")
+    public ResponseEntity<MeterReadingImport> getImport(@PathVariable Long id) {
+        return ResponseEntity.ok(meterReadingImportService.getImport(id));
+    }
+}
@@ -0,0 +1,19 @@
+package io.getarrays.securecapita.bills;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MeterReadingImportRepository extends JpaRepository<MeterReadingImport, Long> {
+
+    // Guards against two billing runs billing the same import, and against billing an unfinished one
+    @Transactional
+    @Modifying
+    @Query("UPDATE MeterReadingImport i SET i.billingRunId = :billingRunId " +
+            "WHERE i.id = :id AND i.billingRunId IS NULL AND i.status = 'COMPLETED'")
+    int markBilled(@Param("id") Long id, @Param("billingRunId") Long billingRunId);
+}
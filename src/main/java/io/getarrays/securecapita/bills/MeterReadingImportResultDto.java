@@ -0,0 +1,42 @@
+package io.getarrays.securecapita.bills;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the outcome of a meter reading import. Only the first rejected rows are listed;
+ * {@code rejectedCount} counts them all.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MeterReadingImportResultDto {
+
+    private Long importId;
+    private MeterReadingImportStatus status;
+    private int totalRows;
+    private int stagedCount;
+    private int rejectedCount;
+    private BigDecimal totalConsumption;
+
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private int rowNumber; // Spreadsheet row number, the header being row 1
+        private String meterNumber;
+        private String message;
+    }
+}
@@ -0,0 +1,320 @@
+package io.getarrays.securecapita.bills;
+
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import io.getarrays.securecapita.utils.ImportFileReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports meter readings from field staff files and stages them for a billing run. Rows are read
+ * one at a time and written in JDBC batches; the only per-import state is an index of every known
+ * meter, built once from the bills, which matches a meter number to its customer address and
+ * carries its latest reading so consumption is computed incrementally, including between rows of
+ * the same file. Rejected rows are reported and the rest of the file is still imported.
+ * <p>
+ * Columns: meterNumber and currentReading are required; previousReading, readingDate (yyyy-MM-dd)
+ * and customerAddressId are optional. A meter that has never been billed needs customerAddressId
+ * and previousReading.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MeterReadingImportService {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Only the latest bill of each meter; ordered by period so that, should meter numbers differing
+    // only in case both appear, the most recent one wins in the index
+    private static final String METER_INDEX_SQL = "SELECT meter_number, customer_address_id, current_reading FROM " +
+            "(SELECT meter_number, customer_address_id, current_reading, billing_period_end, id, ROW_NUMBER() OVER " +
+            "(PARTITION BY meter_number ORDER BY billing_period_end DESC, id DESC) AS recency FROM water_bills " +
+            "WHERE customer_address_id IS NOT NULL) latest WHERE recency = 1 ORDER BY billing_period_end, id";
+    private static final String DELETE_STAGED_SQL = "DELETE FROM staged_meter_readings WHERE import_id = ?";
+    private static final String ACTIVE_ADDRESSES_SQL = "SELECT id FROM customer_addresses WHERE is_active = true";
+    private static final String INSERT_STAGED_SQL = "INSERT INTO staged_meter_readings (import_id, source_row, " +
+            "customer_address_id, meter_number, reading_date, previous_reading, current_reading, consumption) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String STAGED_FOR_RUN_SQL = "SELECT customer_address_id, meter_number, previous_reading, " +
+            "current_reading FROM staged_meter_readings WHERE import_id = ? ORDER BY customer_address_id, meter_number, id";
+
+    private final MeterReadingImportRepository meterReadingImportRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorAware;
+
+    public MeterReadingImportResultDto importReadings(MultipartFile file) throws IOException {
+        MeterReadingImport readingImport = new MeterReadingImport();
+        readingImport.setFileName(file.getOriginalFilename());
+        readingImport.setCreatedBy(auditorAware.getCurrentAuditor().orElse(null));
+        readingImport.setCreatedAt(LocalDateTime.now());
+        readingImport.setStatus(MeterReadingImportStatus.IN_PROGRESS);
+        MeterReadingImport saved = meterReadingImportRepository.save(readingImport);
+
+        MeterReadingImportResultDto result = MeterReadingImportResultDto.builder()
+                .importId(saved.getId())
+                .totalConsumption(BigDecimal.ZERO)
+                .build();
+        try {
+            stageReadings(file, saved.getId(), result);
+        } catch (IOException | RuntimeException e) {
+            // Batches already written would otherwise be billable leftovers of a half-read file
+            jdbcTemplate.update(DELETE_STAGED_SQL, saved.getId());
+            saved.setStatus(MeterReadingImportStatus.FAILED);
+            saved.setErrorMessage(truncate(e.getMessage()));
+            saved.setTotalRows(result.getTotalRows());
+            meterReadingImportRepository.save(saved);
+            log.error("Meter reading import {} ({}) failed after {} rows: {}", saved.getId(), saved.getFileName(),
+                    result.getTotalRows(), e.getMessage());
+            throw e;
+        }
+
+        saved.setStatus(MeterReadingImportStatus.COMPLETED);
+        saved.setTotalRows(result.getTotalRows());
+        saved.setStagedCount(result.getStagedCount());
+        saved.setRejectedCount(result.getRejectedCount());
+        meterReadingImportRepository.save(saved);
+        result.setStatus(MeterReadingImportStatus.COMPLETED);
+        log.info("Meter reading import {} ({}): {} rows, {} staged, {} rejected", saved.getId(), saved.getFileName(),
+                result.getTotalRows(), result.getStagedCount(), result.getRejectedCount());
+        return result;
+    }
+
+    private void stageReadings(MultipartFile file, Long importId, MeterReadingImportResultDto result) throws IOException {
+        MeterIndex index = buildMeterIndex();
+        List<StagedMeterReading> batch = new ArrayList<>(BATCH_SIZE);
+
+        ImportFileReader.read(file, (rowNumber, values) -> {
+            result.setTotalRows(result.getTotalRows() + 1);
+            StagedMeterReading reading = toStagedReading(importId, rowNumber, values, index, result);
+            if (reading != null) {
+                batch.add(reading);
+                result.setStagedCount(result.getStagedCount() + 1);
+                result.setTotalConsumption(result.getTotalConsumption().add(reading.getConsumption()));
+                if (batch.size() == BATCH_SIZE) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    public MeterReadingImport getImport(Long importId) {
+        return meterReadingImportRepository.findById(importId)
+                .orElseThrow(() -> new ResourceNotFoundException("Meter reading import not found with id: " + importId));
+    }
+
+    /**
+     * The import's readings as billing run input: one reading per address and meter, from the
+     * previous reading of its first row to the current reading of its last.
+     */
+    public List<BillingRunRequest.MeterReading> readingsForBillingRun(Long importId) {
+        MeterReadingImport readingImport = getImport(importId);
+        if (readingImport.getStatus() != MeterReadingImportStatus.COMPLETED) {
+            throw new IllegalArgumentException("Meter reading import " + importId + " is "
+                    + readingImport.getStatus().getDisplayName().toLowerCase(Locale.ROOT) + "; only completed imports can be billed");
+        }
+        if (readingImport.getBillingRunId() != null) {
+            throw new IllegalArgumentException("Meter reading import " + importId + " was already billed by billing run "
+                    + readingImport.getBillingRunId());
+        }
+        List<BillingRunRequest.MeterReading> readings = new ArrayList<>();
+        jdbcTemplate.query(STAGED_FOR_RUN_SQL, rs -> {
+            long customerAddressId = rs.getLong("customer_address_id");
+            String meterNumber = rs.getString("meter_number");
+            BillingRunRequest.MeterReading last = readings.isEmpty() ? null : readings.get(readings.size() - 1);
+            if (last != null && last.getCustomerAddressId() == customerAddressId && last.getMeterNumber().equals(meterNumber)) {
+                last.setCurrentReading(rs.getBigDecimal("current_reading"));
+            } else {
+                readings.add(new BillingRunRequest.MeterReading(customerAddressId, meterNumber,
+                        rs.getBigDecimal("previous_reading"), rs.getBigDecimal("current_reading")));
+            }
+        }, importId);
+        if (readings.isEmpty()) {
+            throw new IllegalArgumentException("Meter reading import " + importId + " has no staged readings");
+        }
+        return readings;
+    }
+
+    /**
+     * Records that a billing run bills the import, in the caller's transaction.
+     */
+    public void markBilled(Long importId, Long billingRunId) {
+        if (meterReadingImportRepository.markBilled(importId, billingRunId) == 0) {
+            throw new IllegalArgumentException("Meter reading import " + importId
+                    + " was already billed by another billing run or is not completed");
+        }
+    }
+
+    private MeterIndex buildMeterIndex() {
+        MeterIndex index = new MeterIndex();
+        jdbcTemplate.query(METER_INDEX_SQL, rs -> {
+            String meterNumber = rs.getString("meter_number");
+            index.meters.put(MeterIndex.key(meterNumber),
+                    new MeterEntry(meterNumber, rs.getLong("customer_address_id"), rs.getBigDecimal("current_reading")));
+        });
+        jdbcTemplate.query(ACTIVE_ADDRESSES_SQL, rs -> {
+            index.activeAddresses.add(rs.getLong("id"));
+        });
+        return index;
+    }
+
+    // Parse, match and validate one row; returns null and records an error when the row is rejected
+    private StagedMeterReading toStagedReading(Long importId, int rowNumber, Map<String, String> values,
+                                               MeterIndex index, MeterReadingImportResultDto result) {
+        String meterNumber = blankToNull(values.get("meternumber"));
+        try {
+            if (meterNumber == null) {
+                throw new IllegalArgumentException("Meter number is required");
+            }
+            BigDecimal currentReading = parseReading("currentReading", values.get("currentreading"));
+            if (currentReading == null) {
+                throw new IllegalArgumentException("Current reading is required");
+            }
+            BigDecimal previousReading = parseReading("previousReading", values.get("previousreading"));
+            LocalDate readingDate = parseDate(values.get("readingdate"));
+            Long customerAddressId = parseId(values.get("customeraddressid"));
+
+            MeterEntry meter = index.meters.get(MeterIndex.key(meterNumber));
+            if (meter == null) {
+                if (customerAddressId == null) {
+                    throw new IllegalArgumentException("Unknown meter; a customerAddressId is required for a meter that has not been billed");
+                }
+                meter = new MeterEntry(meterNumber, customerAddressId, null);
+            } else if (customerAddressId != null && customerAddressId != meter.customerAddressId) {
+                throw new IllegalArgumentException("Meter belongs to customer address " + meter.customerAddressId
+                        + ", not " + customerAddressId);
+            }
+            if (!index.activeAddresses.contains(meter.customerAddressId)) {
+                throw new IllegalArgumentException("Customer address " + meter.customerAddressId + " does not exist or is not active");
+            }
+            if (previousReading == null) {
+                previousReading = meter.lastReading;
+            }
+            if (previousReading == null) {
+                throw new IllegalArgumentException("No previous reading for this meter; add a previousReading column");
+            }
+            if (currentReading.compareTo(previousReading) < 0) {
+                throw new IllegalArgumentException("Current reading " + currentReading.toPlainString()
+                        + " is lower than the previous reading " + previousReading.toPlainString());
+            }
+
+            // Later rows of the same meter are measured from this one
+            meter.lastReading = currentReading;
+            index.meters.putIfAbsent(MeterIndex.key(meterNumber), meter);
+            return new StagedMeterReading(null, importId, rowNumber, meter.customerAddressId, meter.meterNumber,
+                    readingDate, previousReading, currentReading, currentReading.subtract(previousReading));
+        } catch (IllegalArgumentException e) {
+            result.setRejectedCount(result.getRejectedCount() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new MeterReadingImportResultDto.RowError(rowNumber, meterNumber, e.getMessage()));
+            }
+            return null;
+        }
+    }
+
+    private void writeBatch(List<StagedMeterReading> batch) {
+        jdbcTemplate.batchUpdate(INSERT_STAGED_SQL, batch, batch.size(), (ps, reading) -> {
+            ps.setLong(1, reading.getImportId());
+            ps.setInt(2, reading.getSourceRow());
+            ps.setLong(3, reading.getCustomerAddressId());
+            ps.setString(4, reading.getMeterNumber());
+            ps.setDate(5, reading.getReadingDate() != null ? Date.valueOf(reading.getReadingDate()) : null);
+            ps.setBigDecimal(6, reading.getPreviousReading());
+            ps.setBigDecimal(7, reading.getCurrentReading());
+            ps.setBigDecimal(8, reading.getConsumption());
+        });
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static BigDecimal parseReading(String field, String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            BigDecimal reading = new BigDecimal(text.replace(",", ""));
+            if (reading.signum() < 0) {
+                throw new IllegalArgumentException("Invalid " + field + " '" + text + "', must not be negative");
+            }
+            return reading;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + " '" + text + "', expected a number");
+        }
+    }
+
+    // Dates are expected as yyyy-MM-dd; XLSX date cells are rendered that way by ImportFileReader
+    private static LocalDate parseDate(String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid readingDate '" + text + "', expected yyyy-MM-dd");
+        }
+    }
+
+    private static Long parseId(String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid customerAddressId '" + text + "', expected a number");
+        }
+    }
+
+    private static class MeterIndex {
+        private final Map<String, MeterEntry> meters = new HashMap<>();
+        private final Set<Long> activeAddresses = new HashSet<>();
+
+        // Field staff write meter numbers with varying case and spacing
+        static String key(String meterNumber) {
+            return meterNumber.trim().toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private static class MeterEntry {
+        private final String meterNumber;
+        private final long customerAddressId;
+        private BigDecimal lastReading;
+
+        MeterEntry(String meterNumber, long customerAddressId, BigDecimal lastReading) {
+            this.meterNumber = meterNumber;
+            this.customerAddressId = customerAddressId;
+            this.lastReading = lastReading;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package io.getarrays.securecapita.bills;
+
+public enum MeterReadingImportStatus {
+    IN_PROGRESS("In Progress"),
+    COMPLETED("Completed"),
+    FAILED("Failed");
+
+    private final String displayName;
+
+    MeterReadingImportStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,51 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * An accepted row of a meter reading import, matched to its customer address and with the
+ * consumption since the meter's previous reading.
+ */
+@Entity
+@Table(name = "staged_meter_readings", indexes = {
+        @Index(name = "idx_staged_meter_readings_import", columnList = "import_id, customer_address_id, meter_number")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StagedMeterReading {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "import_id", nullable = false)
+    private Long importId;
+
+    @Column(name = "source_row", nullable = false)
+    private int sourceRow;
+
+    @Column(name = "customer_address_id", nullable = false)
+    private Long customerAddressId;
+
+    @Column(name = "meter_number", nullable = false)
+    private String meterNumber;
+
+    @Column(name = "reading_date")
+    private LocalDate readingDate;
+
+    @Column(name = "previous_reading", nullable = false)
+    private BigDecimal previousReading;
+
+    @Column(name = "current_reading", nullable = false)
+    private BigDecimal currentReading;
+
+    @Column(nullable = false)
+    private BigDecimal consumption;
+}
@@ -12,7 +12,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "water_bills")
+@Table(name = "water_bills", indexes = {
+        @Index(name = "idx_water_bills_status_due_date", columnList = "status, due_date"),
+        @Index(name = "idx_water_bills_meter_period", columnList = "meter_number, billing_period_end")
+}, uniqueConstraints = {
+        // One bill per meter and billing period, however many nodes resume a billing run
+        @UniqueConstraint(name = "uk_water_bills_address_meter_period",
+                columnNames = {"customer_address_id", "meter_number", "billing_period_start"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,49 @@
+package io.getarrays.securecapita.bills;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Finance dashboard figures, read from the water bill running totals. Outstanding covers pending,
+ * sent and overdue bills.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaterBillAggregatesDto {
+
+    private long billCount;
+    private BigDecimal totalAmount;
+    private BigDecimal totalConsumption;
+    private BigDecimal averageAmount;
+    private BigDecimal outstandingAmount;
+    private BigDecimal paidAmount;
+
+    private List<Group> byStatus;
+    private List<Group> byDeliveryMethod;
+    private List<Group> byTown;
+    private List<Group> byMonth;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Group {
+        // Status or delivery method name, town id, or billing month as yyyy-MM
+        private String key;
+        private String label;
+        private long billCount;
+        private BigDecimal totalAmount;
+        private BigDecimal totalConsumption;
+        private BigDecimal averageAmount;
+    }
+}
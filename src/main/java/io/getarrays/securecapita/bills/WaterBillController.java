@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +21,9 @@ import java.util.Map;
 public class WaterBillController {
 
     private final WaterBillService waterBillService;
+    private final WaterBillDeliveryService waterBillDeliveryService;
+    private final WaterBillTotalsService waterBillTotalsService;
+    private final WaterBillOverdueSweeper waterBillOverdueSweeper;
 
     // Basic CRUD endpoints
     @PostMapping
@@ -85,35 +89,23 @@ public class WaterBillController {
 
     @PostMapping("/{id}/send/customer-address-whatsapp")
     public ResponseEntity<Map<String, Object>> sendWaterBillToCustomerAddressWhatsApp(@PathVariable Long id) {
-        boolean success = waterBillService.sendWaterBillToCustomerAddressWhatsApp(id);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to customer address WhatsApp successfully" : "Failed to send water bill to customer address WhatsApp",
-            "billId", id
-        ));
+        boolean queued = waterBillService.sendWaterBillToCustomerAddressWhatsApp(id);
+        return queuedResponse(queued, "Water bill queued for delivery to customer address WhatsApp", Map.of("billId", id));
     }
 
     @PostMapping("/bill-number/{billNumber}/send/customer-address-whatsapp")
     public ResponseEntity<Map<String, Object>> sendWaterBillToCustomerAddressWhatsAppByBillNumber(@PathVariable String billNumber) {
-        boolean success = waterBillService.sendWaterBillToCustomerAddressWhatsApp(billNumber);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to customer address WhatsApp successfully" : "Failed to send water bill to customer address WhatsApp",
-            "billNumber", billNumber
-        ));
+        boolean queued = waterBillService.sendWaterBillToCustomerAddressWhatsApp(billNumber);
+        return queuedResponse(queued, "Water bill queued for delivery to customer address WhatsApp", Map.of("billNumber", billNumber));
     }
 
     @PostMapping("/customer-address/{customerAddressId}/send")
     public ResponseEntity<Map<String, Object>> sendWaterBillToCustomerAddress(
             @PathVariable Long customerAddressId, 
             @RequestParam DeliveryMethod deliveryMethod) {
-        boolean success = waterBillService.sendWaterBillToCustomerAddress(customerAddressId, deliveryMethod);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bills sent to customer address successfully" : "Failed to send water bills to customer address",
-            "customerAddressId", customerAddressId,
-            "deliveryMethod", deliveryMethod
-        ));
+        boolean queued = waterBillService.sendWaterBillToCustomerAddress(customerAddressId, deliveryMethod);
+        return queuedResponse(queued, "Water bills queued for delivery to customer address",
+                Map.of("customerAddressId", customerAddressId, "deliveryMethod", deliveryMethod));
     }
 
     @GetMapping("/customer-address/{customerAddressId}")
@@ -158,64 +150,58 @@ public class WaterBillController {
     // Bill delivery endpoints
     @PostMapping("/{id}/send/whatsapp")
     public ResponseEntity<Map<String, Object>> sendWaterBillToWhatsApp(@PathVariable Long id) {
-        boolean success = waterBillService.sendWaterBillToWhatsApp(id);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to WhatsApp successfully" : "Failed to send water bill to WhatsApp",
-            "billId", id
-        ));
+        boolean queued = waterBillService.sendWaterBillToWhatsApp(id);
+        return queuedResponse(queued, "Water bill queued for WhatsApp delivery", Map.of("billId", id));
     }
 
     @PostMapping("/bill-number/{billNumber}/send/whatsapp")
     public ResponseEntity<Map<String, Object>> sendWaterBillToWhatsAppByBillNumber(@PathVariable String billNumber) {
-        boolean success = waterBillService.sendWaterBillToWhatsApp(billNumber);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to WhatsApp successfully" : "Failed to send water bill to WhatsApp",
-            "billNumber", billNumber
-        ));
+        boolean queued = waterBillService.sendWaterBillToWhatsApp(billNumber);
+        return queuedResponse(queued, "Water bill queued for WhatsApp delivery", Map.of("billNumber", billNumber));
     }
 
     @PostMapping("/{id}/send/address")
     public ResponseEntity<Map<String, Object>> sendWaterBillToAddress(@PathVariable Long id) {
-        boolean success = waterBillService.sendWaterBillToAddress(id);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to address successfully" : "Failed to send water bill to address",
-            "billId", id
-        ));
+        boolean queued = waterBillService.sendWaterBillToAddress(id);
+        return queuedResponse(queued, "Water bill queued for delivery to address", Map.of("billId", id));
     }
 
     @PostMapping("/bill-number/{billNumber}/send/address")
     public ResponseEntity<Map<String, Object>> sendWaterBillToAddressByBillNumber(@PathVariable String billNumber) {
-        boolean success = waterBillService.sendWaterBillToAddress(billNumber);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent to address successfully" : "Failed to send water bill to address",
-            "billNumber", billNumber
-        ));
+        boolean queued = waterBillService.sendWaterBillToAddress(billNumber);
+        return queuedResponse(queued, "Water bill queued for delivery to address", Map.of("billNumber", billNumber));
     }
 
     @PostMapping("/{id}/send")
     public ResponseEntity<Map<String, Object>> sendWaterBill(@PathVariable Long id, 
                                                            @RequestParam DeliveryMethod deliveryMethod) {
-        boolean success = waterBillService.sendWaterBill(id, deliveryMethod);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Water bill sent successfully" : "Failed to send water bill",
-            "billId", id,
-            "deliveryMethod", deliveryMethod
-        ));
+        boolean queued = waterBillService.sendWaterBill(id, deliveryMethod);
+        return queuedResponse(queued, "Water bill queued for delivery", Map.of("billId", id, "deliveryMethod", deliveryMethod));
     }
 
+    /**
+     * Sends are only queued; the bill's deliveryStatus becomes SENT or FAILED once the dispatcher
+     * has tried. {@code queued} is false when a delivery over that channel was already open.
+     */
+    private static ResponseEntity<Map<String, Object>> queuedResponse(boolean queued, String message, Map<String, Object> details) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("queued", queued);
+        body.put("deliveryStatus", queued ? "QUEUED" : "ALREADY_QUEUED");
+        body.put("message", queued ? message : "Nothing new to queue; a delivery is already open or there are no bills");
+        body.putAll(details);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+    }
+
+    // Bulk sends run as background jobs; poll /bulk/jobs/{jobId} for progress
     @PostMapping("/bulk/send")
     public ResponseEntity<Map<String, Object>> sendBulkWaterBills(@RequestBody List<Long> billIds,
                                                                  @RequestParam DeliveryMethod deliveryMethod) {
-        boolean success = waterBillService.sendBulkWaterBills(billIds, deliveryMethod);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Bulk water bills sent successfully" : "Failed to send some water bills",
-            "billIds", billIds,
+        WaterBillDeliveryJobDto job = waterBillDeliveryService.startDelivery(billIds, deliveryMethod);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+            "state", job.getState(),
+            "message", "Bulk water bill delivery queued",
+            "jobId", job.getJobId(),
+            "totalBills", job.getTotal(),
             "deliveryMethod", deliveryMethod
         ));
     }
@@ -223,15 +209,32 @@ public class WaterBillController {
     @PostMapping("/bulk/send/status")
     public ResponseEntity<Map<String, Object>> sendBulkWaterBillsByStatus(@RequestParam WaterBillStatus status,
                                                                          @RequestParam DeliveryMethod deliveryMethod) {
-        boolean success = waterBillService.sendBulkWaterBillsByStatus(status, deliveryMethod);
-        return ResponseEntity.ok(Map.of(
-            "success", success,
-            "message", success ? "Bulk water bills sent successfully" : "Failed to send some water bills",
+        WaterBillDeliveryJobDto job = waterBillDeliveryService.startDeliveryByStatus(status, deliveryMethod);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+            "state", job.getState(),
+            "message", "Bulk water bill delivery queued",
+            "jobId", job.getJobId(),
+            "totalBills", job.getTotal(),
             "status", status,
             "deliveryMethod", deliveryMethod
         ));
     }
 
+    @GetMapping("/bulk/jobs")
+    public ResponseEntity<List<WaterBillDeliveryJobDto>> getBulkDeliveryJobs() {
+        return ResponseEntity.ok(waterBillDeliveryService.getJobs());
+    }
+
+    @GetMapping("/bulk/jobs/{jobId}")
+    public ResponseEntity<WaterBillDeliveryJobDto> getBulkDeliveryJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(waterBillDeliveryService.getJob(jobId));
+    }
+
+    @DeleteMapping("/bulk/jobs/{jobId}")
+    public ResponseEntity<WaterBillDeliveryJobDto> cancelBulkDeliveryJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(waterBillDeliveryService.cancelJob(jobId));
+    }
+
     // Search and filter endpoints
     @GetMapping("/customer-phone/{phone}")
     public ResponseEntity<List<WaterBill>> getWaterBillsByCustomerPhone(@PathVariable String phone) {
@@ -370,6 +373,23 @@ public class WaterBillController {
         return ResponseEntity.ok(waterBill);
     }
 
+    // Runs the overdue sweep now instead of waiting for the nightly run
+    @PostMapping("/overdue/sweep")
+    public ResponseEntity<Map<String, Object>> sweepOverdueBills() {
+        int swept = waterBillOverdueSweeper.sweep();
+        if (swept < 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "An overdue sweep is already running"));
+        }
+        return ResponseEntity.ok(Map.of("message", "Overdue sweep completed", "markedOverdue", swept));
+    }
+
+    // Bills that became overdue after the cursor; pass the returned cursor to read the next page
+    @GetMapping("/overdue/feed")
+    public ResponseEntity<Map<String, Object>> getOverdueFeed(@RequestParam(defaultValue = "0") long after,
+                                                              @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(waterBillOverdueSweeper.getOverdueFeed(after, limit));
+    }
+
     // Reporting endpoints
     @GetMapping("/stats/count-by-status/{status}")
     public ResponseEntity<Map<String, Object>> countWaterBillsByStatus(@PathVariable WaterBillStatus status) {
@@ -425,6 +445,18 @@ public class WaterBillController {
         return ResponseEntity.ok(Map.of("totalConsumption", consumption));
     }
 
+    @GetMapping("/aggregates")
+    public ResponseEntity<WaterBillAggregatesDto> getAggregates() {
+        return ResponseEntity.ok(waterBillTotalsService.getAggregates());
+    }
+
+    // Recomputes the running totals from the bills, e.g. after bills were changed outside the application
+    @PostMapping("/aggregates/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildAggregates() {
+        int buckets = waterBillTotalsService.rebuild();
+        return ResponseEntity.ok(Map.of("message", "Water bill totals rebuilt", "buckets", buckets));
+    }
+
     // Validation endpoints
     @GetMapping("/validate/bill-number/{billNumber}")
     public ResponseEntity<Map<String, Object>> isBillNumberExists(@PathVariable String billNumber) {
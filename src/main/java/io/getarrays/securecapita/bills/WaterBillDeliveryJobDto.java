@@ -0,0 +1,39 @@
+package io.getarrays.securecapita.bills;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk water bill delivery job, counted from the job's outbox rows. Bills count as
+ * done once their outcome has been written back, so {@code sent + failed + cancelled} reaches
+ * {@code total} when the job completes.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaterBillDeliveryJobDto {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, CANCELLED }
+
+    private String jobId;
+    private DeliveryMethod deliveryMethod;
+    private State state;
+
+    private int total;
+    private int sent;
+    private int failed;
+    private int cancelled;
+    private int retries;
+    private int pending;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+}
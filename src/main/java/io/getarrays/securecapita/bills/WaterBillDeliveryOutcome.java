@@ -0,0 +1,7 @@
+package io.getarrays.securecapita.bills;
+
+/**
+ * Result of one delivery attempt: whether the channel accepted the bill and the message sent.
+ */
+public record WaterBillDeliveryOutcome(boolean success, String message) {
+}
@@ -0,0 +1,478 @@
+package io.getarrays.securecapita.bills;
+
+import io.getarrays.securecapita.bills.WaterBillOutboxService.Claim;
+import io.getarrays.securecapita.bills.WaterBillOutboxService.Outcome;
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers water bills queued in the outbox. Each delivery method has a dispatcher thread that
+ * claims due rows in batches, a bounded worker pool and a rate limit, so a slow channel neither
+ * blocks the others nor floods its provider. Failed sends go back to the outbox with exponential
+ * backoff, and outcomes are written back in batches by a writer thread of its own, so they never
+ * wait behind scheduled jobs. Dispatchers stop claiming while too many outcomes are waiting to be
+ * written, which keeps the backlog bounded and the written outcomes well inside their leases.
+ * <p>
+ * Claims use {@code FOR UPDATE SKIP LOCKED}, so any number of nodes can dispatch the same outbox
+ * without sending a bill twice. A send whose outcome was lost to a crash is retried once its
+ * lease runs out, which makes delivery at-least-once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaterBillDeliveryService {
+
+    private static final int WRITE_BATCH_SIZE = 500;
+    private static final long MAX_BACKOFF_MS = 60 * 60 * 1000;
+
+    private final WaterBillService waterBillService;
+    private final WaterBillRepository waterBillRepository;
+    private final WaterBillOutboxService waterBillOutboxService;
+    private final WaterBillOutboxRepository waterBillOutboxRepository;
+    private final Environment environment;
+
+    // Per channel defaults; override with water-bills.delivery.<method>.concurrency / .rate-per-second
+    @Value("${water-bills.delivery.concurrency:8}")
+    private int defaultConcurrency;
+
+    @Value("${water-bills.delivery.rate-per-second:10}")
+    private double defaultRatePerSecond;
+
+    @Value("${water-bills.delivery.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${water-bills.delivery.backoff-ms:1000}")
+    private long backoffMs;
+
+    @Value("${water-bills.delivery.claim-batch-size:50}")
+    private int claimBatchSize;
+
+    @Value("${water-bills.delivery.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${water-bills.delivery.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    // Dispatchers pause claiming above this many unwritten outcomes
+    @Value("${water-bills.delivery.max-pending-outcomes:2000}")
+    private int maxPendingOutcomes;
+
+    // Nodes with the dispatcher off still enqueue; another node sends
+    @Value("${water-bills.delivery.dispatcher-enabled:true}")
+    private boolean dispatcherEnabled;
+
+    @Value("${water-bills.delivery.job-history-days:7}")
+    private int jobHistoryDays;
+
+    @Value("${water-bills.delivery.outbox-retention-days:30}")
+    private int outboxRetentionDays;
+
+    private final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+    private final Map<DeliveryMethod, Channel> channels = new EnumMap<>(DeliveryMethod.class);
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private Thread outcomeWriter;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        for (DeliveryMethod method : DeliveryMethod.values()) {
+            String prefix = "water-bills.delivery." + channelName(method);
+            int concurrency = Math.max(1, environment.getProperty(prefix + ".concurrency", Integer.class, defaultConcurrency));
+            double ratePerSecond = environment.getProperty(prefix + ".rate-per-second", Double.class, defaultRatePerSecond);
+            channels.put(method, new Channel(method, concurrency, ratePerSecond));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDispatchers() {
+        if (!dispatcherEnabled) {
+            log.info("Water bill delivery dispatcher is disabled on this node");
+            return;
+        }
+        running = true;
+        for (Channel channel : channels.values()) {
+            Thread thread = new Thread(() -> dispatch(channel), "water-bill-dispatch-" + channelName(channel.method));
+            thread.setDaemon(true);
+            thread.start();
+            dispatchers.add(thread);
+        }
+        outcomeWriter = new Thread(this::writeOutcomes, "water-bill-outcome-writer");
+        outcomeWriter.setDaemon(true);
+        outcomeWriter.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatchers.forEach(Thread::interrupt);
+        for (Channel channel : channels.values()) {
+            channel.executor.shutdown();
+        }
+        // Let sends in flight finish so their outcomes are recorded rather than retried
+        for (Channel channel : channels.values()) {
+            channel.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        if (outcomeWriter != null) {
+            // Not interrupted, so a batch being written finishes; the writer stops at its next poll
+            outcomeWriter.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flushOutcomes();
+    }
+
+    public WaterBillDeliveryJobDto startDelivery(List<Long> billIds, DeliveryMethod deliveryMethod) {
+        if (deliveryMethod == null) {
+            throw new IllegalArgumentException("Delivery method is required");
+        }
+        if (billIds == null || billIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one bill id is required");
+        }
+        String jobId = UUID.randomUUID().toString();
+        int queued = waterBillOutboxService.enqueue(billIds, deliveryMethod, jobId);
+        if (queued == 0) {
+            throw new IllegalArgumentException("None of the bills could be queued: they do not exist or are already queued for " +
+                    deliveryMethod.getDisplayName());
+        }
+        log.info("Queued water bill delivery job {} for {} bills via {}", jobId, queued, deliveryMethod);
+        return getJob(jobId);
+    }
+
+    public WaterBillDeliveryJobDto startDeliveryByStatus(WaterBillStatus status, DeliveryMethod deliveryMethod) {
+        List<Long> billIds = waterBillRepository.findIdsByStatus(status);
+        if (billIds.isEmpty()) {
+            throw new IllegalArgumentException("No water bills with status " + status);
+        }
+        return startDelivery(billIds, deliveryMethod);
+    }
+
+    public WaterBillDeliveryJobDto getJob(String jobId) {
+        List<Object[]> rows = waterBillOutboxRepository.aggregateJob(jobId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Delivery job not found with id: " + jobId);
+        }
+        WaterBillDeliveryJobDto job = toJobDto(jobId, rows);
+        waterBillOutboxRepository.findFirstByJobIdAndLastErrorIsNotNullOrderByIdDesc(jobId)
+                .ifPresent(message -> job.setLastError(message.getLastError()));
+        return job;
+    }
+
+    public List<WaterBillDeliveryJobDto> getJobs() {
+        Map<String, List<Object[]>> rowsByJob = new LinkedHashMap<>();
+        for (Object[] row : waterBillOutboxRepository.aggregateJobsSince(LocalDateTime.now().minusDays(jobHistoryDays))) {
+            rowsByJob.computeIfAbsent((String) row[0], jobId -> new ArrayList<>())
+                    .add(Arrays.copyOfRange(row, 1, row.length));
+        }
+        return rowsByJob.entrySet().stream()
+                .map(entry -> toJobDto(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(WaterBillDeliveryJobDto::getCreatedAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Cancels the job's deliveries that no dispatcher has claimed yet. Sends in flight finish and are recorded.
+     */
+    public WaterBillDeliveryJobDto cancelJob(String jobId) {
+        getJob(jobId);
+        int cancelled = waterBillOutboxService.cancelJob(jobId);
+        log.info("Cancelled {} pending deliveries of water bill delivery job {}", cancelled, jobId);
+        return getJob(jobId);
+    }
+
+    // Rows: status, delivery method, count, retries, first created, last completed
+    private WaterBillDeliveryJobDto toJobDto(String jobId, List<Object[]> rows) {
+        Map<WaterBillOutboxStatus, Integer> counts = new EnumMap<>(WaterBillOutboxStatus.class);
+        WaterBillDeliveryJobDto job = WaterBillDeliveryJobDto.builder().jobId(jobId).build();
+        int total = 0;
+        int retries = 0;
+        LocalDateTime createdAt = null;
+        LocalDateTime finishedAt = null;
+        for (Object[] row : rows) {
+            int count = ((Number) row[2]).intValue();
+            counts.merge((WaterBillOutboxStatus) row[0], count, Integer::sum);
+            job.setDeliveryMethod((DeliveryMethod) row[1]);
+            total += count;
+            retries += row[3] != null ? ((Number) row[3]).intValue() : 0;
+            LocalDateTime created = (LocalDateTime) row[4];
+            LocalDateTime completed = (LocalDateTime) row[5];
+            createdAt = createdAt == null || created.isBefore(createdAt) ? created : createdAt;
+            finishedAt = completed != null && (finishedAt == null || completed.isAfter(finishedAt)) ? completed : finishedAt;
+        }
+        int sent = counts.getOrDefault(WaterBillOutboxStatus.SENT, 0);
+        int failed = counts.getOrDefault(WaterBillOutboxStatus.FAILED, 0);
+        int cancelled = counts.getOrDefault(WaterBillOutboxStatus.CANCELLED, 0);
+        int inProgress = counts.getOrDefault(WaterBillOutboxStatus.IN_PROGRESS, 0);
+        int pending = counts.getOrDefault(WaterBillOutboxStatus.PENDING, 0) + inProgress;
+
+        WaterBillDeliveryJobDto.State state;
+        if (pending == 0) {
+            state = cancelled > 0 ? WaterBillDeliveryJobDto.State.CANCELLED : WaterBillDeliveryJobDto.State.COMPLETED;
+        } else if (inProgress > 0 || sent + failed + retries > 0) {
+            state = WaterBillDeliveryJobDto.State.RUNNING;
+        } else {
+            state = WaterBillDeliveryJobDto.State.QUEUED;
+        }
+
+        job.setState(state);
+        job.setTotal(total);
+        job.setSent(sent);
+        job.setFailed(failed);
+        job.setCancelled(cancelled);
+        job.setRetries(retries);
+        job.setPending(pending);
+        job.setCreatedAt(createdAt);
+        job.setFinishedAt(pending == 0 ? finishedAt : null);
+        return job;
+    }
+
+    // Claims as many due rows as the channel has free permits and hands them to its workers
+    private void dispatch(Channel channel) {
+        while (running) {
+            try {
+                if (outcomes.size() >= maxPendingOutcomes) {
+                    // The writer is behind; claiming more would only age leases and grow the backlog
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                channel.permits.acquire();
+                int reserved = 1;
+                while (reserved < claimBatchSize && channel.permits.tryAcquire()) {
+                    reserved++;
+                }
+                List<Claim> claims = List.of();
+                try {
+                    claims = waterBillOutboxService.claim(channel.method, reserved, leaseMs);
+                } finally {
+                    channel.permits.release(reserved - claims.size());
+                }
+                if (claims.isEmpty()) {
+                    Thread.sleep(pollIntervalMs);
+                    continue;
+                }
+                submit(channel, claims);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Water bill {} dispatcher failed: {}", channel.method, e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void submit(Channel channel, List<Claim> claims) {
+        Map<Long, WaterBill> bills = new HashMap<>();
+        try {
+            for (WaterBill bill : waterBillRepository.findForDeliveryByIdIn(claims.stream().map(Claim::billId).toList())) {
+                bills.put(bill.getId(), bill);
+            }
+        } catch (RuntimeException e) {
+            // The claims stay leased and are picked up again once the lease runs out
+            channel.permits.release(claims.size());
+            throw e;
+        }
+        for (Claim claim : claims) {
+            WaterBill bill = bills.get(claim.billId());
+            if (bill == null) {
+                outcomes.add(new Outcome(claim, WaterBillOutboxStatus.FAILED, "Water bill not found with id: " + claim.billId(),
+                        LocalDateTime.now()));
+                channel.permits.release();
+                continue;
+            }
+            try {
+                channel.executor.execute(() -> attempt(channel, claim, bill));
+            } catch (RejectedExecutionException e) {
+                // Only on shutdown; the lease returns the row to the queue
+                channel.permits.release();
+            }
+        }
+    }
+
+    private void attempt(Channel channel, Claim claim, WaterBill bill) {
+        String message;
+        try {
+            channel.rateLimiter.acquire();
+            WaterBillDeliveryOutcome outcome = waterBillService.deliverWaterBill(bill, channel.method);
+            if (outcome.success()) {
+                outcomes.add(new Outcome(claim, WaterBillOutboxStatus.SENT, outcome.message(), LocalDateTime.now()));
+                return;
+            }
+            message = outcome.message();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            message = "Error: " + e.getMessage();
+        } finally {
+            channel.permits.release();
+        }
+
+        if (claim.attempt() < maxAttempts) {
+            outcomes.add(new Outcome(claim, WaterBillOutboxStatus.PENDING, message,
+                    LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(backoffDelay(claim.attempt())))));
+        } else {
+            log.warn("Water bill {} could not be delivered via {} after {} attempts", bill.getId(), channel.method, claim.attempt());
+            outcomes.add(new Outcome(claim, WaterBillOutboxStatus.FAILED, message, LocalDateTime.now()));
+        }
+    }
+
+    // Exponential backoff with jitter, so retries of a failing provider do not arrive in lockstep
+    private long backoffDelay(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, backoffMs << Math.min(attempt - 1, 20));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+    }
+
+    // Writer thread: writes outcomes in batches as soon as they arrive
+    private void writeOutcomes() {
+        while (running) {
+            try {
+                Outcome first = outcomes.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    List<Outcome> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+                    batch.add(first);
+                    outcomes.drainTo(batch, WRITE_BATCH_SIZE - 1);
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Water bill outcome writer failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining attempt outcomes back to the outbox and the bills in batches, on shutdown
+     * once the writer thread has stopped.
+     */
+    void flushOutcomes() {
+        List<Outcome> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        Outcome outcome;
+        while ((outcome = outcomes.poll()) != null) {
+            batch.add(outcome);
+            if (batch.size() == WRITE_BATCH_SIZE) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private void writeBatch(List<Outcome> batch) {
+        try {
+            waterBillOutboxService.recordOutcomes(batch);
+        } catch (Exception e) {
+            // The rows stay claimed, so they are retried once their lease runs out
+            log.error("Failed to record {} water bill delivery outcomes: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns rows claimed by dispatchers that died or hung to the queue.
+     */
+    @Scheduled(fixedDelayString = "${water-bills.delivery.lease-check-interval-ms:60000}")
+    public void releaseExpiredClaims() {
+        int released = waterBillOutboxRepository.releaseExpiredClaims(LocalDateTime.now());
+        if (released > 0) {
+            log.warn("Returned {} water bill deliveries with expired claims to the outbox", released);
+        }
+    }
+
+    @Scheduled(cron = "${water-bills.delivery.outbox-cleanup-cron:0 30 3 * * *}")
+    public void deleteCompletedOutboxRows() {
+        int deleted = waterBillOutboxRepository.deleteCompletedBefore(LocalDateTime.now().minusDays(outboxRetentionDays));
+        log.info("Deleted {} completed water bill outbox rows", deleted);
+    }
+
+    private static String channelName(DeliveryMethod method) {
+        return method.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * Workers, backlog bound and rate limit of one delivery method. A claimed row holds one permit
+     * until its attempt is over, so a channel never claims more than it can work through.
+     */
+    private static class Channel {
+        private final DeliveryMethod method;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore permits;
+        private final RateLimiter rateLimiter;
+
+        Channel(DeliveryMethod method, int concurrency, double ratePerSecond) {
+            this.method = method;
+            int backlog = concurrency * 2;
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "water-bill-" + channelName(method) + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(backlog), threadFactory);
+            this.permits = new Semaphore(backlog);
+            this.rateLimiter = new RateLimiter(ratePerSecond);
+        }
+    }
+
+    // Spaces sends evenly at the configured rate; a rate of zero or less disables limiting
+    private static class RateLimiter {
+        private final long intervalNanos;
+        private long nextFreeAt = System.nanoTime();
+
+        RateLimiter(double ratePerSecond) {
+            this.intervalNanos = ratePerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextFreeAt);
+                nextFreeAt = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
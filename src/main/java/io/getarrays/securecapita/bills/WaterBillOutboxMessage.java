@@ -0,0 +1,66 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One pending or finished delivery of a water bill over one channel. Rows are inserted in the
+ * transaction that asks for the delivery and are claimed by dispatchers with
+ * {@code FOR UPDATE SKIP LOCKED}, so a send is never lost and never taken by two dispatchers.
+ */
+@Entity
+@Table(name = "water_bill_outbox", indexes = {
+        @Index(name = "idx_water_bill_outbox_claim", columnList = "status, delivery_method, next_attempt_at"),
+        @Index(name = "idx_water_bill_outbox_job", columnList = "job_id"),
+        @Index(name = "idx_water_bill_outbox_bill", columnList = "bill_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaterBillOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bill_id", nullable = false)
+    private Long billId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delivery_method", nullable = false, length = 20)
+    private DeliveryMethod deliveryMethod;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WaterBillOutboxStatus status;
+
+    // Bulk delivery job the row belongs to, null for single sends
+    @Column(name = "job_id", length = 36)
+    private String jobId;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Token of the claim currently working on the row, and when that claim may be taken over
+    @Column(name = "claimed_by", length = 36)
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
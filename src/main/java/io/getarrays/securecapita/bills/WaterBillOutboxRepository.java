@@ -0,0 +1,42 @@
+package io.getarrays.securecapita.bills;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaterBillOutboxRepository extends JpaRepository<WaterBillOutboxMessage, Long> {
+
+    // Per status totals of one job: status, method, count, retries, first created, last completed
+    @Query("SELECT o.status, o.deliveryMethod, COUNT(o), SUM(CASE WHEN o.attempts > 1 THEN o.attempts - 1 ELSE 0 END), " +
+            "MIN(o.createdAt), MAX(o.completedAt) FROM WaterBillOutboxMessage o " +
+            "WHERE o.jobId = :jobId GROUP BY o.status, o.deliveryMethod")
+    List<Object[]> aggregateJob(@Param("jobId") String jobId);
+
+    // Same totals for every job started since the given time, with the job id first
+    @Query("SELECT o.jobId, o.status, o.deliveryMethod, COUNT(o), SUM(CASE WHEN o.attempts > 1 THEN o.attempts - 1 ELSE 0 END), " +
+            "MIN(o.createdAt), MAX(o.completedAt) FROM WaterBillOutboxMessage o " +
+            "WHERE o.jobId IS NOT NULL AND o.createdAt >= :since GROUP BY o.jobId, o.status, o.deliveryMethod")
+    List<Object[]> aggregateJobsSince(@Param("since") LocalDateTime since);
+
+    Optional<WaterBillOutboxMessage> findFirstByJobIdAndLastErrorIsNotNullOrderByIdDesc(String jobId);
+
+    // Claims whose dispatcher died or hung go back to the queue
+    @Transactional
+    @Modifying
+    @Query("UPDATE WaterBillOutboxMessage o SET o.status = 'PENDING', o.claimedBy = NULL, o.leaseUntil = NULL " +
+            "WHERE o.status = 'IN_PROGRESS' AND o.leaseUntil < :now")
+    int releaseExpiredClaims(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WaterBillOutboxMessage o WHERE o.status IN ('SENT', 'FAILED', 'CANCELLED') AND o.completedAt < :before")
+    int deleteCompletedBefore(@Param("before") LocalDateTime before);
+}
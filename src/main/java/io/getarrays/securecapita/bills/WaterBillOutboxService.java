@@ -0,0 +1,256 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Database side of the water bill outbox: enqueueing deliveries, claiming them for a dispatcher
+ * and recording their outcomes. All statements go through JDBC so a bulk run costs a few batched
+ * statements per chunk rather than an entity save per bill.
+ */
+@Service
+@RequiredArgsConstructor
+public class WaterBillOutboxService {
+
+    private static final int ENQUEUE_CHUNK_SIZE = 500;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    // Locking the bills serializes concurrent enqueues of the same bill; the open-delivery check
+    // below is a locking read too, so it sees rows committed by the enqueue it waited for
+    private static final String LOCK_BILLS_SQL = "SELECT id FROM water_bills WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String OPEN_DELIVERIES_SQL = "SELECT bill_id FROM water_bill_outbox WHERE bill_id IN (%s) " +
+            "AND delivery_method = ? AND status IN ('PENDING', 'IN_PROGRESS') FOR UPDATE";
+    private static final String INSERT_SQL = "INSERT INTO water_bill_outbox (bill_id, delivery_method, status, job_id, " +
+            "attempts, next_attempt_at, created_at) VALUES (?, ?, 'PENDING', ?, 0, ?, ?)";
+    private static final String MARK_BILL_QUEUED_SQL = "UPDATE water_bills SET delivery_status = 'QUEUED', " +
+            "last_modified_date = ? WHERE id = ?";
+
+    // Rows locked by another dispatcher are skipped rather than waited for
+    private static final String CLAIM_SQL = "SELECT id, bill_id, attempts FROM water_bill_outbox " +
+            "WHERE status = 'PENDING' AND delivery_method = ? AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_CLAIMED_SQL = "UPDATE water_bill_outbox SET status = 'IN_PROGRESS', " +
+            "attempts = attempts + 1, claimed_by = ?, lease_until = ? WHERE id = ?";
+
+    // Outcome updates only apply while the row is still held by the claim that made the attempt
+    private static final String MARK_SENT_SQL = "UPDATE water_bill_outbox SET status = 'SENT', completed_at = ?, " +
+            "last_error = NULL, lease_until = NULL WHERE id = ? AND claimed_by = ?";
+    private static final String MARK_RETRY_SQL = "UPDATE water_bill_outbox SET status = 'PENDING', next_attempt_at = ?, " +
+            "last_error = ?, claimed_by = NULL, lease_until = NULL WHERE id = ? AND claimed_by = ?";
+    private static final String MARK_FAILED_SQL = "UPDATE water_bill_outbox SET status = 'FAILED', completed_at = ?, " +
+            "last_error = ?, lease_until = NULL WHERE id = ? AND claimed_by = ?";
+    private static final String MARK_BILL_SENT_SQL = "UPDATE water_bills SET sent_at = ?, delivery_status = 'SENT', " +
+            "delivery_message = ?, status = 'SENT', last_modified_date = ? WHERE id = ?";
+    private static final String MARK_BILL_FAILED_SQL = "UPDATE water_bills SET delivery_status = 'FAILED', " +
+            "delivery_message = ?, last_modified_date = ? WHERE id = ?";
+
+    private static final String LOCK_JOB_BILLS_SQL = "SELECT b.id FROM water_bills b WHERE b.id IN " +
+            "(SELECT o.bill_id FROM water_bill_outbox o WHERE o.job_id = ? AND o.status = 'PENDING') ORDER BY b.id FOR UPDATE";
+    private static final String CANCEL_JOB_SQL = "UPDATE water_bill_outbox SET status = 'CANCELLED', completed_at = ? " +
+            "WHERE job_id = ? AND status = 'PENDING'";
+    private static final String CANCEL_BILLS_SQL = "UPDATE water_bills SET delivery_status = 'CANCELLED', last_modified_date = ? " +
+            "WHERE id IN (SELECT o.bill_id FROM water_bill_outbox o WHERE o.job_id = ? AND o.status = 'CANCELLED')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WaterBillTotalsService waterBillTotalsService;
+
+    /**
+     * Queues delivery of the given bills, in the caller's transaction when there is one. Unknown
+     * bills and bills that already have an open delivery over the same channel are left out.
+     *
+     * @param jobId bulk job the rows belong to, or null
+     * @return the number of bills queued
+     */
+    @Transactional
+    public int enqueue(Collection<Long> billIds, DeliveryMethod deliveryMethod, String jobId) {
+        // Sorted so concurrent enqueues lock bills in the same order
+        List<Long> ids = new ArrayList<>(new TreeSet<>(billIds));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int queued = 0;
+        for (int from = 0; from < ids.size(); from += ENQUEUE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ENQUEUE_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<Long> enqueueable = jdbcTemplate.queryForList(String.format(LOCK_BILLS_SQL, placeholders), Long.class,
+                    chunk.toArray());
+            if (enqueueable.isEmpty()) {
+                continue;
+            }
+            List<Object> args = new ArrayList<>(enqueueable);
+            args.add(deliveryMethod.name());
+            String openPlaceholders = String.join(", ", Collections.nCopies(enqueueable.size(), "?"));
+            Set<Long> open = new HashSet<>(jdbcTemplate.queryForList(String.format(OPEN_DELIVERIES_SQL, openPlaceholders),
+                    Long.class, args.toArray()));
+            enqueueable = enqueueable.stream().filter(id -> !open.contains(id)).toList();
+            if (enqueueable.isEmpty()) {
+                continue;
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, enqueueable, enqueueable.size(), (ps, billId) -> {
+                ps.setLong(1, billId);
+                ps.setString(2, deliveryMethod.name());
+                ps.setString(3, jobId);
+                ps.setTimestamp(4, now);
+                ps.setTimestamp(5, now);
+            });
+            jdbcTemplate.batchUpdate(MARK_BILL_QUEUED_SQL, enqueueable, enqueueable.size(), (ps, billId) -> {
+                ps.setTimestamp(1, now);
+                ps.setLong(2, billId);
+            });
+            queued += enqueueable.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Claims up to {@code limit} due deliveries of one channel. The claim is committed straight away,
+     * so the send happens outside any transaction; if the dispatcher dies, the lease runs out and the
+     * rows go back to the queue.
+     */
+    @Transactional
+    public List<Claim> claim(DeliveryMethod deliveryMethod, int limit, long leaseMs) {
+        LocalDateTime now = LocalDateTime.now();
+        List<long[]> rows = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) ->
+                        new long[]{rs.getLong("id"), rs.getLong("bill_id"), rs.getInt("attempts")},
+                deliveryMethod.name(), Timestamp.valueOf(now), limit);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        String token = UUID.randomUUID().toString();
+        Timestamp leaseUntil = Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000));
+        jdbcTemplate.batchUpdate(MARK_CLAIMED_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, token);
+            ps.setTimestamp(2, leaseUntil);
+            ps.setLong(3, row[0]);
+        });
+        return rows.stream()
+                .map(row -> new Claim(row[0], row[1], (int) row[2] + 1, token))
+                .toList();
+    }
+
+    /**
+     * Writes attempt outcomes to the outbox and the bills in one transaction. An outcome whose
+     * claim has meanwhile lost its lease is dropped, bill included, since a later attempt owns the
+     * delivery now.
+     */
+    @Transactional
+    public void recordOutcomes(List<Outcome> outcomes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // Bills first, in id order, the same lock order as enqueue
+        List<Long> billIds = new ArrayList<>(new TreeSet<>(outcomes.stream().map(o -> o.claim().billId()).toList()));
+        for (int from = 0; from < billIds.size(); from += ENQUEUE_CHUNK_SIZE) {
+            List<Long> chunk = billIds.subList(from, Math.min(from + ENQUEUE_CHUNK_SIZE, billIds.size()));
+            jdbcTemplate.queryForList(String.format(LOCK_BILLS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?"))),
+                    Long.class, chunk.toArray());
+        }
+        List<Outcome> sent = new ArrayList<>();
+        List<Outcome> retries = new ArrayList<>();
+        List<Outcome> failed = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            switch (outcome.status()) {
+                case SENT -> sent.add(outcome);
+                case PENDING -> retries.add(outcome);
+                default -> failed.add(outcome);
+            }
+        }
+        if (!sent.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(MARK_SENT_SQL, sent, sent.size(), (ps, o) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(o.at()));
+                ps.setLong(2, o.claim().id());
+                ps.setString(3, o.claim().token());
+            });
+            sent = stillClaimed(sent, counts);
+        }
+        if (!sent.isEmpty()) {
+            waterBillTotalsService.statusChanging(sent.stream().map(o -> o.claim().billId()).toList(), WaterBillStatus.SENT);
+            jdbcTemplate.batchUpdate(MARK_BILL_SENT_SQL, sent, sent.size(), (ps, o) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(o.at()));
+                ps.setString(2, o.message());
+                ps.setTimestamp(3, now);
+                ps.setLong(4, o.claim().billId());
+            });
+        }
+        if (!retries.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_RETRY_SQL, retries, retries.size(), (ps, o) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(o.at()));
+                ps.setString(2, truncate(o.message()));
+                ps.setLong(3, o.claim().id());
+                ps.setString(4, o.claim().token());
+            });
+        }
+        if (!failed.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failed, failed.size(), (ps, o) -> {
+                ps.setTimestamp(1, Timestamp.valueOf(o.at()));
+                ps.setString(2, truncate(o.message()));
+                ps.setLong(3, o.claim().id());
+                ps.setString(4, o.claim().token());
+            });
+            failed = stillClaimed(failed, counts);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_BILL_FAILED_SQL, failed, failed.size(), (ps, o) -> {
+                ps.setString(1, o.message());
+                ps.setTimestamp(2, now);
+                ps.setLong(3, o.claim().billId());
+            });
+        }
+    }
+
+    /**
+     * Cancels the job's deliveries that have not been claimed yet.
+     *
+     * @return the number of deliveries cancelled
+     */
+    @Transactional
+    public int cancelJob(String jobId) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.queryForList(LOCK_JOB_BILLS_SQL, Long.class, jobId);
+        int cancelled = jdbcTemplate.update(CANCEL_JOB_SQL, now, jobId);
+        if (cancelled > 0) {
+            jdbcTemplate.update(CANCEL_BILLS_SQL, now, jobId);
+        }
+        return cancelled;
+    }
+
+    // Outcomes whose token-guarded outbox update matched; a count of 0 means the lease was lost
+    private static List<Outcome> stillClaimed(List<Outcome> outcomes, int[][] counts) {
+        List<Outcome> claimed = new ArrayList<>();
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    claimed.add(outcomes.get(i));
+                }
+                i++;
+            }
+        }
+        return claimed;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    /**
+     * A claimed delivery; {@code attempt} counts this attempt.
+     */
+    public record Claim(long id, long billId, int attempt, String token) {
+    }
+
+    /**
+     * Result of one attempt: SENT, PENDING to retry at {@code at}, or FAILED for good.
+     */
+    public record Outcome(Claim claim, WaterBillOutboxStatus status, String message, LocalDateTime at) {
+    }
+}
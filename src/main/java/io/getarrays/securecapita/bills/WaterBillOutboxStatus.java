@@ -0,0 +1,19 @@
+package io.getarrays.securecapita.bills;
+
+public enum WaterBillOutboxStatus {
+    PENDING("Pending"),
+    IN_PROGRESS("In Progress"),
+    SENT("Sent"),
+    FAILED("Failed"),
+    CANCELLED("Cancelled");
+
+    private final String displayName;
+
+    WaterBillOutboxStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,150 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves pending and sent bills past their due date to OVERDUE. The bills are walked in id order in
+ * chunks, each in a short transaction of its own that locks the chunk, updates it with one
+ * statement, adjusts the running totals and appends the bills to the status change feed. Bills
+ * locked by another transaction are skipped rather than waited for and are picked up by the next
+ * sweep, so a sweep never holds locks for long or queues behind users editing bills.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaterBillOverdueSweeper {
+
+    private static final int MAX_FEED_PAGE = 1000;
+    // Recorded as the last modifier of swept bills; the nightly sweep runs without a signed-in user
+    private static final String SWEEP_AUDITOR = "overdue-sweep";
+
+    private static final String CLAIM_CHUNK_SQL = "SELECT id FROM water_bills " +
+            "WHERE status IN ('PENDING', 'SENT') AND due_date < ? AND id > ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String MARK_OVERDUE_SQL = "UPDATE water_bills SET status = 'OVERDUE', last_modified_by = ?, " +
+            "last_modified_date = ? WHERE id IN (%s)";
+    // Run before the update so the feed records the status each bill came from
+    private static final String INSERT_CHANGES_SQL = "INSERT INTO water_bill_status_changes (bill_id, from_status, " +
+            "to_status, changed_at) SELECT id, status, 'OVERDUE', ? FROM water_bills WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final WaterBillTotalsService waterBillTotalsService;
+    private final WaterBillStatusChangeRepository waterBillStatusChangeRepository;
+
+    @Value("${water-bills.overdue-sweep.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${water-bills.overdue-sweep.feed-retention-days:30}")
+    private int feedRetentionDays;
+
+    // Longer than any transaction that writes feed entries runs, plus the clock skew between nodes
+    @Value("${water-bills.overdue-sweep.feed-settle-seconds:30}")
+    private int feedSettleSeconds;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    @Scheduled(cron = "${water-bills.overdue-sweep.cron:0 5 0 * * *}")
+    public void scheduledSweep() {
+        sweep();
+    }
+
+    /**
+     * Runs one sweep unless one is already running on this node.
+     *
+     * @return the number of bills marked overdue, or -1 when a sweep was already running
+     */
+    public int sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            log.info("Overdue sweep already running, skipping");
+            return -1;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            LocalDate today = LocalDate.now();
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            long lastId = 0;
+            int swept = 0;
+            int chunks = 0;
+            while (true) {
+                long afterId = lastId;
+                long[] result = transactionTemplate.execute(status -> sweepChunk(today, afterId));
+                if (result == null || result[1] == 0) {
+                    break;
+                }
+                swept += (int) result[0];
+                lastId = result[1];
+                chunks++;
+            }
+            log.info("Overdue sweep marked {} water bills overdue in {} chunks in {} ms", swept, chunks,
+                    System.currentTimeMillis() - started);
+            return swept;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Bills that became overdue after the given feed cursor, oldest first. Feed ids are taken when an
+     * entry is written but only become visible when its transaction commits, so a lower id can show
+     * up after a higher one. The page therefore stops at the first entry younger than the settle
+     * window, and the cursor never moves past an id that may still be committed.
+     */
+    public Map<String, Object> getOverdueFeed(long afterId, int limit) {
+        List<WaterBillStatusChange> changes = waterBillStatusChangeRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+                PageRequest.of(0, Math.max(1, Math.min(limit, MAX_FEED_PAGE))));
+        LocalDateTime settled = LocalDateTime.now().minusSeconds(feedSettleSeconds);
+        List<Long> billIds = new ArrayList<>();
+        long cursor = afterId;
+        for (WaterBillStatusChange change : changes) {
+            if (change.getChangedAt().isAfter(settled)) {
+                break;
+            }
+            billIds.add(change.getBillId());
+            cursor = change.getId();
+        }
+        return Map.of("billIds", billIds, "cursor", cursor);
+    }
+
+    @Scheduled(cron = "${water-bills.overdue-sweep.feed-cleanup-cron:0 45 3 * * *}")
+    public void deleteOldFeedEntries() {
+        int deleted = waterBillStatusChangeRepository.deleteChangedBefore(LocalDateTime.now().minusDays(feedRetentionDays));
+        log.info("Deleted {} water bill status change feed entries", deleted);
+    }
+
+    // Returns the number of bills marked overdue and the last id seen, which is 0 when nothing was left
+    private long[] sweepChunk(LocalDate today, long afterId) {
+        List<Long> ids = jdbcTemplate.queryForList(CLAIM_CHUNK_SQL, Long.class, Date.valueOf(today), afterId, chunkSize);
+        if (ids.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(now);
+        args.addAll(ids);
+        waterBillTotalsService.statusChanging(ids, WaterBillStatus.OVERDUE);
+        jdbcTemplate.update(String.format(INSERT_CHANGES_SQL, placeholders), args.toArray());
+        args.add(0, SWEEP_AUDITOR);
+        int updated = jdbcTemplate.update(String.format(MARK_OVERDUE_SQL, placeholders), args.toArray());
+        return new long[]{updated, ids.get(ids.size() - 1)};
+    }
+}
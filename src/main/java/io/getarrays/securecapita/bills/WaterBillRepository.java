@@ -7,6 +7,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +29,14 @@ public interface WaterBillRepository extends JpaRepository<WaterBill, Long> {
     // Find by status
     List<WaterBill> findByStatus(WaterBillStatus status);
 
+    // Ids only, so a bulk delivery job does not hold every bill in memory
+    @Query("SELECT wb.id FROM WaterBill wb WHERE wb.status = :status ORDER BY wb.id")
+    List<Long> findIdsByStatus(@Param("status") WaterBillStatus status);
+
+    // Bills with everything the delivery formatters read, for use outside a persistence context
+    @Query("SELECT wb FROM WaterBill wb LEFT JOIN FETCH wb.customerAddress ca LEFT JOIN FETCH ca.townAddress WHERE wb.id IN :ids")
+    List<WaterBill> findForDeliveryByIdIn(@Param("ids") Collection<Long> ids);
+
     // Find by delivery method
     List<WaterBill> findByDeliveryMethod(DeliveryMethod deliveryMethod);
 
@@ -96,4 +105,8 @@ public interface WaterBillRepository extends JpaRepository<WaterBill, Long> {
 
     // Check if meter number exists
     boolean existsByMeterNumber(String meterNumber);
+
+    // Check if the customer's meter is already billed for the period
+    boolean existsByCustomerAddress_IdAndMeterNumberAndBillingPeriodStart(Long customerAddressId, String meterNumber,
+                                                                          LocalDate billingPeriodStart);
 } 
\ No newline at end of file
@@ -14,13 +14,14 @@ public interface WaterBillService {
     WaterBill updateWaterBill(Long id, WaterBill waterBill);
     void deleteWaterBill(Long id);
 
-    // Bill delivery methods
+    // Bill delivery methods; sends only queue, true means a delivery was newly queued
     boolean sendWaterBillToWhatsApp(Long billId);
     boolean sendWaterBillToWhatsApp(String billNumber);
     boolean sendWaterBillToAddress(Long billId);
     boolean sendWaterBillToAddress(String billNumber);
     boolean sendWaterBill(Long billId, DeliveryMethod deliveryMethod);
     boolean sendWaterBill(String billNumber, DeliveryMethod deliveryMethod);
+    WaterBillDeliveryOutcome deliverWaterBill(WaterBill waterBill, DeliveryMethod deliveryMethod);
     boolean sendBulkWaterBills(List<Long> billIds, DeliveryMethod deliveryMethod);
     boolean sendBulkWaterBillsByStatus(WaterBillStatus status, DeliveryMethod deliveryMethod);
 
@@ -1,18 +1,18 @@
 package io.getarrays.securecapita.bills;
 
 import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import io.getarrays.securecapita.utils.IdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.UUID;
 import java.util.regex.Pattern;
 
 @Service
@@ -24,6 +24,11 @@ public class WaterBillServiceImpl implements WaterBillService {
     private final WaterBillRepository waterBillRepository;
     private final CustomerAddressRepository customerAddressRepository;
     private final TownAddressRepository townAddressRepository;
+    private final WaterBillOutboxService waterBillOutboxService;
+    private final WaterBillTotalsService waterBillTotalsService;
+    private final WaterBillStatusChangeRepository waterBillStatusChangeRepository;
+    private final IdGenerator idGenerator;
+    static final String BILL_NUMBER_PREFIX = "WB";
     private static final Pattern PHONE_PATTERN = Pattern.compile("^\\+?[1-9]\\d{1,14}$");
     private static final Pattern WHATSAPP_PATTERN = Pattern.compile("^\\+?[1-9]\\d{1,14}$");
 
@@ -38,6 +43,12 @@ public class WaterBillServiceImpl implements WaterBillService {
             throw new IllegalArgumentException("Bill number already exists: " + waterBill.getBillNumber());
         }
 
+        if (waterBill.getCustomerAddress() != null && waterBillRepository.existsByCustomerAddress_IdAndMeterNumberAndBillingPeriodStart(
+                waterBill.getCustomerAddress().getId(), waterBill.getMeterNumber(), waterBill.getBillingPeriodStart())) {
+            throw new IllegalArgumentException("Meter " + waterBill.getMeterNumber() + " is already billed for the period starting "
+                    + waterBill.getBillingPeriodStart());
+        }
+
         // Set default due date if not provided (30 days from billing period end)
         if (waterBill.getDueDate() == null) {
             waterBill.setDueDate(waterBill.getBillingPeriodEnd().plusDays(30));
@@ -49,7 +60,9 @@ public class WaterBillServiceImpl implements WaterBillService {
         }
 
         waterBill.calculateFields();
-        return waterBillRepository.save(waterBill);
+        WaterBill saved = waterBillRepository.save(waterBill);
+        waterBillTotalsService.billCreated(saved);
+        return saved;
     }
 
     // Customer Address specific methods
@@ -98,10 +111,8 @@ public class WaterBillServiceImpl implements WaterBillService {
             return sendWaterBillToWhatsApp(billId);
         }
 
-        String whatsappNumber = waterBill.getWhatsAppNumberForDelivery();
-        String message = formatBillForWhatsApp(waterBill);
-        
-        return sendWhatsAppMessage(whatsappNumber, message, waterBill);
+        // WhatsApp delivery already prefers the customer address number
+        return sendWaterBill(billId, DeliveryMethod.WHATSAPP);
     }
 
     @Override
@@ -118,14 +129,7 @@ public class WaterBillServiceImpl implements WaterBillService {
             return false;
         }
 
-        boolean allSuccess = true;
-        for (WaterBill waterBill : waterBills) {
-            boolean success = sendWaterBill(waterBill.getId(), deliveryMethod);
-            if (!success) {
-                allSuccess = false;
-            }
-        }
-        return allSuccess;
+        return sendBulkWaterBills(waterBills.stream().map(WaterBill::getId).toList(), deliveryMethod);
     }
 
     @Override
@@ -200,7 +204,8 @@ public class WaterBillServiceImpl implements WaterBillService {
     @Override
     public WaterBill updateWaterBill(Long id, WaterBill waterBill) {
         WaterBill existingBill = getWaterBillById(id);
-        
+        WaterBillTotalsService.Contribution before = WaterBillTotalsService.Contribution.of(existingBill);
+
         // Update fields
         existingBill.setCustomerName(waterBill.getCustomerName());
         existingBill.setCustomerPhone(waterBill.getCustomerPhone());
@@ -221,15 +226,18 @@ public class WaterBillServiceImpl implements WaterBillService {
         existingBill.setTownAddress(waterBill.getTownAddress());
 
         existingBill.calculateFields();
-        return waterBillRepository.save(existingBill);
+        WaterBill saved = waterBillRepository.saveAndFlush(existingBill);
+        waterBillTotalsService.billChanged(before, saved);
+        return saved;
     }
 
     @Override
     public void deleteWaterBill(Long id) {
-        if (!waterBillRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Water bill not found with id: " + id);
-        }
-        waterBillRepository.deleteById(id);
+        WaterBill waterBill = getWaterBillById(id);
+        WaterBillTotalsService.Contribution before = WaterBillTotalsService.Contribution.of(waterBill);
+        waterBillRepository.delete(waterBill);
+        waterBillRepository.flush();
+        waterBillTotalsService.billDeleted(before);
     }
 
     // Bill delivery methods
@@ -255,54 +263,53 @@ public class WaterBillServiceImpl implements WaterBillService {
         return sendWaterBillToAddress(waterBill.getId());
     }
 
+    /**
+     * Queues the bill in the delivery outbox within the current transaction; the outbox
+     * dispatcher sends it later and records SENT or FAILED in the bill's deliveryStatus.
+     *
+     * @return true when a delivery was queued, false when one over this channel was already open
+     */
     @Override
     public boolean sendWaterBill(Long billId, DeliveryMethod deliveryMethod) {
         WaterBill waterBill = getWaterBillById(billId);
-        
-        try {
-            String message = "";
-            boolean success = false;
-            
-            switch (deliveryMethod) {
-                case WHATSAPP:
-                    message = formatBillForWhatsApp(waterBill);
-                    success = sendWhatsAppMessage(waterBill.getWhatsAppNumberForDelivery(), message, waterBill);
-                    break;
-                case EMAIL:
-                    message = formatBillForEmail(waterBill);
-                    success = sendEmailMessage(waterBill.getCustomerPhoneForDelivery(), message);
-                    break;
-                case SMS:
-                    message = formatBillForSMS(waterBill);
-                    success = sendSMSMessage(waterBill.getCustomerPhoneForDelivery(), message);
-                    break;
-                case POSTAL_MAIL:
-                    message = formatBillForAddress(waterBill);
-                    success = sendPostalMail(waterBill.getFullAddressForDelivery(), message);
-                    break;
-                case HAND_DELIVERY:
-                    message = formatBillForAddress(waterBill);
-                    success = sendHandDelivery(waterBill.getFullAddressForDelivery(), message);
-                    break;
-            }
-            
-            // Update delivery status
-            waterBill.setSentAt(LocalDateTime.now());
-            waterBill.setDeliveryStatus(success ? "SENT" : "FAILED");
-            waterBill.setDeliveryMessage(message);
-            waterBill.setStatus(WaterBillStatus.SENT);
-            waterBillRepository.save(waterBill);
-            
-            log.info("Water bill {} sent via {}: {}", billId, deliveryMethod, success ? "SUCCESS" : "FAILED");
-            return success;
-            
-        } catch (Exception e) {
-            log.error("Error sending water bill {} via {}: {}", billId, deliveryMethod, e.getMessage());
-            waterBill.setDeliveryStatus("FAILED");
-            waterBill.setDeliveryMessage("Error: " + e.getMessage());
-            waterBillRepository.save(waterBill);
-            return false;
+        int queued = waterBillOutboxService.enqueue(List.of(waterBill.getId()), deliveryMethod, null);
+        log.info("Water bill {} {} for delivery via {}", billId, queued > 0 ? "queued" : "already queued", deliveryMethod);
+        return queued > 0;
+    }
+
+    /**
+     * Formats and sends a bill over one channel without touching the database, so the bulk
+     * delivery pipeline can hold no connection while the channel call is in flight.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public WaterBillDeliveryOutcome deliverWaterBill(WaterBill waterBill, DeliveryMethod deliveryMethod) {
+        String message = "";
+        boolean success = false;
+
+        switch (deliveryMethod) {
+            case WHATSAPP:
+                message = formatBillForWhatsApp(waterBill);
+                success = sendWhatsAppMessage(waterBill.getWhatsAppNumberForDelivery(), message, waterBill);
+                break;
+            case EMAIL:
+                message = formatBillForEmail(waterBill);
+                success = sendEmailMessage(waterBill.getCustomerPhoneForDelivery(), message);
+                break;
+            case SMS:
+                message = formatBillForSMS(waterBill);
+                success = sendSMSMessage(waterBill.getCustomerPhoneForDelivery(), message);
+                break;
+            case POSTAL_MAIL:
+                message = formatBillForAddress(waterBill);
+                success = sendPostalMail(waterBill.getFullAddressForDelivery(), message);
+                break;
+            case HAND_DELIVERY:
+                message = formatBillForAddress(waterBill);
+                success = sendHandDelivery(waterBill.getFullAddressForDelivery(), message);
+                break;
         }
+        return new WaterBillDeliveryOutcome(success, message);
     }
 
     @Override
@@ -313,21 +320,14 @@ public class WaterBillServiceImpl implements WaterBillService {
 
     @Override
     public boolean sendBulkWaterBills(List<Long> billIds, DeliveryMethod deliveryMethod) {
-        boolean allSuccess = true;
-        for (Long billId : billIds) {
-            boolean success = sendWaterBill(billId, deliveryMethod);
-            if (!success) {
-                allSuccess = false;
-            }
-        }
-        return allSuccess;
+        int queued = waterBillOutboxService.enqueue(billIds, deliveryMethod, null);
+        log.info("Queued {} of {} water bills for delivery via {}", queued, billIds.size(), deliveryMethod);
+        return queued > 0;
     }
 
     @Override
     public boolean sendBulkWaterBillsByStatus(WaterBillStatus status, DeliveryMethod deliveryMethod) {
-        List<WaterBill> bills = getWaterBillsByStatus(status);
-        List<Long> billIds = bills.stream().map(WaterBill::getId).toList();
-        return sendBulkWaterBills(billIds, deliveryMethod);
+        return sendBulkWaterBills(waterBillRepository.findIdsByStatus(status), deliveryMethod);
     }
 
     // Search and filter methods
@@ -427,8 +427,11 @@ public class WaterBillServiceImpl implements WaterBillService {
     @Override
     public WaterBill calculateBillAmounts(Long billId) {
         WaterBill waterBill = getWaterBillById(billId);
+        WaterBillTotalsService.Contribution before = WaterBillTotalsService.Contribution.of(waterBill);
         waterBill.calculateFields();
-        return waterBillRepository.save(waterBill);
+        WaterBill saved = waterBillRepository.saveAndFlush(waterBill);
+        waterBillTotalsService.billChanged(before, saved);
+        return saved;
     }
 
     @Override
@@ -440,8 +443,11 @@ public class WaterBillServiceImpl implements WaterBillService {
     @Override
     public WaterBill markAsPaid(Long billId) {
         WaterBill waterBill = getWaterBillById(billId);
+        WaterBillTotalsService.Contribution before = WaterBillTotalsService.Contribution.of(waterBill);
         waterBill.setStatus(WaterBillStatus.PAID);
-        return waterBillRepository.save(waterBill);
+        WaterBill saved = waterBillRepository.saveAndFlush(waterBill);
+        waterBillTotalsService.billChanged(before, saved);
+        return saved;
     }
 
     @Override
@@ -453,8 +459,16 @@ public class WaterBillServiceImpl implements WaterBillService {
     @Override
     public WaterBill markAsOverdue(Long billId) {
         WaterBill waterBill = getWaterBillById(billId);
+        WaterBillTotalsService.Contribution before = WaterBillTotalsService.Contribution.of(waterBill);
+        WaterBillStatus fromStatus = waterBill.getStatus();
         waterBill.setStatus(WaterBillStatus.OVERDUE);
-        return waterBillRepository.save(waterBill);
+        WaterBill saved = waterBillRepository.saveAndFlush(waterBill);
+        waterBillTotalsService.billChanged(before, saved);
+        if (fromStatus != WaterBillStatus.OVERDUE) {
+            waterBillStatusChangeRepository.save(new WaterBillStatusChange(null, billId, fromStatus,
+                    WaterBillStatus.OVERDUE, LocalDateTime.now()));
+        }
+        return saved;
     }
 
     @Override
@@ -495,8 +509,7 @@ public class WaterBillServiceImpl implements WaterBillService {
 
     @Override
     public BigDecimal sumTotalAmountByStatus(WaterBillStatus status) {
-        BigDecimal sum = waterBillRepository.sumTotalAmountByStatus(status);
-        return sum != null ? sum : BigDecimal.ZERO;
+        return waterBillTotalsService.sumTotalAmount(List.of(status));
     }
 
     @Override
@@ -507,9 +520,8 @@ public class WaterBillServiceImpl implements WaterBillService {
 
     @Override
     public BigDecimal getTotalOutstandingAmount() {
-        return sumTotalAmountByStatus(WaterBillStatus.PENDING)
-                .add(sumTotalAmountByStatus(WaterBillStatus.SENT))
-                .add(sumTotalAmountByStatus(WaterBillStatus.OVERDUE));
+        return waterBillTotalsService.sumTotalAmount(
+                List.of(WaterBillStatus.PENDING, WaterBillStatus.SENT, WaterBillStatus.OVERDUE));
     }
 
     @Override
@@ -519,24 +531,12 @@ public class WaterBillServiceImpl implements WaterBillService {
 
     @Override
     public BigDecimal getAverageBillAmount() {
-        List<WaterBill> allBills = getAllWaterBills();
-        if (allBills.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        BigDecimal total = allBills.stream()
-                .map(WaterBill::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        return total.divide(BigDecimal.valueOf(allBills.size()), 2, RoundingMode.HALF_UP);
+        return waterBillTotalsService.getAverageAmount();
     }
 
     @Override
     public BigDecimal getTotalConsumption() {
-        List<WaterBill> allBills = getAllWaterBills();
-        return allBills.stream()
-                .map(WaterBill::getConsumption)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return waterBillTotalsService.getTotalConsumption();
     }
 
     // Validation methods
@@ -576,9 +576,7 @@ public class WaterBillServiceImpl implements WaterBillService {
     // Utility methods
     @Override
     public String generateBillNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        return "WB" + timestamp + random;
+        return idGenerator.nextCode(BILL_NUMBER_PREFIX);
     }
 
     @Override
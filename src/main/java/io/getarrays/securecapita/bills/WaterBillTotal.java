@@ -0,0 +1,56 @@
+package io.getarrays.securecapita.bills;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Running totals of the water bills in one bucket of status, delivery method, town and billing
+ * month. Rows are kept up to date in the same transaction as the bill changes that move them, so
+ * reports read a handful of rows instead of every bill. Bills without a town are counted under
+ * town id 0, which keeps the unique key free of nulls.
+ */
+@Entity
+@Table(name = "water_bill_totals", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_water_bill_totals_bucket",
+                columnNames = {"status", "delivery_method", "town_address_id", "billing_year", "billing_month"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaterBillTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WaterBillStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delivery_method", nullable = false, length = 20)
+    private DeliveryMethod deliveryMethod;
+
+    @Column(name = "town_address_id", nullable = false)
+    private long townAddressId;
+
+    // Month of the billing period start
+    @Column(name = "billing_year", nullable = false)
+    private int billingYear;
+
+    @Column(name = "billing_month", nullable = false)
+    private int billingMonth;
+
+    @Column(name = "bill_count", nullable = false)
+    private long billCount;
+
+    @Column(name = "total_amount", nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(name = "total_consumption", nullable = false)
+    private BigDecimal totalConsumption;
+}
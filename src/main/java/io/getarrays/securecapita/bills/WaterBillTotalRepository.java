@@ -0,0 +1,37 @@
+package io.getarrays.securecapita.bills;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WaterBillTotalRepository extends JpaRepository<WaterBillTotal, Long> {
+
+    // Each query returns the group key(s) followed by bill count, total amount and total consumption
+    @Query("SELECT SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) FROM WaterBillTotal t")
+    List<Object[]> sumAll();
+
+    @Query("SELECT SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) FROM WaterBillTotal t " +
+            "WHERE t.status IN :statuses")
+    List<Object[]> sumByStatusIn(@Param("statuses") Collection<WaterBillStatus> statuses);
+
+    @Query("SELECT t.status, SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) FROM WaterBillTotal t " +
+            "GROUP BY t.status")
+    List<Object[]> sumGroupByStatus();
+
+    @Query("SELECT t.deliveryMethod, SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) FROM WaterBillTotal t " +
+            "GROUP BY t.deliveryMethod")
+    List<Object[]> sumGroupByDeliveryMethod();
+
+    @Query("SELECT t.townAddressId, SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) FROM WaterBillTotal t " +
+            "GROUP BY t.townAddressId")
+    List<Object[]> sumGroupByTown();
+
+    @Query("SELECT t.billingYear, t.billingMonth, SUM(t.billCount), SUM(t.totalAmount), SUM(t.totalConsumption) " +
+            "FROM WaterBillTotal t GROUP BY t.billingYear, t.billingMonth ORDER BY t.billingYear, t.billingMonth")
+    List<Object[]> sumGroupByMonth();
+}
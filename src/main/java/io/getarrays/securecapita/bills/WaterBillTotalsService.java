@@ -0,0 +1,380 @@
+package io.getarrays.securecapita.bills;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the water bill running totals in step with the bills. Every path that creates a bill,
+ * changes its status or amounts, or deletes it reports the change here inside its own transaction,
+ * and the matching bucket rows are adjusted by delta in that transaction. Reports then read the
+ * totals table, whose size depends on the number of towns and months rather than on the number
+ * of bills.
+ * <p>
+ * Bucket rows are created in a short transaction of their own before they are first adjusted, so
+ * concurrent writers only ever update existing rows, and always in the same order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaterBillTotalsService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final Set<WaterBillStatus> OUTSTANDING_STATUSES =
+            EnumSet.of(WaterBillStatus.PENDING, WaterBillStatus.SENT, WaterBillStatus.OVERDUE);
+
+    private static final String INSERT_BUCKET_SQL = "INSERT INTO water_bill_totals (status, delivery_method, " +
+            "town_address_id, billing_year, billing_month, bill_count, total_amount, total_consumption) " +
+            "VALUES (?, ?, ?, ?, ?, 0, 0, 0)";
+    private static final String INSERT_BUCKET_WITH_DELTA_SQL = "INSERT INTO water_bill_totals (status, delivery_method, " +
+            "town_address_id, billing_year, billing_month, bill_count, total_amount, total_consumption) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ADJUST_BUCKET_SQL = "UPDATE water_bill_totals SET bill_count = bill_count + ?, " +
+            "total_amount = total_amount + ?, total_consumption = total_consumption + ? " +
+            "WHERE status = ? AND delivery_method = ? AND town_address_id = ? AND billing_year = ? AND billing_month = ?";
+
+    // Locks the bills whose status is about to change so their buckets cannot move underneath
+    private static final String LOCK_FOR_STATUS_SQL = "SELECT status, delivery_method, town_address_id, " +
+            "billing_period_start, total_amount, consumption FROM water_bills WHERE id IN (%s) AND status <> ? FOR UPDATE";
+
+    private static final String DELETE_ALL_SQL = "DELETE FROM water_bill_totals";
+    private static final String REBUILD_SQL = "INSERT INTO water_bill_totals (status, delivery_method, town_address_id, " +
+            "billing_year, billing_month, bill_count, total_amount, total_consumption) " +
+            "SELECT status, delivery_method, COALESCE(town_address_id, 0), EXTRACT(YEAR FROM billing_period_start), " +
+            "EXTRACT(MONTH FROM billing_period_start), COUNT(*), SUM(total_amount), SUM(consumption) FROM water_bills " +
+            "GROUP BY status, delivery_method, COALESCE(town_address_id, 0), EXTRACT(YEAR FROM billing_period_start), " +
+            "EXTRACT(MONTH FROM billing_period_start)";
+
+    private static final Comparator<Bucket> BUCKET_ORDER = Comparator.comparing(Bucket::status)
+            .thenComparing(Bucket::deliveryMethod)
+            .thenComparingLong(Bucket::townAddressId)
+            .thenComparingInt(Bucket::billingYear)
+            .thenComparingInt(Bucket::billingMonth);
+
+    private final WaterBillTotalRepository waterBillTotalRepository;
+    private final TownAddressRepository townAddressRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // Buckets known to have a row; a stale entry only costs an insert in the caller's transaction
+    private final Set<Bucket> knownBuckets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Fills the totals from the bills on first start, when bills exist but no totals do yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (waterBillTotalRepository.count() > 0) {
+            return;
+        }
+        Long bills = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM water_bills", Long.class);
+        if (bills != null && bills > 0) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> rebuildTotals());
+            log.info("Built water bill running totals from {} existing bills", bills);
+        }
+    }
+
+    @Transactional
+    public void billCreated(WaterBill bill) {
+        Deltas deltas = new Deltas();
+        deltas.add(Contribution.of(bill), 1);
+        apply(deltas);
+    }
+
+    /**
+     * Bills inserted outside JPA, which have no town entity set.
+     */
+    @Transactional
+    public void billsCreated(Collection<WaterBill> bills, long townAddressId) {
+        Deltas deltas = new Deltas();
+        for (WaterBill bill : bills) {
+            deltas.add(Contribution.of(bill, townAddressId), 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * @param before the bill's contribution taken before it was modified; unchanged bills cancel out
+     */
+    @Transactional
+    public void billChanged(Contribution before, WaterBill after) {
+        Deltas deltas = new Deltas();
+        deltas.add(before, -1);
+        deltas.add(Contribution.of(after), 1);
+        apply(deltas);
+    }
+
+    @Transactional
+    public void billDeleted(Contribution before) {
+        Deltas deltas = new Deltas();
+        deltas.add(before, -1);
+        apply(deltas);
+    }
+
+    /**
+     * Moves the given bills to {@code status} in the totals. Call it in the transaction that sets
+     * the status with SQL, before the update; the bills stay locked until that transaction ends.
+     */
+    @Transactional
+    public void statusChanging(Collection<Long> billIds, WaterBillStatus status) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(billIds));
+        Deltas deltas = new Deltas();
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            String sql = String.format(LOCK_FOR_STATUS_SQL, String.join(", ", Collections.nCopies(chunk.size(), "?")));
+            List<Object> args = new ArrayList<>(chunk);
+            args.add(status.name());
+            jdbcTemplate.query(sql, rs -> {
+                WaterBillStatus current = WaterBillStatus.valueOf(rs.getString("status"));
+                DeliveryMethod deliveryMethod = DeliveryMethod.valueOf(rs.getString("delivery_method"));
+                LocalDate periodStart = rs.getDate("billing_period_start").toLocalDate();
+                long townAddressId = rs.getLong("town_address_id");
+                BigDecimal amount = rs.getBigDecimal("total_amount");
+                BigDecimal consumption = rs.getBigDecimal("consumption");
+                deltas.add(new Contribution(Bucket.of(current, deliveryMethod, townAddressId, periodStart), amount, consumption), -1);
+                deltas.add(new Contribution(Bucket.of(status, deliveryMethod, townAddressId, periodStart), amount, consumption), 1);
+            }, args.toArray());
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Recomputes every bucket from the bills in one statement. Bill changes committed while the
+     * rebuild runs may be missed, so run it when billing is quiet.
+     *
+     * @return the number of buckets
+     */
+    @Transactional
+    public int rebuild() {
+        return rebuildTotals();
+    }
+
+    public BigDecimal sumTotalAmount(Collection<WaterBillStatus> statuses) {
+        return amount(first(waterBillTotalRepository.sumByStatusIn(statuses)), 1);
+    }
+
+    public BigDecimal getTotalConsumption() {
+        return amount(first(waterBillTotalRepository.sumAll()), 2);
+    }
+
+    public BigDecimal getAverageAmount() {
+        Object[] all = first(waterBillTotalRepository.sumAll());
+        return average(amount(all, 1), count(all, 0));
+    }
+
+    public WaterBillAggregatesDto getAggregates() {
+        Object[] all = first(waterBillTotalRepository.sumAll());
+        long billCount = count(all, 0);
+        BigDecimal totalAmount = amount(all, 1);
+
+        List<WaterBillAggregatesDto.Group> byStatus = new ArrayList<>();
+        BigDecimal paidAmount = BigDecimal.ZERO;
+        BigDecimal outstandingAmount = BigDecimal.ZERO;
+        for (Object[] row : waterBillTotalRepository.sumGroupByStatus()) {
+            WaterBillStatus status = (WaterBillStatus) row[0];
+            WaterBillAggregatesDto.Group group = toGroup(status.name(), status.getDisplayName(), row, 1);
+            byStatus.add(group);
+            if (status == WaterBillStatus.PAID) {
+                paidAmount = group.getTotalAmount();
+            } else if (OUTSTANDING_STATUSES.contains(status)) {
+                outstandingAmount = outstandingAmount.add(group.getTotalAmount());
+            }
+        }
+
+        List<WaterBillAggregatesDto.Group> byDeliveryMethod = new ArrayList<>();
+        for (Object[] row : waterBillTotalRepository.sumGroupByDeliveryMethod()) {
+            DeliveryMethod method = (DeliveryMethod) row[0];
+            byDeliveryMethod.add(toGroup(method.name(), method.getDisplayName(), row, 1));
+        }
+
+        List<Object[]> townRows = waterBillTotalRepository.sumGroupByTown();
+        Map<Long, String> townNames = new HashMap<>();
+        townAddressRepository.findAllById(townRows.stream().map(row -> (Long) row[0]).toList())
+                .forEach(town -> townNames.put(town.getId(), town.getTownName()));
+        List<WaterBillAggregatesDto.Group> byTown = new ArrayList<>();
+        for (Object[] row : townRows) {
+            Long townAddressId = (Long) row[0];
+            String label = townAddressId == 0 ? "No town" : townNames.getOrDefault(townAddressId, "Town " + townAddressId);
+            byTown.add(toGroup(String.valueOf(townAddressId), label, row, 1));
+        }
+
+        List<WaterBillAggregatesDto.Group> byMonth = new ArrayList<>();
+        for (Object[] row : waterBillTotalRepository.sumGroupByMonth()) {
+            String month = String.format("%04d-%02d", (Integer) row[0], (Integer) row[1]);
+            byMonth.add(toGroup(month, month, row, 2));
+        }
+
+        return WaterBillAggregatesDto.builder()
+                .billCount(billCount)
+                .totalAmount(totalAmount)
+                .totalConsumption(amount(all, 2))
+                .averageAmount(average(totalAmount, billCount))
+                .outstandingAmount(outstandingAmount)
+                .paidAmount(paidAmount)
+                .byStatus(byStatus)
+                .byDeliveryMethod(byDeliveryMethod)
+                .byTown(byTown)
+                .byMonth(byMonth)
+                .build();
+    }
+
+    private int rebuildTotals() {
+        jdbcTemplate.update(DELETE_ALL_SQL);
+        int buckets = jdbcTemplate.update(REBUILD_SQL);
+        knownBuckets.clear();
+        return buckets;
+    }
+
+    private void apply(Deltas deltas) {
+        List<Map.Entry<Bucket, Delta>> changes = deltas.byBucket.entrySet().stream()
+                .filter(entry -> !entry.getValue().isZero())
+                .toList();
+        if (changes.isEmpty()) {
+            return;
+        }
+        changes.forEach(entry -> ensureRow(entry.getKey()));
+        int[] updated = jdbcTemplate.batchUpdate(ADJUST_BUCKET_SQL, changes, changes.size(), (ps, entry) -> {
+            Delta delta = entry.getValue();
+            Bucket bucket = entry.getKey();
+            ps.setLong(1, delta.count);
+            ps.setBigDecimal(2, delta.amount);
+            ps.setBigDecimal(3, delta.consumption);
+            ps.setString(4, bucket.status().name());
+            ps.setString(5, bucket.deliveryMethod().name());
+            ps.setLong(6, bucket.townAddressId());
+            ps.setInt(7, bucket.billingYear());
+            ps.setInt(8, bucket.billingMonth());
+        })[0];
+        for (int i = 0; i < updated.length; i++) {
+            // Row removed by a rebuild since it was cached; only the rebuild's own node forgets its cache
+            if (updated[i] == 0) {
+                Map.Entry<Bucket, Delta> entry = changes.get(i);
+                knownBuckets.remove(entry.getKey());
+                insertWithDelta(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Creates the bucket row in its own transaction, so writers never insert into the unique key concurrently
+    private void ensureRow(Bucket bucket) {
+        if (knownBuckets.contains(bucket)) {
+            return;
+        }
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            requiresNew.executeWithoutResult(status -> jdbcTemplate.update(INSERT_BUCKET_SQL, bucket.status().name(),
+                    bucket.deliveryMethod().name(), bucket.townAddressId(), bucket.billingYear(), bucket.billingMonth()));
+        } catch (DataIntegrityViolationException e) {
+            // Another writer created it first
+        }
+        knownBuckets.add(bucket);
+    }
+
+    private void insertWithDelta(Bucket bucket, Delta delta) {
+        jdbcTemplate.update(INSERT_BUCKET_WITH_DELTA_SQL, bucket.status().name(), bucket.deliveryMethod().name(),
+                bucket.townAddressId(), bucket.billingYear(), bucket.billingMonth(), delta.count, delta.amount,
+                delta.consumption);
+    }
+
+    private static WaterBillAggregatesDto.Group toGroup(String key, String label, Object[] row, int offset) {
+        long billCount = count(row, offset);
+        BigDecimal totalAmount = amount(row, offset + 1);
+        return WaterBillAggregatesDto.Group.builder()
+                .key(key)
+                .label(label)
+                .billCount(billCount)
+                .totalAmount(totalAmount)
+                .totalConsumption(amount(row, offset + 2))
+                .averageAmount(average(totalAmount, billCount))
+                .build();
+    }
+
+    private static Object[] first(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[3] : rows.get(0);
+    }
+
+    private static long count(Object[] row, int index) {
+        return row[index] != null ? ((Number) row[index]).longValue() : 0;
+    }
+
+    private static BigDecimal amount(Object[] row, int index) {
+        return row[index] != null ? (BigDecimal) row[index] : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal average(BigDecimal total, long count) {
+        return count == 0 ? BigDecimal.ZERO : total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * One running-totals row: status, delivery method, town (0 for none) and billing month.
+     */
+    public record Bucket(WaterBillStatus status, DeliveryMethod deliveryMethod, long townAddressId,
+                         int billingYear, int billingMonth) {
+
+        static Bucket of(WaterBillStatus status, DeliveryMethod deliveryMethod, long townAddressId, LocalDate periodStart) {
+            return new Bucket(status, deliveryMethod, townAddressId, periodStart.getYear(), periodStart.getMonthValue());
+        }
+    }
+
+    /**
+     * What one bill adds to the totals. Take it before modifying a bill to report the change.
+     */
+    public record Contribution(Bucket bucket, BigDecimal amount, BigDecimal consumption) {
+
+        public static Contribution of(WaterBill bill) {
+            return of(bill, bill.getTownAddress() != null ? bill.getTownAddress().getId() : 0L);
+        }
+
+        static Contribution of(WaterBill bill, long townAddressId) {
+            return new Contribution(Bucket.of(bill.getStatus(), bill.getDeliveryMethod(), townAddressId,
+                    bill.getBillingPeriodStart()), bill.getTotalAmount(), bill.getConsumption());
+        }
+    }
+
+    private static class Deltas {
+        private final Map<Bucket, Delta> byBucket = new TreeMap<>(BUCKET_ORDER);
+
+        void add(Contribution contribution, int sign) {
+            Delta delta = byBucket.computeIfAbsent(contribution.bucket(), bucket -> new Delta());
+            BigDecimal factor = BigDecimal.valueOf(sign);
+            delta.count += sign;
+            delta.amount = delta.amount.add(contribution.amount().multiply(factor));
+            delta.consumption = delta.consumption.add(contribution.consumption().multiply(factor));
+        }
+    }
+
+    private static class Delta {
+        private long count;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private BigDecimal consumption = BigDecimal.ZERO;
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0 && consumption.signum() == 0;
+        }
+    }
+}
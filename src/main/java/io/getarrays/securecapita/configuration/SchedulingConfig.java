@@ -1,17 +1,38 @@
 package io.getarrays.securecapita.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 /**
  * Configuration class to enable scheduling for repetitive task reminders
- * 
+ * <p>
+ * Scheduled jobs get a pool of their own rather than sharing a single thread, so a long job such
+ * as recording tiering or the overdue sweep does not hold up short periodic ones. Without this
+ * the jobs would run on Spring Boot's single-threaded scheduler, or on the WebSocket broker's.
+ *
  * @author SecureCapita
  * @version 1.0
  * @since 2024
  */
 @Configuration
 @EnableScheduling
-public class SchedulingConfig {
-    // This enables the @Scheduled annotation functionality
-} 
\ No newline at end of file
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    @Value("${spring.task.scheduling.pool.size:8}")
+    private int poolSize;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+        taskRegistrar.setTaskScheduler(scheduler);
+    }
+}
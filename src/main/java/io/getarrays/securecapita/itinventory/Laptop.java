@@ -20,7 +20,7 @@ import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
 
 @Entity
 @Table(name = "laptop")
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, LaptopCountListener.class, LaptopSearchIndexListener.class})
 @Getter
 @Setter
 @ToString
@@ -127,6 +127,13 @@ public class Laptop   extends Auditable<String> {
     @JsonIgnore
     private List<Antivirus> antivirusList = new ArrayList<>();
 
+    // Values last counted by LaptopCountListener, so updates can move the laptop between counter buckets
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private LaptopCountKey countKey;
+
     @PrePersist
     protected void onCreate() {
         if (status == null) {
@@ -1,10 +1,12 @@
 package io.getarrays.securecapita.itinventory;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +22,34 @@ public interface LaptopAcknowledgmentRepository extends JpaRepository<LaptopAckn
     
     @Query("SELECT la FROM LaptopAcknowledgment la WHERE la.acknowledgedBy.id = :userId")
     List<LaptopAcknowledgment> findByAcknowledgedByUserId(@Param("userId") Long userId);
+
+    // Latest acknowledgment per laptop (highest id) with the acknowledging user, for listing endpoints
+    @Query("SELECT la FROM LaptopAcknowledgment la JOIN FETCH la.acknowledgedBy WHERE la.id IN " +
+           "(SELECT MAX(a.id) FROM LaptopAcknowledgment a WHERE a.laptop.id IN :laptopIds GROUP BY a.laptop.id)")
+    List<LaptopAcknowledgment> findLatestByLaptopIdIn(@Param("laptopIds") Collection<Long> laptopIds);
+
+    // Signature audit rows: id, laptop id, serial number, issued to, station, signer id, signer email, notes, signature
+    @Query("SELECT la.id, l.id, l.serialNumber, l.issuedTo, l.station, u.id, u.email, la.notes, la.signature " +
+           "FROM LaptopAcknowledgment la JOIN la.laptop l LEFT JOIN la.acknowledgedBy u " +
+           "WHERE la.id > :afterId ORDER BY la.id")
+    List<Object[]> findSignatureRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT la.id, l.id, l.serialNumber, l.issuedTo, l.station, u.id, u.email, la.notes, la.signature " +
+           "FROM LaptopAcknowledgment la JOIN la.laptop l LEFT JOIN la.acknowledgedBy u " +
+           "WHERE la.id IN :ids ORDER BY la.id")
+    List<Object[]> findSignatureRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Signature statistics aggregates: count, count with a signature hash, latest signature timestamp
+    @Query("SELECT COUNT(la), SUM(CASE WHEN la.signatureHash IS NOT NULL THEN 1 ELSE 0 END), MAX(la.signatureTimestamp) " +
+           "FROM LaptopAcknowledgment la WHERE la.acknowledgedBy.id = :userId")
+    List<Object[]> aggregateSignaturesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT COUNT(la), SUM(CASE WHEN la.signatureHash IS NOT NULL THEN 1 ELSE 0 END), MAX(la.signatureTimestamp) " +
+           "FROM LaptopAcknowledgment la")
+    List<Object[]> aggregateSignatures();
+
+    // Same aggregates per laptop station; the station is the last column
+    @Query("SELECT COUNT(la), SUM(CASE WHEN la.signatureHash IS NOT NULL THEN 1 ELSE 0 END), MAX(la.signatureTimestamp), l.station " +
+           "FROM LaptopAcknowledgment la JOIN la.laptop l GROUP BY l.station")
+    List<Object[]> aggregateSignaturesByStation();
 }
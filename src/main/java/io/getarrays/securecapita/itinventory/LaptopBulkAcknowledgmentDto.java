@@ -0,0 +1,33 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for acknowledging several pending laptops at once with a single signature
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaptopBulkAcknowledgmentDto {
+
+    @NotEmpty(message = "At least one laptop id is required")
+    @Size(max = 1000, message = "No more than 1000 laptops can be acknowledged at once")
+    private List<Long> laptopIds;
+
+    // Signature and notes applied to every acknowledged laptop
+    @Valid
+    @NotNull(message = "Acknowledgment details are required")
+    private LaptopAcknowledgmentDto acknowledgment;
+}
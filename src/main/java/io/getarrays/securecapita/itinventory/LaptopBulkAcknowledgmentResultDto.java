@@ -0,0 +1,42 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the outcome of a bulk acknowledgment, with one result per requested laptop
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaptopBulkAcknowledgmentResultDto {
+
+    private int requestedCount;
+    private int acknowledgedCount;
+    private int failedCount;
+
+    @Builder.Default
+    private List<LaptopResult> results = new ArrayList<>();
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LaptopResult {
+        private Long laptopId;
+        private String serialNumber;
+        private String station;
+        private boolean acknowledged;
+        private Long acknowledgmentId; // Set when acknowledged
+        private String message;        // Reason when not acknowledged
+    }
+}
@@ -8,10 +8,14 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 import io.getarrays.securecapita.antivirus.Antivirus;
@@ -32,6 +36,9 @@ public class LaptopController {
     @Autowired
     private LaptopService laptopService;
 
+    @Autowired
+    private LaptopImportService laptopImportService;
+
     @PostMapping("/create")
     public ResponseEntity<CustomMessage> createLaptop(@AuthenticationPrincipal UserDTO currentUser,
                                                     @RequestBody @Valid LaptopDto laptopDto) throws Exception {
@@ -39,6 +46,22 @@ public class LaptopController {
                 laptopDto)));
     }
 
+    // Bulk import from a .csv or .xlsx file; rejected rows are reported with their row number
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CustomMessage> importLaptops(@AuthenticationPrincipal UserDTO currentUser,
+                                                       @RequestParam("file") MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new CustomMessage("Please upload a non-empty .csv or .xlsx file"));
+        }
+        try {
+            LaptopImportResultDto result = laptopImportService.importLaptops(currentUser, file);
+            return ResponseEntity.ok(new CustomMessage("Imported " + result.getImportedCount() + " of "
+                    + result.getTotalRows() + " laptops", result));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(new CustomMessage("Invalid import file: " + e.getMessage()));
+        }
+    }
+
     // Handle update requests specifically
     @GetMapping("/update")
     public ResponseEntity<CustomMessage> handleUpdateRequest() {
@@ -249,6 +272,56 @@ public class LaptopController {
         return ResponseEntity.ok(laptopService.getAllLaptops(currentUser));
     }
 
+    /**
+     * Cursor-paginated variant of the list endpoints, ordered by id.
+     * Filter by status and/or station; pass nextCursor from the response as afterId.
+     * Endpoint: GET /laptop/page?afterId=&size=&status=&station=
+     */
+    @GetMapping("/page")
+    public ResponseEntity<LaptopCursorPageDto> getLaptopsPage(@RequestParam(value = "afterId", required = false) Long afterId,
+                                                              @RequestParam(value = "size", defaultValue = "50") int size,
+                                                              @RequestParam(value = "status", required = false) LaptopStatus status,
+                                                              @RequestParam(value = "station", required = false) String station) {
+        return ResponseEntity.ok(laptopService.getLaptopsPage(afterId, size, status, station));
+    }
+
+    @GetMapping("/status/{status}/page")
+    public ResponseEntity<LaptopCursorPageDto> getLaptopsByStatusPage(@PathVariable("status") LaptopStatus status,
+                                                                      @RequestParam(value = "afterId", required = false) Long afterId,
+                                                                      @RequestParam(value = "size", defaultValue = "50") int size) {
+        return ResponseEntity.ok(laptopService.getLaptopsPage(afterId, size, status, null));
+    }
+
+    @GetMapping("/station/{station}/page")
+    public ResponseEntity<LaptopCursorPageDto> getLaptopsByStationPage(@PathVariable("station") String station,
+                                                                       @RequestParam(value = "afterId", required = false) Long afterId,
+                                                                       @RequestParam(value = "size", defaultValue = "50") int size) {
+        return ResponseEntity.ok(laptopService.getLaptopsPage(afterId, size, null, station));
+    }
+
+    /**
+     * Search laptops whose field contains the text, ignoring case
+     * Endpoint: GET /laptop/search?field=SERIAL_NUMBER&text=&size=
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<LaptopDto>> searchLaptops(@RequestParam("field") LaptopTrigramIndex.Field field,
+                                                         @RequestParam("text") String text,
+                                                         @RequestParam(value = "size", defaultValue = "50") int size) {
+        return ResponseEntity.ok(laptopService.searchLaptops(field, text, size));
+    }
+
+    /**
+     * Export laptops as newline-delimited JSON, streamed while rows are read
+     * Endpoint: GET /laptop/export?status=&station=
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLaptops(@RequestParam(value = "status", required = false) LaptopStatus status,
+                                                               @RequestParam(value = "station", required = false) String station) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(laptopService.exportLaptops(status, station));
+    }
+
     @GetMapping("/issued")
     public ResponseEntity<List<LaptopDto>> getIssuedLaptops(@AuthenticationPrincipal UserDTO currentUser) {
         return ResponseEntity.ok(laptopService.getIssuedLaptops(currentUser));
@@ -342,6 +415,17 @@ public class LaptopController {
         ));
     }
 
+    // Station admin acknowledges several pending laptops at once; each laptop gets its own result
+    @PostMapping("/acknowledge-issuance/bulk")
+    public ResponseEntity<CustomMessage> acknowledgeLaptopIssuances(@AuthenticationPrincipal UserDTO currentUser,
+                                                                   @RequestBody @Valid LaptopBulkAcknowledgmentDto bulkDto) {
+        LaptopBulkAcknowledgmentResultDto result = laptopService.acknowledgeLaptopIssuances(currentUser, bulkDto);
+        return ResponseEntity.ok(new CustomMessage(
+                "Acknowledged " + result.getAcknowledgedCount() + " of " + result.getRequestedCount() + " laptops",
+                result
+        ));
+    }
+
     // Get laptops pending acknowledgment for a station
     @GetMapping("/pending-acknowledgment/{station}")
     public ResponseEntity<List<LaptopDto>> getLaptopsPendingAcknowledgment(@AuthenticationPrincipal UserDTO currentUser,
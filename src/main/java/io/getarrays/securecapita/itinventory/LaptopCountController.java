@@ -43,7 +43,7 @@ public class LaptopCountController {
      */
     @GetMapping("/total-laptops")
     public ResponseEntity<Map<String, Long>> getTotalLaptops() {
-        long totalLaptops = laptopRepository.count();
+        long totalLaptops = laptopCountService.getTotalCount();
         Map<String, Long> result = new java.util.HashMap<>();
         result.put("totalLaptops", totalLaptops);
         return ResponseEntity.ok(result);
@@ -85,6 +85,18 @@ public class LaptopCountController {
         ));
     }
 
+    /**
+     * Get count by station
+     */
+    @GetMapping("/station/{station}")
+    public ResponseEntity<Map<String, Object>> getCountByStation(@PathVariable String station) {
+        long count = laptopCountService.getCountByStation(station);
+        return ResponseEntity.ok(Map.of(
+            "station", station,
+            "count", count
+        ));
+    }
+
     /**
      * Get count by designation
      */
@@ -348,18 +360,29 @@ public class LaptopCountController {
     }
 
     /**
-     * Get total antivirus, issued laptops count, and available laptops count
+     * Get every dashboard count in one round trip: totals, status, department, manufacturer,
+     * designation, RAM, processor, station and year breakdowns, plus the total antivirus,
+     * issued laptops and available laptops counts
      */
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Long>> getSummaryCounts() {
-        long totalAntivirus = antivirusRepository.count();
-        long issuedLaptopsCount = laptopRepository.countByStatus(LaptopStatus.ISSUED);
-        long availableLaptopsCount = laptopRepository.countByStatus(LaptopStatus.AVAILABLE);
-        Map<String, Long> result = new java.util.HashMap<>();
-        result.put("totalAntivirus", totalAntivirus);
-        result.put("issuedLaptopsCount", issuedLaptopsCount);
-        result.put("availableLaptopsCount", availableLaptopsCount);
-        return ResponseEntity.ok(result);
+    public ResponseEntity<LaptopCountSummaryDto> getSummaryCounts() {
+        return ResponseEntity.ok(laptopCountService.getSummary());
+    }
+
+    /**
+     * Get department statistics
+     */
+    @GetMapping("/department-stats")
+    public ResponseEntity<Map<String, Long>> getDepartmentStats() {
+        return ResponseEntity.ok(laptopCountService.getDepartmentStats());
+    }
+
+    /**
+     * Get manufacturer statistics
+     */
+    @GetMapping("/manufacturer-stats")
+    public ResponseEntity<Map<String, Long>> getManufacturerStats() {
+        return ResponseEntity.ok(laptopCountService.getManufacturerStats());
     }
 
     /**
@@ -0,0 +1,34 @@
+package io.getarrays.securecapita.itinventory;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * The values of a laptop that the in-memory counters are keyed by.
+ * A snapshot is kept on each loaded laptop so an update can move it from its old buckets to the new ones.
+ */
+public record LaptopCountKey(LaptopStatus status,
+                             String department,
+                             String manufacturer,
+                             String station,
+                             Integer purchaseYear,
+                             Integer issueYear,
+                             Integer replacementYear) {
+
+    public static LaptopCountKey of(Laptop laptop) {
+        return new LaptopCountKey(
+                laptop.getStatus(),
+                laptop.getDepartment(),
+                laptop.getManufacturer(),
+                laptop.getStation(),
+                yearOf(laptop.getPurchaseDate()),
+                yearOf(laptop.getIssueDate()),
+                yearOf(laptop.getReplacementDate()));
+    }
+
+    // Dates are stored in UTC (hibernate.jdbc.time_zone), so the year matches YEAR() in the database
+    private static Integer yearOf(Date date) {
+        return date != null ? Instant.ofEpochMilli(date.getTime()).atZone(ZoneOffset.UTC).getYear() : null;
+    }
+}
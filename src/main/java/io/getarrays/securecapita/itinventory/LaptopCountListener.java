@@ -0,0 +1,50 @@
+package io.getarrays.securecapita.itinventory;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
+/**
+ * JPA lifecycle listener on {@link Laptop} that keeps {@link LaptopCounterStore} in step with
+ * inserts, updates and deletes. Counter changes are applied after the transaction commits so
+ * rolled back changes are never counted.
+ */
+@Component
+@RequiredArgsConstructor
+public class LaptopCountListener {
+
+    private final LaptopCounterStore laptopCounterStore;
+
+    @PostLoad
+    public void onLoad(Laptop laptop) {
+        laptop.setCountKey(LaptopCountKey.of(laptop));
+    }
+
+    @PostPersist
+    public void onPersist(Laptop laptop) {
+        LaptopCountKey countKey = LaptopCountKey.of(laptop);
+        laptop.setCountKey(countKey);
+        afterCommit(() -> laptopCounterStore.increment(countKey));
+    }
+
+    @PostUpdate
+    public void onUpdate(Laptop laptop) {
+        LaptopCountKey previous = laptop.getCountKey();
+        LaptopCountKey current = LaptopCountKey.of(laptop);
+        if (!current.equals(previous)) {
+            laptop.setCountKey(current);
+            afterCommit(() -> laptopCounterStore.move(previous, current));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Laptop laptop) {
+        LaptopCountKey countKey = laptop.getCountKey() != null ? laptop.getCountKey() : LaptopCountKey.of(laptop);
+        afterCommit(() -> laptopCounterStore.decrement(countKey));
+    }
+}
@@ -1,22 +1,36 @@
 package io.getarrays.securecapita.itinventory;
 
+import io.getarrays.securecapita.antivirus.AntivirusRepository;
+import io.getarrays.securecapita.itinventory.LaptopCounterStore.Dimension;
+import io.getarrays.securecapita.itinventory.LaptopTrigramIndex.Field;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
 public class LaptopCountService {
 
+    // Bucket name for laptops with no value for a dimension
+    private static final String UNSPECIFIED = "UNSPECIFIED";
+
     private final LaptopRepository laptopRepository;
+    private final AntivirusRepository antivirusRepository;
+    private final LaptopCounterStore laptopCounterStore;
+    private final LaptopTrigramIndex laptopTrigramIndex;
 
     /**
      * Get total count of all laptops
      */
     public long getTotalCount() {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.getTotal();
+        }
         return laptopRepository.count();
     }
 
@@ -24,6 +38,9 @@ public class LaptopCountService {
      * Get count by status
      */
     public long getCountByStatus(LaptopStatus status) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.STATUS, status);
+        }
         return laptopRepository.countByStatus(status);
     }
 
@@ -31,6 +48,9 @@ public class LaptopCountService {
      * Get count by manufacturer
      */
     public long getCountByManufacturer(String manufacturer) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.MANUFACTURER, manufacturer);
+        }
         return laptopRepository.countByManufacturer(manufacturer);
     }
 
@@ -38,9 +58,22 @@ public class LaptopCountService {
      * Get count by department
      */
     public long getCountByDepartment(String department) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.DEPARTMENT, department);
+        }
         return laptopRepository.countByDepartment(department);
     }
 
+    /**
+     * Get count by station
+     */
+    public long getCountByStation(String station) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.STATION, station);
+        }
+        return laptopRepository.countByStation(station);
+    }
+
     /**
      * Get count by designation
      */
@@ -66,6 +99,9 @@ public class LaptopCountService {
      * Get count by purchase year
      */
     public long getCountByPurchaseYear(int year) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.PURCHASE_YEAR, year);
+        }
         return laptopRepository.countByPurchaseYear(year);
     }
 
@@ -73,6 +109,9 @@ public class LaptopCountService {
      * Get count by issue year
      */
     public long getCountByIssueYear(int year) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.ISSUE_YEAR, year);
+        }
         return laptopRepository.countByIssueYear(year);
     }
 
@@ -80,6 +119,9 @@ public class LaptopCountService {
      * Get count by replacement year
      */
     public long getCountByReplacementYear(int year) {
+        if (laptopCounterStore.isSeeded()) {
+            return laptopCounterStore.get(Dimension.REPLACEMENT_YEAR, year);
+        }
         return laptopRepository.countByReplacementYear(year);
     }
 
@@ -136,6 +178,9 @@ public class LaptopCountService {
      * Get count by email containing text
      */
     public long getCountByEmailContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.EMAIL, searchText);
+        }
         return laptopRepository.countByEmailContaining(searchText);
     }
 
@@ -143,6 +188,9 @@ public class LaptopCountService {
      * Get count by serial number containing text
      */
     public long getCountBySerialNumberContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.SERIAL_NUMBER, searchText);
+        }
         return laptopRepository.countBySerialNumberContainingText(searchText);
     }
 
@@ -150,6 +198,9 @@ public class LaptopCountService {
      * Get count by manufacturer containing text
      */
     public long getCountByManufacturerContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.MANUFACTURER, searchText);
+        }
         return laptopRepository.countByManufacturerContaining(searchText);
     }
 
@@ -157,6 +208,9 @@ public class LaptopCountService {
      * Get count by department containing text
      */
     public long getCountByDepartmentContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.DEPARTMENT, searchText);
+        }
         return laptopRepository.countByDepartmentContaining(searchText);
     }
 
@@ -164,6 +218,9 @@ public class LaptopCountService {
      * Get count by designation containing text
      */
     public long getCountByDesignationContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.DESIGNATION, searchText);
+        }
         return laptopRepository.countByDesignationContaining(searchText);
     }
 
@@ -171,6 +228,9 @@ public class LaptopCountService {
      * Get count by issuedTo containing text
      */
     public long getCountByIssuedToContaining(String searchText) {
+        if (laptopTrigramIndex.isReady()) {
+            return laptopTrigramIndex.count(Field.ISSUED_TO, searchText);
+        }
         return laptopRepository.countByIssuedToContaining(searchText);
     }
 
@@ -185,25 +245,27 @@ public class LaptopCountService {
      * Get comprehensive statistics
      */
     public Map<String, Object> getComprehensiveStats() {
+        LaptopCountSummaryDto summary = aggregate();
         Map<String, Object> stats = new HashMap<>();
         
         // Total count
-        stats.put("totalLaptops", getTotalCount());
+        stats.put("totalLaptops", summary.getTotalLaptops());
         
         // Count by status
         for (LaptopStatus status : LaptopStatus.values()) {
-            stats.put("status_" + status.name().toLowerCase(), getCountByStatus(status));
+            stats.put("status_" + status.name().toLowerCase(), summary.getByStatus().getOrDefault(status.name(), 0L));
         }
         
         // Count needing replacement
-        stats.put("needingReplacement", getCountNeedingReplacement());
+        stats.put("needingReplacement", summary.getNeedingReplacement());
         
         // Count by year (current year and previous 2 years)
         int currentYear = new Date().getYear() + 1900;
         for (int year = currentYear - 2; year <= currentYear; year++) {
-            stats.put("purchased_" + year, getCountByPurchaseYear(year));
-            stats.put("issued_" + year, getCountByIssueYear(year));
-            stats.put("replacement_" + year, getCountByReplacementYear(year));
+            String key = String.valueOf(year);
+            stats.put("purchased_" + year, summary.getPurchasedByYear().getOrDefault(key, 0L));
+            stats.put("issued_" + year, summary.getIssuedByYear().getOrDefault(key, 0L));
+            stats.put("replacement_" + year, summary.getReplacementByYear().getOrDefault(key, 0L));
         }
         
         return stats;
@@ -213,17 +275,85 @@ public class LaptopCountService {
      * Get department statistics
      */
     public Map<String, Long> getDepartmentStats() {
-        // This would need to be implemented with a custom query to get all departments
-        // For now, return empty map - can be extended later
-        return new HashMap<>();
+        return aggregate().getByDepartment();
     }
 
     /**
      * Get manufacturer statistics
      */
     public Map<String, Long> getManufacturerStats() {
-        // This would need to be implemented with a custom query to get all manufacturers
-        // For now, return empty map - can be extended later
-        return new HashMap<>();
+        return aggregate().getByManufacturer();
+    }
+
+    /**
+     * Get every dashboard count in one response
+     */
+    public LaptopCountSummaryDto getSummary() {
+        LaptopCountSummaryDto summary = aggregate();
+        summary.setTotalAntivirus(antivirusRepository.count());
+        summary.setIssuedLaptopsCount(summary.getByStatus().getOrDefault(LaptopStatus.ISSUED.name(), 0L));
+        summary.setAvailableLaptopsCount(summary.getByStatus().getOrDefault(LaptopStatus.AVAILABLE.name(), 0L));
+        return summary;
+    }
+
+    /**
+     * Compute all laptop buckets from one statement of per-dimension GROUP BYs instead of one
+     * COUNT query per bucket.
+     */
+    private LaptopCountSummaryDto aggregate() {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (LaptopStatus status : LaptopStatus.values()) {
+            byStatus.put(status.name(), 0L);
+        }
+        Map<String, Map<String, Long>> breakdowns = new HashMap<>();
+        breakdowns.put("STATUS", byStatus);
+        long totalLaptops = 0;
+        long needingReplacement = 0;
+        for (Object[] row : laptopRepository.countBreakdowns()) {
+            String dimension = (String) row[0];
+            long count = ((Number) row[3]).longValue();
+            if (dimension.equals("NEEDING_REPLACEMENT")) {
+                needingReplacement = count;
+                continue;
+            }
+            if (dimension.equals("STATUS")) {
+                totalLaptops += count;
+            }
+            addToBucket(breakdowns.computeIfAbsent(dimension, key -> new TreeMap<>()),
+                    LaptopRepository.breakdownValue(row), count);
+        }
+        Map<String, Long> byDepartment = breakdown(breakdowns, "DEPARTMENT");
+        Map<String, Long> byManufacturer = breakdown(breakdowns, "MANUFACTURER");
+        Map<String, Long> byDesignation = breakdown(breakdowns, "DESIGNATION");
+        Map<String, Long> byRam = breakdown(breakdowns, "RAM");
+        Map<String, Long> byProcessor = breakdown(breakdowns, "PROCESSOR");
+        Map<String, Long> byStation = breakdown(breakdowns, "STATION");
+        Map<String, Long> purchasedByYear = breakdown(breakdowns, "PURCHASE_YEAR");
+        Map<String, Long> issuedByYear = breakdown(breakdowns, "ISSUE_YEAR");
+        Map<String, Long> replacementByYear = breakdown(breakdowns, "REPLACEMENT_YEAR");
+
+        return LaptopCountSummaryDto.builder()
+                .totalLaptops(totalLaptops)
+                .needingReplacement(needingReplacement)
+                .byStatus(byStatus)
+                .byDepartment(byDepartment)
+                .byManufacturer(byManufacturer)
+                .byDesignation(byDesignation)
+                .byRam(byRam)
+                .byProcessor(byProcessor)
+                .byStation(byStation)
+                .purchasedByYear(purchasedByYear)
+                .issuedByYear(issuedByYear)
+                .replacementByYear(replacementByYear)
+                .build();
+    }
+
+    // Empty table: the dimension has no rows at all
+    private static Map<String, Long> breakdown(Map<String, Map<String, Long>> breakdowns, String dimension) {
+        return breakdowns.getOrDefault(dimension, new TreeMap<>());
+    }
+
+    private static void addToBucket(Map<String, Long> buckets, Object key, long count) {
+        buckets.merge(key != null ? key.toString() : UNSPECIFIED, count, Long::sum);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,41 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * DTO for the laptop dashboard summary: every count bucket in one response.
+ * Laptops with no value for a dimension are counted under "UNSPECIFIED".
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaptopCountSummaryDto {
+
+    private long totalLaptops;
+    private long needingReplacement;
+
+    // Kept for clients of the original /laptop-counts/summary response
+    private long totalAntivirus;
+    private long issuedLaptopsCount;
+    private long availableLaptopsCount;
+
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byDepartment;
+    private Map<String, Long> byManufacturer;
+    private Map<String, Long> byDesignation;
+    private Map<String, Long> byRam;
+    private Map<String, Long> byProcessor;
+    private Map<String, Long> byStation;
+
+    private Map<String, Long> purchasedByYear;
+    private Map<String, Long> issuedByYear;
+    private Map<String, Long> replacementByYear;
+}
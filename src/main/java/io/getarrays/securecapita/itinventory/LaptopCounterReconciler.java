@@ -0,0 +1,82 @@
+package io.getarrays.securecapita.itinventory;
+
+import io.getarrays.securecapita.itinventory.LaptopCounterStore.Dimension;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Seeds {@link LaptopCounterStore} at startup and periodically repairs drift against the
+ * database, e.g. after bulk updates that bypass the entity lifecycle callbacks.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LaptopCounterReconciler {
+
+    // Breakdown rows for the dimensions that have in-memory counters; the breakdowns use the same names
+    private static final Map<String, Dimension> COUNTED_DIMENSIONS = Arrays.stream(Dimension.values())
+            .collect(Collectors.toMap(Dimension::name, Function.identity()));
+
+    private final LaptopRepository laptopRepository;
+    private final LaptopCounterStore laptopCounterStore;
+    private final PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcileWithDatabase();
+        log.info("Laptop counters seeded with {} laptops", laptopCounterStore.getTotal());
+    }
+
+    @Scheduled(fixedDelayString = "${laptop.counters.reconcile-interval-ms:300000}",
+               initialDelayString = "${laptop.counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        int drifted = reconcileWithDatabase();
+        if (drifted > 0) {
+            log.warn("Repaired {} drifted laptop counters", drifted);
+        }
+    }
+
+    // The breakdowns are read in a view that starts right after the snapshot, so every dimension is
+    // compared against the same moment. A laptop committed between the two is counted
+    // twice until the next pass corrects it.
+    private int reconcileWithDatabase() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        Integer drifted = transactionTemplate.execute(status -> {
+            Map<String, Long> snapshot = laptopCounterStore.snapshot();
+            return laptopCounterStore.reconcile(snapshot, loadCounts());
+        });
+        return drifted != null ? drifted : 0;
+    }
+
+    // Counts from the per-dimension breakdowns, keyed the same way as the in-memory counters
+    private Map<String, Long> loadCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : laptopRepository.countBreakdowns()) {
+            Dimension dimension = COUNTED_DIMENSIONS.get((String) row[0]);
+            if (dimension == null) {
+                continue;
+            }
+            long count = ((Number) row[3]).longValue();
+            if (dimension == Dimension.STATUS) {
+                LaptopCounterStore.addTotal(counts, count);
+            }
+            LaptopCounterStore.addCount(counts, dimension, LaptopRepository.breakdownValue(row), count);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,133 @@
+package io.getarrays.securecapita.itinventory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process laptop counters keyed by status, department, manufacturer, station and
+ * purchase/issue/replacement year. Kept up to date by {@link LaptopCountListener} and
+ * seeded and reconciled against the database by {@link LaptopCounterReconciler}.
+ */
+@Component
+@Slf4j
+public class LaptopCounterStore {
+
+    public enum Dimension {
+        STATUS, DEPARTMENT, MANUFACTURER, STATION, PURCHASE_YEAR, ISSUE_YEAR, REPLACEMENT_YEAR
+    }
+
+    private static final String TOTAL_KEY = "TOTAL";
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private volatile boolean seeded;
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public long getTotal() {
+        return get(TOTAL_KEY);
+    }
+
+    public long get(Dimension dimension, Object value) {
+        return get(key(dimension, value));
+    }
+
+    public void increment(LaptopCountKey countKey) {
+        add(countKey, 1);
+    }
+
+    public void decrement(LaptopCountKey countKey) {
+        add(countKey, -1);
+    }
+
+    public void move(LaptopCountKey from, LaptopCountKey to) {
+        if (from != null) {
+            add(from, -1);
+        }
+        add(to, 1);
+    }
+
+    /**
+     * Current counter values, taken just before the database is counted for {@link #reconcile}
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new HashMap<>();
+        counters.forEach((key, counter) -> snapshot.put(key, counter.get()));
+        return snapshot;
+    }
+
+    /**
+     * Correct the counters by how far the snapshot was from the database counts (as built by
+     * {@link #addTotal} and {@link #addCount}) taken right after it, returning how many counters
+     * had drifted. The correction is added rather than set, so increments and decrements applied
+     * while the database was being counted are kept.
+     */
+    public int reconcile(Map<String, Long> snapshot, Map<String, Long> expected) {
+        Set<String> keys = new HashSet<>(snapshot.keySet());
+        keys.addAll(expected.keySet());
+        int drifted = 0;
+        for (String key : keys) {
+            long memory = snapshot.getOrDefault(key, 0L);
+            long database = expected.getOrDefault(key, 0L);
+            if (memory == database) {
+                continue;
+            }
+            counters.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(database - memory);
+            if (seeded) {
+                log.warn("Laptop counter {} drifted: memory={}, database={}", key, memory, database);
+                drifted++;
+            }
+        }
+        seeded = true;
+        return drifted;
+    }
+
+    /**
+     * Add {@code count} laptops to the total of a counts map used for {@link #reconcile}
+     */
+    public static void addTotal(Map<String, Long> counts, long count) {
+        counts.merge(TOTAL_KEY, count, Long::sum);
+    }
+
+    /**
+     * Add {@code count} laptops to one dimension bucket of a counts map used for {@link #reconcile}
+     */
+    public static void addCount(Map<String, Long> counts, Dimension dimension, Object value, long count) {
+        counts.merge(key(dimension, value), count, Long::sum);
+    }
+
+    private void add(LaptopCountKey countKey, long delta) {
+        Map<String, Long> deltas = new HashMap<>();
+        addTotal(deltas, delta);
+        addCount(deltas, Dimension.STATUS, countKey.status(), delta);
+        addCount(deltas, Dimension.DEPARTMENT, countKey.department(), delta);
+        addCount(deltas, Dimension.MANUFACTURER, countKey.manufacturer(), delta);
+        addCount(deltas, Dimension.STATION, countKey.station(), delta);
+        addCount(deltas, Dimension.PURCHASE_YEAR, countKey.purchaseYear(), delta);
+        addCount(deltas, Dimension.ISSUE_YEAR, countKey.issueYear(), delta);
+        addCount(deltas, Dimension.REPLACEMENT_YEAR, countKey.replacementYear(), delta);
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            counters.computeIfAbsent(entry.getKey(), key -> new AtomicLong()).addAndGet(entry.getValue());
+        }
+    }
+
+    private long get(String key) {
+        AtomicLong counter = counters.get(key);
+        return counter != null ? counter.get() : 0;
+    }
+
+    // Text values are trimmed and lower-cased to match the database's case-insensitive comparisons
+    private static String key(Dimension dimension, Object value) {
+        String normalized = value == null ? "" : value.toString().trim().toLowerCase(Locale.ROOT);
+        return dimension.name() + "|" + normalized;
+    }
+}
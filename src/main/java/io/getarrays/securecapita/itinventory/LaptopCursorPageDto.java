@@ -0,0 +1,26 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one keyset (cursor) page of laptops, ordered by id.
+ * Pass {@code nextCursor} back as {@code afterId} to fetch the following page.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaptopCursorPageDto {
+
+    private List<LaptopDto> content;
+    private Long nextCursor; // Id of the last laptop on this page, null when there are no more pages
+    private int size;
+    private boolean hasMore;
+}
@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the outcome of a bulk laptop import, with one error entry per rejected row
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LaptopImportResultDto {
+
+    private int totalRows;
+    private int importedCount;
+    private int failedCount;
+    private int acknowledgmentsCreated;
+
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private int rowNumber; // Spreadsheet row number, the header being row 1
+        private String serialNumber;
+        private String message;
+    }
+}
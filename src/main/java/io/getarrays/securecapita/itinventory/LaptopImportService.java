@@ -0,0 +1,326 @@
+package io.getarrays.securecapita.itinventory;
+
+import io.getarrays.securecapita.dto.UserDTO;
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import io.getarrays.securecapita.repository.implementation.UserRepository1;
+import io.getarrays.securecapita.utils.ImportFileReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk laptop import from CSV or XLSX. Rows are read one at a time, validated with the same rules
+ * as {@link LaptopService#createLaptop}, checked for duplicate serial numbers with one query per
+ * batch and written, together with their automatic acknowledgments, through JDBC batch inserts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LaptopImportService {
+
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    private static final String INSERT_LAPTOP_SQL =
+            "INSERT INTO laptop (purchase_date, manufacturer, assert_type, serial_number, ram, processor, issue_date, " +
+            "status, issued_to, station, department, designation, email, replacement_date, issue_by_email, " +
+            "created_by, created_date, last_modified_by, last_modified_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ACKNOWLEDGMENT_SQL =
+            "INSERT INTO laptop_acknowledgment (laptop_id, acknowledged_by, acknowledgment_date, notes, signature_type, " +
+            "signature_timestamp, ip_address, user_agent, certificate_info, " +
+            "created_by, created_date, last_modified_by, last_modified_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final LaptopService laptopService;
+    private final LaptopRepository laptopRepository;
+    private final UserRepository1 userRepository1;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final Validator validator;
+    private final AuditorAware<String> auditorAware;
+    private final LaptopCounterStore laptopCounterStore;
+    private final LaptopTrigramIndex laptopTrigramIndex;
+
+    public LaptopImportResultDto importLaptops(UserDTO currentUser, MultipartFile file) throws IOException {
+        userRepository1.findById(currentUser.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+
+        LaptopImportResultDto result = LaptopImportResultDto.builder().build();
+        Set<String> serialNumbersInFile = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+        ImportFileReader.read(file, (rowNumber, values) -> {
+            result.setTotalRows(result.getTotalRows() + 1);
+            ImportRow row = toImportRow(currentUser, rowNumber, values, serialNumbersInFile, result);
+            if (row != null) {
+                batch.add(row);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    writeBatch(currentUser, auditor, batch, result);
+                    batch.clear();
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            writeBatch(currentUser, auditor, batch, result);
+        }
+
+        result.setFailedCount(result.getErrors().size());
+        log.info("Laptop import by {}: {} rows, {} imported, {} failed", currentUser.getEmail(),
+                result.getTotalRows(), result.getImportedCount(), result.getFailedCount());
+        return result;
+    }
+
+    // Parse and validate one row; returns null and records an error when the row is rejected
+    private ImportRow toImportRow(UserDTO currentUser, int rowNumber, Map<String, String> values,
+                                  Set<String> serialNumbersInFile, LaptopImportResultDto result) {
+        String serialNumber = blankToNull(values.get("serialnumber"));
+        try {
+            LaptopDto dto = LaptopDto.builder()
+                    .purchaseDate(parseDate("purchaseDate", values.get("purchasedate")))
+                    .manufacturer(blankToNull(values.get("manufacturer")))
+                    .assertType(blankToNull(values.get("asserttype")))
+                    .serialNumber(serialNumber)
+                    .ram(parseInteger("ram", values.get("ram")))
+                    .processor(parseInteger("processor", values.get("processor")))
+                    .issueDate(parseDate("issueDate", values.get("issuedate")))
+                    .status(parseStatus(values.get("status")))
+                    .issuedTo(blankToNull(values.get("issuedto")))
+                    .station(blankToNull(values.get("station")))
+                    .department(blankToNull(values.get("department")))
+                    .designation(blankToNull(values.get("designation")))
+                    .email(blankToNull(values.get("email")))
+                    .replacementDate(parseDate("replacementDate", values.get("replacementdate")))
+                    .issueByEmail(blankToNull(values.get("issuebyemail")))
+                    .build();
+
+            checkConstraints(validator.validate(dto));
+            laptopService.validateDates(dto);
+            laptopService.validateLaptopSpecificFields(dto);
+
+            Laptop laptop = laptopService.dtoToEntity(currentUser, null, dto);
+            checkConstraints(validator.validate(laptop));
+
+            if (serialNumber != null && !serialNumbersInFile.add(serialNumber.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Serial number appears more than once in the file: " + serialNumber);
+            }
+
+            // Same status rules as createLaptop: issuing goes through PENDING_ACKNOWLEDGMENT
+            boolean acknowledge = laptop.getStatus() == LaptopStatus.ISSUE || laptop.getStatus() == LaptopStatus.ISSUED;
+            if (acknowledge) {
+                laptop.setStatus(LaptopStatus.PENDING_ACKNOWLEDGMENT);
+            } else if (laptop.getStatus() == null) {
+                laptop.setStatus(LaptopStatus.AVAILABLE);
+            }
+            return new ImportRow(rowNumber, laptop, acknowledge);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            result.getErrors().add(new LaptopImportResultDto.RowError(rowNumber, serialNumber, e.getMessage()));
+            return null;
+        }
+    }
+
+    private void writeBatch(UserDTO currentUser, String auditor, List<ImportRow> batch, LaptopImportResultDto result) {
+        // One lookup for every serial number of the batch
+        Set<String> serialNumbers = batch.stream()
+                .map(row -> row.laptop().getSerialNumber())
+                .filter(serial -> serial != null)
+                .collect(Collectors.toSet());
+        Set<String> existing = serialNumbers.isEmpty() ? Set.of() : laptopRepository.findExistingSerialNumbers(serialNumbers)
+                .stream()
+                .map(serial -> serial.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+
+        List<ImportRow> rows = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            String serialNumber = row.laptop().getSerialNumber();
+            if (serialNumber != null && existing.contains(serialNumber.toLowerCase(Locale.ROOT))) {
+                result.getErrors().add(new LaptopImportResultDto.RowError(row.rowNumber(), serialNumber,
+                        "Serial number already exists: " + serialNumber));
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            Integer acknowledgments = transactionTemplate.execute(tx -> {
+                insertLaptops(auditor, rows);
+                return insertAcknowledgments(currentUser, auditor, rows);
+            });
+            result.setImportedCount(result.getImportedCount() + rows.size());
+            result.setAcknowledgmentsCreated(result.getAcknowledgmentsCreated() + (acknowledgments != null ? acknowledgments : 0));
+        } catch (DataAccessException e) {
+            log.error("Laptop import batch failed: {}", e.getMessage());
+            for (ImportRow row : rows) {
+                result.getErrors().add(new LaptopImportResultDto.RowError(row.rowNumber(), row.laptop().getSerialNumber(),
+                        "Batch insert failed: " + e.getMostSpecificCause().getMessage()));
+            }
+            return;
+        }
+
+        // JDBC inserts bypass the entity listeners, so update the in-memory counters and search index here
+        for (ImportRow row : rows) {
+            laptopCounterStore.increment(LaptopCountKey.of(row.laptop()));
+            laptopTrigramIndex.index(row.laptop().getId(), LaptopTrigramIndex.valuesOf(row.laptop()));
+        }
+    }
+
+    private void insertLaptops(String auditor, List<ImportRow> rows) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_LAPTOP_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    Laptop laptop = row.laptop();
+                    ps.setTimestamp(1, toTimestamp(laptop.getPurchaseDate()));
+                    ps.setString(2, laptop.getManufacturer());
+                    ps.setString(3, laptop.getAssertType());
+                    ps.setString(4, laptop.getSerialNumber());
+                    ps.setObject(5, laptop.getRam(), Types.INTEGER);
+                    ps.setObject(6, laptop.getProcessor(), Types.INTEGER);
+                    ps.setTimestamp(7, toTimestamp(laptop.getIssueDate()));
+                    ps.setString(8, laptop.getStatus().name());
+                    ps.setString(9, laptop.getIssuedTo());
+                    ps.setString(10, laptop.getStation());
+                    ps.setString(11, laptop.getDepartment());
+                    ps.setString(12, laptop.getDesignation());
+                    ps.setString(13, laptop.getEmail());
+                    ps.setTimestamp(14, toTimestamp(laptop.getReplacementDate()));
+                    ps.setString(15, laptop.getIssueByEmail());
+                    ps.setString(16, auditor);
+                    ps.setTimestamp(17, now);
+                    ps.setString(18, auditor);
+                    ps.setTimestamp(19, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // Generated keys come back in insert order
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (ImportRow row : rows) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated id for imported laptop");
+                        }
+                        row.laptop().setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Automatic acknowledgment rows for issued laptops, as createLaptop creates one at a time
+    private int insertAcknowledgments(UserDTO currentUser, String auditor, List<ImportRow> rows) {
+        List<ImportRow> issued = rows.stream().filter(ImportRow::acknowledge).collect(Collectors.toList());
+        if (issued.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate(INSERT_ACKNOWLEDGMENT_SQL, issued, IMPORT_BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, row.laptop().getId());
+            ps.setLong(2, currentUser.getId());
+            ps.setTimestamp(3, now);
+            ps.setString(4, "Automatic acknowledgment created when laptop was issued");
+            ps.setString(5, "AUTOMATIC");
+            ps.setTimestamp(6, now);
+            ps.setString(7, "SYSTEM");
+            ps.setString(8, "SYSTEM_AUTO_ACKNOWLEDGMENT");
+            ps.setString(9, "Automatic system acknowledgment");
+            ps.setString(10, auditor);
+            ps.setTimestamp(11, now);
+            ps.setString(12, auditor);
+            ps.setTimestamp(13, now);
+        });
+        return issued.size();
+    }
+
+    private static void checkConstraints(Set<? extends ConstraintViolation<?>> violations) {
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // Dates are expected as yyyy-MM-dd; XLSX date cells are rendered that way by ImportFileReader
+    private static Date parseDate(String field, String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Date.from(LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + field + " '" + text + "', expected yyyy-MM-dd");
+        }
+    }
+
+    private static Integer parseInteger(String field, String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            // Spreadsheets may render whole numbers as 8.0
+            double number = Double.parseDouble(text);
+            if (number != Math.rint(number)) {
+                throw new NumberFormatException();
+            }
+            return (int) number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + " '" + text + "', expected a whole number");
+        }
+    }
+
+    private static LaptopStatus parseStatus(String value) {
+        String text = blankToNull(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LaptopStatus.valueOf(text.toUpperCase(Locale.ROOT).replace(' ', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid status '" + text + "'");
+        }
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    private record ImportRow(int rowNumber, Laptop laptop, boolean acknowledge) {
+    }
+}
@@ -1,9 +1,11 @@
 package io.getarrays.securecapita.itinventory;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -12,15 +14,58 @@ public interface LaptopRepository extends JpaRepository<Laptop, Long> {
 
     boolean existsBySerialNumber(String serialNumber);
 
+    // Set-based duplicate check for bulk imports
+    @Query("SELECT l.serialNumber FROM Laptop l WHERE l.serialNumber IN :serialNumbers")
+    List<String> findExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
     List<Laptop> findByStatus(LaptopStatus status);
     
     List<Laptop> findByStatusAndStation(LaptopStatus status, String station);
     
     List<Laptop> findByStation(String station);
 
+    // Keyset page: laptops with id greater than afterId, optionally filtered by status and station
+    @Query("SELECT l FROM Laptop l WHERE l.id > :afterId " +
+           "AND (:status IS NULL OR l.status = :status) " +
+           "AND (:station IS NULL OR l.station = :station) ORDER BY l.id")
+    List<Laptop> findPageAfter(@Param("afterId") Long afterId,
+                               @Param("status") LaptopStatus status,
+                               @Param("station") String station,
+                               Pageable pageable);
+
     @Query("SELECT COUNT(l) FROM Laptop l WHERE l.status = :status")
     long countByStatus(@Param("status")   LaptopStatus status);
 
+    // Every statistics breakdown in one round trip: one GROUP BY per dimension joined with UNION ALL, so
+    // there is one row per value of each dimension rather than one per combination. Rows are the
+    // dimension, its value (text, or numeric for ram, processor and years; see breakdownValue) and the
+    // count. PostgreSQL types UNION columns pair by pair from the left, so the numeric branches come
+    // first; two untyped NULLs in the first pair would make the numeric column text.
+    @Query(value = "SELECT 'RAM' AS dimension, NULL AS text_value, ram AS number_value, COUNT(*) AS total FROM laptop GROUP BY ram " +
+           "UNION ALL SELECT 'PROCESSOR', NULL, processor, COUNT(*) FROM laptop GROUP BY processor " +
+           "UNION ALL SELECT 'PURCHASE_YEAR', NULL, EXTRACT(YEAR FROM purchase_date), COUNT(*) FROM laptop GROUP BY EXTRACT(YEAR FROM purchase_date) " +
+           "UNION ALL SELECT 'ISSUE_YEAR', NULL, EXTRACT(YEAR FROM issue_date), COUNT(*) FROM laptop GROUP BY EXTRACT(YEAR FROM issue_date) " +
+           "UNION ALL SELECT 'REPLACEMENT_YEAR', NULL, EXTRACT(YEAR FROM replacement_date), COUNT(*) FROM laptop GROUP BY EXTRACT(YEAR FROM replacement_date) " +
+           "UNION ALL SELECT 'STATUS', status, NULL, COUNT(*) FROM laptop GROUP BY status " +
+           "UNION ALL SELECT 'DEPARTMENT', department, NULL, COUNT(*) FROM laptop GROUP BY department " +
+           "UNION ALL SELECT 'MANUFACTURER', manufacturer, NULL, COUNT(*) FROM laptop GROUP BY manufacturer " +
+           "UNION ALL SELECT 'DESIGNATION', designation, NULL, COUNT(*) FROM laptop GROUP BY designation " +
+           "UNION ALL SELECT 'STATION', station, NULL, COUNT(*) FROM laptop GROUP BY station " +
+           "UNION ALL SELECT 'NEEDING_REPLACEMENT', NULL, NULL, COUNT(*) FROM laptop WHERE replacement_date <= CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    List<Object[]> countBreakdowns();
+
+    /**
+     * The value of a {@link #countBreakdowns} row, or null for laptops with no value for the dimension
+     */
+    static Object breakdownValue(Object[] row) {
+        if (row[1] != null) {
+            return row[1];
+        }
+        // Years come back as DECIMAL or BIGINT depending on the database
+        return row[2] != null ? ((Number) row[2]).longValue() : null;
+    }
+
 
 
 
@@ -37,6 +82,8 @@ public interface LaptopRepository extends JpaRepository<Laptop, Long> {
 
     
     long countByManufacturer(String manufacturer);
+
+    long countByStation(String station);
     
     long countBySerialNumberContaining(String serialNumber);
     
@@ -125,6 +172,10 @@ public interface LaptopRepository extends JpaRepository<Laptop, Long> {
 
     Optional<Laptop> findBySerialNumber(String serialNumber);
 
+    // Only the text columns covered by LaptopTrigramIndex, to build it without loading whole entities
+    @Query("SELECT l.id, l.email, l.serialNumber, l.manufacturer, l.department, l.designation, l.issuedTo FROM Laptop l")
+    List<Object[]> findSearchableColumns();
+
     class Licence {
     }
 }
@@ -0,0 +1,37 @@
+package io.getarrays.securecapita.itinventory;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
+/**
+ * JPA lifecycle listener on {@link Laptop} that keeps {@link LaptopTrigramIndex} up to date
+ * once the writing transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class LaptopSearchIndexListener {
+
+    private final LaptopTrigramIndex laptopTrigramIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Laptop laptop) {
+        Long laptopId = laptop.getId();
+        // Copy the values now; the entity may change again before the commit
+        Map<LaptopTrigramIndex.Field, String> values = LaptopTrigramIndex.valuesOf(laptop);
+        afterCommit(() -> laptopTrigramIndex.index(laptopId, values));
+    }
+
+    @PostRemove
+    public void onRemove(Laptop laptop) {
+        Long laptopId = laptop.getId();
+        afterCommit(() -> laptopTrigramIndex.remove(laptopId));
+    }
+}
@@ -5,23 +5,38 @@ import io.getarrays.securecapita.dto.UserDTO;
 import io.getarrays.securecapita.exception.ResourceNotFoundException;
 import io.getarrays.securecapita.exception.NotAuthorizedException;
 import io.getarrays.securecapita.exception.BadRequestException;
+import io.getarrays.securecapita.exception.ApiException;
 import io.getarrays.securecapita.repository.UserRepository;
 import io.getarrays.securecapita.repository.implementation.UserRepository1;
 import io.getarrays.securecapita.task.Task;
 import io.getarrays.securecapita.task.TaskDto;
 import io.getarrays.securecapita.maintenance.Maintenance;
 import io.getarrays.securecapita.maintenance.MaintenanceDto;
+import io.getarrays.securecapita.maintenance.MaintenanceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.Optional;
+import java.util.Set;
 import io.getarrays.securecapita.service.EmailService;
 
 @Service
@@ -29,14 +44,26 @@ import io.getarrays.securecapita.service.EmailService;
 @Slf4j
 @Transactional
 public class LaptopService {
+    // Upper bound on ids per IN clause when batch-loading acknowledgments and maintenance records
+    private static final int LISTING_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    // Rows mapped and flushed per round trip while streaming an export
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
     private final UserRepository<User> userRepository;
 
     private final UserRepository1 userRepository1;
 
     private final LaptopRepository laptopRepository;
     private final LaptopAcknowledgmentRepository laptopAcknowledgmentRepository;
+    private final MaintenanceRepository maintenanceRepository;
     private final SignatureService signatureService;
     private final EmailService emailService;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final LaptopTrigramIndex laptopTrigramIndex;
 
 
     public LaptopDto createLaptop(UserDTO currentUser, LaptopDto laptopDto) {
@@ -73,7 +100,7 @@ public class LaptopService {
         }
     }
 
-    private void validateDates(LaptopDto dto) {
+    void validateDates(LaptopDto dto) {
         // Only validate purchase date for LAPTOP assets
         if (dto.isLaptopSpecificFieldsRequired()) {
             if (dto.getPurchaseDate() == null || dto.getPurchaseDate().getTime() == 0) {
@@ -96,7 +123,7 @@ public class LaptopService {
         }
     }
 
-    private void validateLaptopSpecificFields(LaptopDto dto) {
+    void validateLaptopSpecificFields(LaptopDto dto) {
         // If asset type is LAPTOP, validate all required fields
         if (dto.isLaptopSpecificFieldsRequired()) {
             if (dto.getPurchaseDate() == null) {
@@ -197,7 +224,7 @@ public class LaptopService {
         laptopAcknowledgmentRepository.save(acknowledgment);
     }
 
-    private Laptop dtoToEntity(UserDTO currentUser, Laptop existing, LaptopDto dto) {
+    Laptop dtoToEntity(UserDTO currentUser, Laptop existing, LaptopDto dto) {
         Laptop laptop = existing != null ? existing : new Laptop();
         
         // Map basic fields
@@ -222,6 +249,71 @@ public class LaptopService {
     }
 
     private LaptopDto entityToDto(Laptop entity) {
+        LaptopAcknowledgment acknowledgment = laptopAcknowledgmentRepository.findByLaptopId(entity.getId()).orElse(null);
+        LaptopDto dto = buildDto(entity, entity.getMaintenanceList());
+        if (acknowledgment != null) {
+            applyAcknowledgment(dto, acknowledgment, io.getarrays.securecapita.dto.UserDTO.toDto(acknowledgment.getAcknowledgedBy()));
+        }
+        return dto;
+    }
+
+    /**
+     * Map a list of laptops to DTOs with a fixed number of queries: the latest acknowledgment
+     * (with acknowledgedBy) and the maintenance records are loaded for the whole list at once
+     * instead of once per laptop.
+     */
+    private List<LaptopDto> entitiesToDtos(List<Laptop> laptops) {
+        return entitiesToDtos(laptops, null);
+    }
+
+    /**
+     * Same as {@link #entitiesToDtos(List)}, additionally copying the acknowledgment notes onto
+     * the DTO when {@code notesFilter} accepts the acknowledgment.
+     */
+    private List<LaptopDto> entitiesToDtos(List<Laptop> laptops, Predicate<LaptopAcknowledgment> notesFilter) {
+        if (laptops.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> laptopIds = laptops.stream().map(Laptop::getId).collect(Collectors.toList());
+        Map<Long, LaptopAcknowledgment> acknowledgments = new HashMap<>();
+        Map<Long, List<Maintenance>> maintenances = new HashMap<>();
+        for (int from = 0; from < laptopIds.size(); from += LISTING_BATCH_SIZE) {
+            List<Long> chunk = laptopIds.subList(from, Math.min(from + LISTING_BATCH_SIZE, laptopIds.size()));
+            for (LaptopAcknowledgment acknowledgment : laptopAcknowledgmentRepository.findLatestByLaptopIdIn(chunk)) {
+                acknowledgments.put(acknowledgment.getLaptop().getId(), acknowledgment);
+            }
+            for (Maintenance maintenance : maintenanceRepository.findByLaptopIdIn(chunk)) {
+                maintenances.computeIfAbsent(maintenance.getLaptop().getId(), id -> new ArrayList<>()).add(maintenance);
+            }
+        }
+
+        // Acknowledgments are made by a handful of station admins, so map each user only once
+        Map<Long, UserDTO> acknowledgers = new HashMap<>();
+        List<LaptopDto> dtos = new ArrayList<>(laptops.size());
+        for (Laptop laptop : laptops) {
+            LaptopDto dto = buildDto(laptop, maintenances.getOrDefault(laptop.getId(), Collections.emptyList()));
+            LaptopAcknowledgment acknowledgment = acknowledgments.get(laptop.getId());
+            if (acknowledgment != null) {
+                User acknowledgedBy = acknowledgment.getAcknowledgedBy();
+                applyAcknowledgment(dto, acknowledgment,
+                        acknowledgers.computeIfAbsent(acknowledgedBy.getId(), id -> UserDTO.toDto(acknowledgedBy)));
+                if (notesFilter != null && notesFilter.test(acknowledgment)) {
+                    dto.setNotes(acknowledgment.getNotes());
+                }
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private void applyAcknowledgment(LaptopDto dto, LaptopAcknowledgment acknowledgment, UserDTO acknowledgedBy) {
+        dto.setAcknowledgedBy(acknowledgedBy);
+        dto.setAcknowledgmentDate(LocalDate.from(acknowledgment.getAcknowledgmentDate()));
+        dto.setSignature(acknowledgment.getSignature());
+    }
+
+    private LaptopDto buildDto(Laptop entity, List<Maintenance> maintenanceList) {
         LaptopDto dto = LaptopDto.builder()
                 .id(entity.getId())
                 .purchaseDate(entity.getPurchaseDate())
@@ -242,22 +334,14 @@ public class LaptopService {
                 .build();
 
         // Map maintenances
-        if (entity.getMaintenanceList() != null) {
+        if (maintenanceList != null) {
             dto.setMaintenanceList(
-                entity.getMaintenanceList().stream()
+                maintenanceList.stream()
                     .map(this::maintenanceEntityToDto)
                     .collect(Collectors.toList())
             );
         }
 
-        // Map acknowledgment info
-        LaptopAcknowledgment acknowledgment = laptopAcknowledgmentRepository.findByLaptopId(entity.getId()).orElse(null);
-        if (acknowledgment != null) {
-            dto.setAcknowledgedBy(io.getarrays.securecapita.dto.UserDTO.toDto(acknowledgment.getAcknowledgedBy()));
-            dto.setAcknowledgmentDate(LocalDate.from(acknowledgment.getAcknowledgmentDate()));
-            dto.setSignature(acknowledgment.getSignature());
-        }
-
         return dto;
     }
 
@@ -304,9 +388,92 @@ public class LaptopService {
 
     public List<LaptopDto> getAllLaptops(UserDTO currentUser) {
         List<Laptop> laptops = laptopRepository.findAll();
-        return laptops.stream()
-                .map(this::entityToDto)
+        return entitiesToDtos(laptops);
+    }
+
+    /**
+     * Keyset page of laptops ordered by id, optionally filtered by status and station.
+     * Pass the returned nextCursor as afterId to read the next page.
+     */
+    @Transactional(readOnly = true)
+    public LaptopCursorPageDto getLaptopsPage(Long afterId, int size, LaptopStatus status, String station) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        // Fetch one extra row to know whether another page follows
+        List<Laptop> laptops = laptopRepository.findPageAfter(afterId != null ? afterId : 0L, status, station,
+                PageRequest.of(0, pageSize + 1));
+        boolean hasMore = laptops.size() > pageSize;
+        if (hasMore) {
+            laptops = laptops.subList(0, pageSize);
+        }
+
+        List<LaptopDto> content = entitiesToDtos(laptops, notesFilterFor(status));
+        return LaptopCursorPageDto.builder()
+                .content(content)
+                .nextCursor(hasMore ? laptops.get(laptops.size() - 1).getId() : null)
+                .size(content.size())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Stream laptops as newline-delimited JSON, reading them with the same keyset query as
+     * {@link #getLaptopsPage}. Each chunk is loaded, mapped and written in a short read-only
+     * transaction of its own, so no cursor stays open while the batch lookups of a chunk run and
+     * memory stays flat regardless of the number of laptops.
+     */
+    public StreamingResponseBody exportLaptops(LaptopStatus status, String station) {
+        Predicate<LaptopAcknowledgment> notesFilter = notesFilterFor(status);
+        return outputStream -> {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            long afterId = 0L;
+            while (true) {
+                long cursor = afterId;
+                List<LaptopDto> chunk = transactionTemplate.execute(tx -> {
+                    List<Laptop> laptops = laptopRepository.findPageAfter(cursor, status, station,
+                            PageRequest.of(0, EXPORT_CHUNK_SIZE));
+                    List<LaptopDto> dtos = entitiesToDtos(laptops, notesFilter);
+                    entityManager.clear();
+                    return dtos;
+                });
+                if (chunk == null || chunk.isEmpty()) {
+                    break;
+                }
+                for (LaptopDto dto : chunk) {
+                    outputStream.write(objectMapper.writeValueAsBytes(dto));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+                if (chunk.size() < EXPORT_CHUNK_SIZE) {
+                    break;
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        };
+    }
+
+    /**
+     * Laptops whose field contains the text (ignoring case), looked up through the trigram index
+     * and returned in id order, at most {@code size} of them.
+     */
+    @Transactional(readOnly = true)
+    public List<LaptopDto> searchLaptops(LaptopTrigramIndex.Field field, String searchText, int size) {
+        if (!laptopTrigramIndex.isReady()) {
+            throw new ApiException("Laptop search index is still loading, please try again shortly");
+        }
+        int limit = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        List<Long> ids = laptopTrigramIndex.search(field, searchText).stream()
+                .sorted()
+                .limit(limit)
                 .collect(Collectors.toList());
+        List<Laptop> laptops = new ArrayList<>(laptopRepository.findAllById(ids));
+        laptops.sort(Comparator.comparing(Laptop::getId));
+        return entitiesToDtos(laptops);
+    }
+
+    // Pending-acknowledgment listings carry the acknowledgment notes, matching the list endpoints
+    private Predicate<LaptopAcknowledgment> notesFilterFor(LaptopStatus status) {
+        return status == LaptopStatus.PENDING_ACKNOWLEDGMENT ? acknowledgment -> true : null;
     }
 
     public LaptopDto getLaptopById(UserDTO currentUser, Long laptopId) {
@@ -377,9 +544,7 @@ public class LaptopService {
 
     public List<LaptopDto> getIssuedLaptops(UserDTO currentUser) {
         List<Laptop> issuedLaptops = laptopRepository.findByStatus(LaptopStatus.ISSUED);
-        return issuedLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(issuedLaptops);
     }
 
     public LaptopDto getLaptopWithIssuedStatus(UserDTO currentUser, Long laptopId) {
@@ -406,9 +571,7 @@ public class LaptopService {
 
     public List<LaptopDto> getAllLaptopsWithRetiredStatus(UserDTO currentUser) {
         List<Laptop> retiredLaptops = laptopRepository.findByStatus(LaptopStatus.RETIRED);
-        return retiredLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(retiredLaptops);
     }
 
     public LaptopDto getLaptopWithRetiredStatusById(UserDTO currentUser, Long laptopId) {
@@ -424,9 +587,7 @@ public class LaptopService {
 
     public List<LaptopDto> getAllLaptopsWithMaintenanceStatus(UserDTO currentUser) {
         List<Laptop> maintenanceLaptops = laptopRepository.findByStatus(LaptopStatus.MAINTENANCE);
-        return maintenanceLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(maintenanceLaptops);
     }
 
     // Issue laptop with pending acknowledgment
@@ -502,6 +663,91 @@ public class LaptopService {
         return acknowledgmentToDto(savedAcknowledgment);
     }
 
+    /**
+     * Acknowledge many pending laptops in one transaction. The user and their stations are loaded
+     * once, laptops are fetched in one query, signature hashes are computed for the whole batch and
+     * every acknowledgment and status change is flushed together. Laptops that cannot be
+     * acknowledged are reported in the result instead of failing the whole request.
+     */
+    public LaptopBulkAcknowledgmentResultDto acknowledgeLaptopIssuances(UserDTO currentUser, LaptopBulkAcknowledgmentDto bulkDto) {
+        LaptopAcknowledgmentDto acknowledgmentDto = bulkDto.getAcknowledgment();
+        List<Long> laptopIds = bulkDto.getLaptopIds().stream().distinct().collect(Collectors.toList());
+
+        User user = userRepository1.findById(currentUser.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Set<String> userStations = user.isStationAssigned()
+                ? user.getStations().stream()
+                    .map(userStation -> userStation.getStation().getStationName())
+                    .collect(Collectors.toSet())
+                : Collections.emptySet();
+
+        Map<Long, Laptop> laptopsById = laptopRepository.findAllById(laptopIds).stream()
+                .collect(Collectors.toMap(Laptop::getId, laptop -> laptop));
+
+        List<LaptopBulkAcknowledgmentResultDto.LaptopResult> results = new ArrayList<>(laptopIds.size());
+        List<Laptop> acknowledged = new ArrayList<>();
+        for (Long laptopId : laptopIds) {
+            Laptop laptop = laptopsById.get(laptopId);
+            String failure = null;
+            if (laptop == null) {
+                failure = "Laptop not found with id: " + laptopId;
+            } else if (laptop.getStatus() != LaptopStatus.PENDING_ACKNOWLEDGMENT) {
+                failure = "Laptop is not in pending acknowledgment status";
+            } else if (!userStations.contains(laptop.getStation())) {
+                failure = "You are not authorized to acknowledge laptops for this station";
+            }
+            if (failure == null) {
+                acknowledged.add(laptop);
+            }
+            results.add(LaptopBulkAcknowledgmentResultDto.LaptopResult.builder()
+                    .laptopId(laptopId)
+                    .serialNumber(laptop != null ? laptop.getSerialNumber() : null)
+                    .station(laptop != null ? laptop.getStation() : null)
+                    .acknowledged(failure == null)
+                    .message(failure)
+                    .build());
+        }
+
+        if (!acknowledged.isEmpty()) {
+            Map<Long, String> signatureHashes = Collections.emptyMap();
+            if (acknowledgmentDto.getSignature() != null && !acknowledgmentDto.getSignature().trim().isEmpty()) {
+                signatureHashes = signatureService.generateSignatureHashes(acknowledgmentDto.getSignature(),
+                        acknowledged.stream().map(Laptop::getId).collect(Collectors.toList()), currentUser.getId());
+            }
+            LocalDateTime signatureTimestamp = acknowledgmentDto.getSignatureTimestamp() != null
+                    ? acknowledgmentDto.getSignatureTimestamp() : LocalDateTime.now();
+
+            List<LaptopAcknowledgment> acknowledgments = new ArrayList<>(acknowledged.size());
+            for (Laptop laptop : acknowledged) {
+                acknowledgments.add(LaptopAcknowledgment.builder()
+                        .laptop(laptop)
+                        .acknowledgedBy(user)
+                        .notes(acknowledgmentDto.getNotes())
+                        .signature(acknowledgmentDto.getSignature())
+                        .signatureType(acknowledgmentDto.getSignatureType())
+                        .signatureTimestamp(signatureTimestamp)
+                        .ipAddress(acknowledgmentDto.getIpAddress())
+                        .userAgent(acknowledgmentDto.getUserAgent())
+                        .certificateInfo(acknowledgmentDto.getCertificateInfo())
+                        .signatureHash(signatureHashes.get(laptop.getId()))
+                        .build());
+                // Managed entity: the status update is flushed with the rest of the batch on commit
+                laptop.setStatus(LaptopStatus.ISSUED);
+            }
+
+            Map<Long, Long> acknowledgmentIds = laptopAcknowledgmentRepository.saveAll(acknowledgments).stream()
+                    .collect(Collectors.toMap(ack -> ack.getLaptop().getId(), LaptopAcknowledgment::getId));
+            results.forEach(result -> result.setAcknowledgmentId(acknowledgmentIds.get(result.getLaptopId())));
+        }
+
+        return LaptopBulkAcknowledgmentResultDto.builder()
+                .requestedCount(laptopIds.size())
+                .acknowledgedCount(acknowledged.size())
+                .failedCount(laptopIds.size() - acknowledged.size())
+                .results(results)
+                .build();
+    }
+
     /**
      * Manually acknowledge a laptop that is in PENDING_ACKNOWLEDGMENT status
      * This converts the status from PENDING_ACKNOWLEDGMENT to ISSUED
@@ -561,9 +807,7 @@ public class LaptopService {
         }
         
         List<Laptop> pendingLaptops = laptopRepository.findByStatusAndStation(LaptopStatus.PENDING_ACKNOWLEDGMENT, stationName);
-        return pendingLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(pendingLaptops);
     }
 
     // Get acknowledgment history for a laptop
@@ -695,60 +939,36 @@ public class LaptopService {
 
     public List<LaptopDto> getAllAcknowledged() {
         List<Laptop> acknowledgedLaptops = laptopRepository.findByStatus(LaptopStatus.ISSUED);
-        return acknowledgedLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(acknowledgedLaptops);
     }
 
     public List<LaptopDto> getAllAcknowledgedByStation(String stationName) {
         List<Laptop> acknowledgedLaptops = laptopRepository.findByStatusAndStation(LaptopStatus.ISSUED, stationName);
-        return acknowledgedLaptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(acknowledgedLaptops);
     }
 
     public List<LaptopDto> getLaptopsByStatus(LaptopStatus status) {
         List<Laptop> laptops = laptopRepository.findByStatus(status);
-        return laptops.stream().map(this::entityToDto).collect(Collectors.toList());
+        return entitiesToDtos(laptops);
     }
     
     public List<LaptopDto> getLaptopsByStation(String station) {
         List<Laptop> laptops = laptopRepository.findByStation(station);
-        return laptops.stream()
-                .map(this::entityToDto)
-                .collect(Collectors.toList());
+        return entitiesToDtos(laptops);
     }
 
     // Get laptops in acknowledgment state (PENDING_ACKNOWLEDGMENT status) with notes
     public List<LaptopDto> getLaptopsInAcknowledgmentState(UserDTO currentUser) {
         List<Laptop> acknowledgmentLaptops = laptopRepository.findByStatus(LaptopStatus.PENDING_ACKNOWLEDGMENT);
-        return acknowledgmentLaptops.stream()
-                .map(laptop -> {
-                    LaptopDto dto = entityToDto(laptop);
-                    // Get acknowledgment notes if available
-                    LaptopAcknowledgment acknowledgment = laptopAcknowledgmentRepository.findByLaptopId(laptop.getId()).orElse(null);
-                    if (acknowledgment != null) {
-                        dto.setNotes(acknowledgment.getNotes());
-                    }
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Acknowledgment notes are copied when available
+        return entitiesToDtos(acknowledgmentLaptops, acknowledgment -> true);
     }
 
     // Get laptops pending acknowledgment (overloaded method without station parameter) with notes
     public List<LaptopDto> getLaptopsPendingAcknowledgment(UserDTO currentUser) {
         List<Laptop> pendingLaptops = laptopRepository.findByStatus(LaptopStatus.PENDING_ACKNOWLEDGMENT);
-        return pendingLaptops.stream()
-                .map(laptop -> {
-                    LaptopDto dto = entityToDto(laptop);
-                    // Get acknowledgment notes if available
-                    LaptopAcknowledgment acknowledgment = laptopAcknowledgmentRepository.findByLaptopId(laptop.getId()).orElse(null);
-                    if (acknowledgment != null) {
-                        dto.setNotes(acknowledgment.getNotes());
-                    }
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Acknowledgment notes are copied when available
+        return entitiesToDtos(pendingLaptops, acknowledgment -> true);
     }
 
     // Report a laptop issue - automatically sets status to PENDING_ACKNOWLEDGMENT
@@ -793,18 +1013,9 @@ public class LaptopService {
     // Get laptops with reported issues (PENDING_ACKNOWLEDGMENT status)
     public List<LaptopDto> getLaptopsWithReportedIssues() {
         List<Laptop> laptopsWithIssues = laptopRepository.findByStatus(LaptopStatus.PENDING_ACKNOWLEDGMENT);
-        return laptopsWithIssues.stream()
-                .map(laptop -> {
-                    LaptopDto dto = entityToDto(laptop);
-                    // Get acknowledgment notes if available (contains issue description)
-                    LaptopAcknowledgment acknowledgment = laptopAcknowledgmentRepository.findByLaptopId(laptop.getId()).orElse(null);
-                    if (acknowledgment != null && acknowledgment.getNotes() != null && 
-                        acknowledgment.getNotes().startsWith("Issue reported:")) {
-                        dto.setNotes(acknowledgment.getNotes());
-                    }
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        // Acknowledgment notes are copied when they contain the issue description
+        return entitiesToDtos(laptopsWithIssues, acknowledgment -> acknowledgment.getNotes() != null &&
+                acknowledgment.getNotes().startsWith("Issue reported:"));
     }
 
     // Acknowledge a reported laptop issue
@@ -0,0 +1,172 @@
+package io.getarrays.securecapita.itinventory;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory trigram index over the laptop text columns used by the "contains" counts and search.
+ * A substring query intersects the posting lists of its trigrams, starting with the rarest, and
+ * checks the few remaining candidates, instead of scanning every row with LIKE '%text%'.
+ * Maintained on write by {@link LaptopSearchIndexListener} and built by {@link LaptopTrigramIndexLoader}.
+ */
+@Component
+public class LaptopTrigramIndex {
+
+    public enum Field {
+        EMAIL(Laptop::getEmail),
+        SERIAL_NUMBER(Laptop::getSerialNumber),
+        MANUFACTURER(Laptop::getManufacturer),
+        DEPARTMENT(Laptop::getDepartment),
+        DESIGNATION(Laptop::getDesignation),
+        ISSUED_TO(Laptop::getIssuedTo);
+
+        private final Function<Laptop, String> getter;
+
+        Field(Function<Laptop, String> getter) {
+            this.getter = getter;
+        }
+
+        public String valueOf(Laptop laptop) {
+            return getter.apply(laptop);
+        }
+    }
+
+    private static final int GRAM = 3;
+
+    private final Map<Field, FieldIndex> fields = new EnumMap<>(Field.class);
+    private volatile boolean ready;
+
+    public LaptopTrigramIndex() {
+        for (Field field : Field.values()) {
+            fields.put(field, new FieldIndex());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Long laptopId, Map<Field, String> values) {
+        for (Field field : Field.values()) {
+            fields.get(field).put(laptopId, values.get(field));
+        }
+    }
+
+    public static Map<Field, String> valuesOf(Laptop laptop) {
+        Map<Field, String> values = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            values.put(field, field.valueOf(laptop));
+        }
+        return values;
+    }
+
+    public void remove(Long laptopId) {
+        for (FieldIndex fieldIndex : fields.values()) {
+            fieldIndex.put(laptopId, null);
+        }
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Ids of laptops whose field contains the text, ignoring case
+     */
+    public Set<Long> search(Field field, String searchText) {
+        return fields.get(field).search(normalize(searchText));
+    }
+
+    public long count(Field field, String searchText) {
+        return search(field, searchText).size();
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class FieldIndex {
+        private final Map<Long, String> values = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+        // Replace the indexed value of one laptop; a null value removes it
+        synchronized void put(Long laptopId, String value) {
+            String normalized = value != null ? normalize(value) : null;
+            String previous = normalized != null ? values.put(laptopId, normalized) : values.remove(laptopId);
+            if (previous != null && previous.equals(normalized)) {
+                return;
+            }
+            if (previous != null) {
+                for (String gram : trigrams(previous)) {
+                    Set<Long> ids = postings.get(gram);
+                    if (ids != null) {
+                        ids.remove(laptopId);
+                        if (ids.isEmpty()) {
+                            postings.remove(gram);
+                        }
+                    }
+                }
+            }
+            if (normalized != null) {
+                for (String gram : trigrams(normalized)) {
+                    postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(laptopId);
+                }
+            }
+        }
+
+        Set<Long> search(String text) {
+            if (text.length() < GRAM) {
+                // No trigram to look up; scan the indexed values, which is still cheaper than the table
+                Set<Long> result = new HashSet<>();
+                values.forEach((id, value) -> {
+                    if (value.contains(text)) {
+                        result.add(id);
+                    }
+                });
+                return result;
+            }
+
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : trigrams(text)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                lists.add(ids);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            Set<Long> result = new HashSet<>();
+            for (Long id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                // Trigrams can match out of order, so confirm the candidate really contains the text
+                String value = values.get(id);
+                if (inAll && value != null && value.contains(text)) {
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+    }
+}
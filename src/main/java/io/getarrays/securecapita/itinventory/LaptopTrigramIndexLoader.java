@@ -0,0 +1,40 @@
+package io.getarrays.securecapita.itinventory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Builds {@link LaptopTrigramIndex} from the database at startup
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LaptopTrigramIndexLoader {
+
+    private final LaptopRepository laptopRepository;
+    private final LaptopTrigramIndex laptopTrigramIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int indexed = 0;
+        for (Object[] row : laptopRepository.findSearchableColumns()) {
+            Map<LaptopTrigramIndex.Field, String> values = new EnumMap<>(LaptopTrigramIndex.Field.class);
+            values.put(LaptopTrigramIndex.Field.EMAIL, (String) row[1]);
+            values.put(LaptopTrigramIndex.Field.SERIAL_NUMBER, (String) row[2]);
+            values.put(LaptopTrigramIndex.Field.MANUFACTURER, (String) row[3]);
+            values.put(LaptopTrigramIndex.Field.DEPARTMENT, (String) row[4]);
+            values.put(LaptopTrigramIndex.Field.DESIGNATION, (String) row[5]);
+            values.put(LaptopTrigramIndex.Field.ISSUED_TO, (String) row[6]);
+            laptopTrigramIndex.index((Long) row[0], values);
+            indexed++;
+        }
+        laptopTrigramIndex.markReady();
+        log.info("Laptop trigram index built for {} laptops", indexed);
+    }
+}
@@ -106,6 +106,15 @@ public class LicenceController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Get all dashboard counts (status, type, vendor, supplier, department, station, currency,
+     * expiry year) from one grouped query, cached for a short time
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<LicenceStatisticsDto> getStatistics() {
+        return ResponseEntity.ok(licenceService.getStatistics());
+    }
+
     /**
      * Get count by status
      */
@@ -16,6 +16,9 @@ public interface LicenceInterface {
 
     // Get comprehensive count statistics
     Map<String, Object> getCountStatistics();
+
+    // Grouped counts for the licence dashboard in one round trip
+    LicenceStatisticsDto getStatistics();
     
     // Additional count methods for LicenceController
     long getCountByStatus(LicenseStatus status);
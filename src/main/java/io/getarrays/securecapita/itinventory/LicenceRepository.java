@@ -76,4 +76,22 @@ public interface LicenceRepository extends JpaRepository<Licence, Long> {
     // Count by notes containing text
     @Query("SELECT COUNT(l) FROM Licence l WHERE l.notes LIKE %:searchText%")
     long countByNotesContaining(@Param("searchText") String searchText);
-} 
\ No newline at end of file
+
+    // Every statistics breakdown in one round trip: one GROUP BY per dimension joined with UNION ALL.
+    // Rows are the dimension, its value (text, or numeric for the expiry year) and the count, plus
+    // single ASSIGNED and EXPIRED counts. PostgreSQL types UNION columns pair by pair from the left,
+    // so the numeric branch comes first.
+    @Query(value = "SELECT 'EXPIRY_YEAR' AS dimension, NULL AS text_value, EXTRACT(YEAR FROM expiry_date) AS number_value, COUNT(*) AS total " +
+           "FROM licence GROUP BY EXTRACT(YEAR FROM expiry_date) " +
+           "UNION ALL SELECT 'STATUS', status, NULL, COUNT(*) FROM licence GROUP BY status " +
+           "UNION ALL SELECT 'LICENSE_TYPE', license_type, NULL, COUNT(*) FROM licence GROUP BY license_type " +
+           "UNION ALL SELECT 'VENDOR', vendor, NULL, COUNT(*) FROM licence GROUP BY vendor " +
+           "UNION ALL SELECT 'SUPPLIER', supplier, NULL, COUNT(*) FROM licence GROUP BY supplier " +
+           "UNION ALL SELECT 'DEPARTMENT', department, NULL, COUNT(*) FROM licence GROUP BY department " +
+           "UNION ALL SELECT 'STATION', station, NULL, COUNT(*) FROM licence GROUP BY station " +
+           "UNION ALL SELECT 'CURRENCY', currency, NULL, COUNT(*) FROM licence GROUP BY currency " +
+           "UNION ALL SELECT 'ASSIGNED', NULL, NULL, COUNT(*) FROM licence WHERE laptop_id IS NOT NULL " +
+           "UNION ALL SELECT 'EXPIRED', NULL, NULL, COUNT(*) FROM licence WHERE expiry_date <= CURRENT_TIMESTAMP",
+           nativeQuery = true)
+    List<Object[]> countBreakdowns();
+}
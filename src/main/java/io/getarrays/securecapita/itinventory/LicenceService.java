@@ -15,6 +15,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
 /**
  * Service class for managing software licenses
  */
@@ -27,6 +29,7 @@ public class LicenceService implements LicenceInterface {
     private final LicenceRepository licenceRepository;
     private final UserRepository<User> userRepository;
     private final LaptopRepository laptopRepository;
+    private final LicenceStatisticsService licenceStatisticsService;
 
     @Override
     public Licence addLicenceToLaptop(Long laptopId, Licence licence) {
@@ -40,7 +43,9 @@ public class LicenceService implements LicenceInterface {
 
        licence.setLaptop(laptop);
 
-        return licenceRepository.save(licence);
+        Licence savedLicence = licenceRepository.save(licence);
+        afterCommit(licenceStatisticsService::evict);
+        return savedLicence;
     }
 
     @Override
@@ -56,31 +61,39 @@ public class LicenceService implements LicenceInterface {
 
     @Override
     public Map<String, Object> getCountStatistics() {
+        // Derived from the cached grouped statistics instead of one count query per bucket
+        LicenceStatisticsDto statistics = licenceStatisticsService.getStatistics();
         Map<String, Object> stats = new HashMap<>();
         
         // Total count
-        stats.put("totalLicenses", getTotalCount());
+        stats.put("totalLicenses", statistics.getTotalLicenses());
         
         // Count by status
         for (LicenseStatus status : LicenseStatus.values()) {
-            stats.put("status_" + status.name().toLowerCase(), getCountByStatus(status));
+            stats.put("status_" + status.name().toLowerCase(), statistics.getByStatus().getOrDefault(status.name(), 0L));
         }
         
         // Count by license type
         for (LicenseType type : LicenseType.values()) {
-            stats.put("type_" + type.name().toLowerCase(), getCountByLicenseType(type));
+            stats.put("type_" + type.name().toLowerCase(), statistics.getByLicenseType().getOrDefault(type.name(), 0L));
         }
         
         // Count assigned vs unassigned
-        stats.put("assignedLicenses", getCountAssignedLicenses());
-        stats.put("unassignedLicenses", getCountUnassignedLicenses());
+        stats.put("assignedLicenses", statistics.getAssignedLicenses());
+        stats.put("unassignedLicenses", statistics.getUnassignedLicenses());
         
         // Count expired licenses
-        stats.put("expiredLicenses", getCountExpiredLicenses(new Date()));
+        stats.put("expiredLicenses", statistics.getExpiredLicenses());
         
         return stats;
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public LicenceStatisticsDto getStatistics() {
+        return licenceStatisticsService.getStatistics();
+    }
+    
     // Additional count method implementations
     @Override
     public long getCountByStatus(LicenseStatus status) {
@@ -0,0 +1,38 @@
+package io.getarrays.securecapita.itinventory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO for the licence dashboard: every count bucket from one grouped query.
+ * Licences with no value for a dimension are counted under "UNSPECIFIED".
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LicenceStatisticsDto {
+
+    private long totalLicenses;
+    private long assignedLicenses;
+    private long unassignedLicenses;
+    private long expiredLicenses;
+
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byLicenseType;
+    private Map<String, Long> byVendor;
+    private Map<String, Long> bySupplier;
+    private Map<String, Long> byDepartment;
+    private Map<String, Long> byStation;
+    private Map<String, Long> byCurrency;
+    private Map<String, Long> byExpiryYear;
+
+    private LocalDateTime generatedAt; // When the cached statistics were computed
+}
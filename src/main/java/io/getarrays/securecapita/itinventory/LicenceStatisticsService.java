@@ -0,0 +1,117 @@
+package io.getarrays.securecapita.itinventory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Licence dashboard statistics from one small grouped query per dimension, cached for a
+ * short time so repeated dashboard loads do not hit the database. Writes through
+ * {@link LicenceService} evict the cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class LicenceStatisticsService {
+
+    // Bucket name for licences with no value for a dimension
+    private static final String UNSPECIFIED = "UNSPECIFIED";
+
+    private final LicenceRepository licenceRepository;
+
+    @Value("${licence.statistics.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private volatile CachedStatistics cached;
+
+    @Transactional(readOnly = true)
+    public LicenceStatisticsDto getStatistics() {
+        CachedStatistics current = cached;
+        if (current != null && current.expiresAt() > System.currentTimeMillis()) {
+            return current.statistics();
+        }
+        synchronized (this) {
+            // Another request may have refreshed the cache while this one waited
+            current = cached;
+            if (current != null && current.expiresAt() > System.currentTimeMillis()) {
+                return current.statistics();
+            }
+            LicenceStatisticsDto statistics = aggregate();
+            cached = new CachedStatistics(statistics, System.currentTimeMillis() + cacheTtlMs);
+            return statistics;
+        }
+    }
+
+    public void evict() {
+        cached = null;
+    }
+
+    private LicenceStatisticsDto aggregate() {
+        Map<String, Map<String, Long>> breakdowns = new HashMap<>();
+        long total = 0;
+        long assigned = 0;
+        long expired = 0;
+        for (Object[] row : licenceRepository.countBreakdowns()) {
+            String dimension = (String) row[0];
+            long count = ((Number) row[3]).longValue();
+            switch (dimension) {
+                case "ASSIGNED" -> assigned = count;
+                case "EXPIRED" -> expired = count;
+                default -> {
+                    if (dimension.equals("STATUS")) {
+                        total += count;
+                    }
+                    breakdowns.computeIfAbsent(dimension, key -> new TreeMap<>())
+                            .merge(bucketKey(row), count, Long::sum);
+                }
+            }
+        }
+        Map<String, Long> byStatus = breakdown(breakdowns, "STATUS");
+        Map<String, Long> byLicenseType = breakdown(breakdowns, "LICENSE_TYPE");
+        Map<String, Long> byVendor = breakdown(breakdowns, "VENDOR");
+        Map<String, Long> bySupplier = breakdown(breakdowns, "SUPPLIER");
+        Map<String, Long> byDepartment = breakdown(breakdowns, "DEPARTMENT");
+        Map<String, Long> byStation = breakdown(breakdowns, "STATION");
+        Map<String, Long> byCurrency = breakdown(breakdowns, "CURRENCY");
+        Map<String, Long> byExpiryYear = breakdown(breakdowns, "EXPIRY_YEAR");
+
+        // Cached instances are shared between requests, so hand out read-only maps
+        return LicenceStatisticsDto.builder()
+                .totalLicenses(total)
+                .assignedLicenses(assigned)
+                .unassignedLicenses(total - assigned)
+                .expiredLicenses(expired)
+                .byStatus(Collections.unmodifiableMap(byStatus))
+                .byLicenseType(Collections.unmodifiableMap(byLicenseType))
+                .byVendor(Collections.unmodifiableMap(byVendor))
+                .bySupplier(Collections.unmodifiableMap(bySupplier))
+                .byDepartment(Collections.unmodifiableMap(byDepartment))
+                .byStation(Collections.unmodifiableMap(byStation))
+                .byCurrency(Collections.unmodifiableMap(byCurrency))
+                .byExpiryYear(Collections.unmodifiableMap(byExpiryYear))
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    // An empty table has no rows for any dimension
+    private static Map<String, Long> breakdown(Map<String, Map<String, Long>> breakdowns, String dimension) {
+        return breakdowns.getOrDefault(dimension, new TreeMap<>());
+    }
+
+    // Years come back as DECIMAL or BIGINT depending on the database
+    private static String bucketKey(Object[] row) {
+        if (row[1] != null) {
+            return row[1].toString();
+        }
+        return row[2] != null ? String.valueOf(((Number) row[2]).longValue()) : UNSPECIFIED;
+    }
+
+    private record CachedStatistics(LicenceStatisticsDto statistics, long expiresAt) {
+    }
+}
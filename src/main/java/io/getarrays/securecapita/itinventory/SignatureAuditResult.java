@@ -0,0 +1,49 @@
+package io.getarrays.securecapita.itinventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of re-verifying stored acknowledgment signatures in bulk. Only the acknowledgments that
+ * failed verification are listed; the counts cover every acknowledgment checked.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignatureAuditResult {
+    private long totalChecked;
+    private long validCount;
+    private long invalidCount;
+    private long unsignedCount;      // No signature stored, e.g. automatic acknowledgments
+    private long unrecognizedCount;  // Signature is not one generated by SignatureService, e.g. a drawn image
+    private long elapsedMillis;
+    private double signaturesPerSecond;
+    private int parallelism;
+    private boolean failuresTruncated;
+
+    @Builder.Default
+    private List<Entry> failures = new ArrayList<>();
+
+    public enum Outcome {
+        VALID,
+        INVALID,
+        UNSIGNED,
+        UNRECOGNIZED
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        private Long acknowledgmentId;
+        private Long laptopId;
+        private Outcome outcome;
+        private String message;
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/signatures")
@@ -46,6 +48,16 @@ public class SignatureController {
         return ResponseEntity.ok(new CustomMessage("Signature verification completed", result));
     }
     
+    /**
+     * Re-verify stored acknowledgment signatures in bulk, all of them when no ids are given
+     */
+    @PostMapping("/verify/batch")
+    public ResponseEntity<CustomMessage> verifySignatures(@RequestBody(required = false) SignatureBatchVerificationRequest request) {
+        SignatureAuditResult result = signatureService.verifyAcknowledgmentSignatures(
+            request != null ? request.getAcknowledgmentIds() : null);
+        return ResponseEntity.ok(new CustomMessage("Signature batch verification completed", result));
+    }
+    
     /**
      * Generate signature hash for storage
      */
@@ -64,6 +76,24 @@ public class SignatureController {
         return ResponseEntity.ok(new CustomMessage("Signature statistics retrieved successfully", statistics));
     }
     
+    /**
+     * Get signature statistics across the organization
+     */
+    @GetMapping("/statistics/organization")
+    public ResponseEntity<CustomMessage> getOrganizationSignatureStatistics() {
+        SignatureStatistics statistics = signatureService.getOrganizationSignatureStatistics();
+        return ResponseEntity.ok(new CustomMessage("Organization signature statistics retrieved successfully", statistics));
+    }
+    
+    /**
+     * Get signature statistics per station
+     */
+    @GetMapping("/statistics/stations")
+    public ResponseEntity<CustomMessage> getStationSignatureStatistics() {
+        Map<String, SignatureStatistics> statistics = signatureService.getStationSignatureStatistics();
+        return ResponseEntity.ok(new CustomMessage("Station signature statistics retrieved successfully", statistics));
+    }
+    
     /**
      * Get signature metadata for a laptop
      */
@@ -93,6 +123,14 @@ public class SignatureController {
         public void setSignature(String signature) { this.signature = signature; }
     }
     
+    public static class SignatureBatchVerificationRequest {
+        private List<Long> acknowledgmentIds;
+        
+        // Getters and setters
+        public List<Long> getAcknowledgmentIds() { return acknowledgmentIds; }
+        public void setAcknowledgmentIds(List<Long> acknowledgmentIds) { this.acknowledgmentIds = acknowledgmentIds; }
+    }
+    
     public static class SignatureHashRequest {
         private String signature;
         private Long laptopId;
@@ -8,6 +8,7 @@ import io.getarrays.securecapita.repository.UserRepository;
 import io.getarrays.securecapita.repository.implementation.UserRepository1;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,9 +17,17 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
@@ -26,6 +35,20 @@ import java.util.Optional;
 @Slf4j
 public class SignatureService {
     
+    private static final int VERIFICATION_CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_FAILURES = 500;
+    private static final byte SEPARATOR = '|';
+    private static final String UNSPECIFIED_STATION = "UNSPECIFIED";
+    
+    // MessageDigest is not thread-safe, so each thread keeps its own instead of a lookup per hash
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+    
     private final LaptopAcknowledgmentRepository laptopAcknowledgmentRepository;
     private final UserRepository1 userRepository1;
     
@@ -194,56 +217,227 @@ public class SignatureService {
     }
     
     /**
-     * Get signature statistics for a user
+     * Generate storage hashes for one signature applied to many laptops. The signature prefix is
+     * digested once and the digest state cloned per laptop, giving the same hashes as
+     * {@link #generateSignatureHash} without re-hashing the (often large) signature each time.
      */
-    public SignatureStatistics getSignatureStatistics(UserDTO currentUser) {
+    public Map<Long, String> generateSignatureHashes(String signature, Collection<Long> laptopIds, Long userId) {
         try {
-            List<LaptopAcknowledgment> userAcknowledgment = laptopAcknowledgmentRepository
-                .findByAcknowledgedByUserId(currentUser.getId());
-            
-            long totalSignatures = userAcknowledgment.size();
-            long validSignatures = userAcknowledgment.stream()
-                .filter(ack -> ack.getSignatureHash() != null)
-                .count();
-            
-            return SignatureStatistics.builder()
-                .totalSignatures(totalSignatures)
-                .validSignatures(validSignatures)
-                .invalidSignatures(totalSignatures - validSignatures)
-                .lastSignatureDate(userAcknowledgment.stream()
-                    .map(LaptopAcknowledgment::getSignatureTimestamp)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null))
-                .build();
-                
+            MessageDigest prefix = (MessageDigest) SHA_256.get().clone();
+            prefix.update((signature + "|").getBytes(StandardCharsets.UTF_8));
+            long timestamp = System.currentTimeMillis();
+            Map<Long, String> hashes = new HashMap<>();
+            for (Long laptopId : laptopIds) {
+                MessageDigest digest = (MessageDigest) prefix.clone();
+                byte[] hash = digest.digest((laptopId + "|" + userId + "|" + timestamp).getBytes(StandardCharsets.UTF_8));
+                hashes.put(laptopId, Base64.getEncoder().encodeToString(hash));
+            }
+            return hashes;
         } catch (Exception e) {
-            log.error("Error getting signature statistics: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to get signature statistics", e);
+            log.error("Error generating signature hashes: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to generate signature hashes", e);
+        }
+    }
+    
+    /**
+     * Re-verify stored acknowledgment signatures for an audit, all of them when no ids are given.
+     * Rows are read in keyset chunks as plain column projections and each chunk is verified in
+     * parallel on byte arrays; the recency check of {@link #validateSignature} is not applied.
+     */
+    @Transactional(readOnly = true)
+    public SignatureAuditResult verifyAcknowledgmentSignatures(List<Long> acknowledgmentIds) {
+        long started = System.nanoTime();
+        SignatureAuditResult result = SignatureAuditResult.builder()
+            .parallelism(ForkJoinPool.getCommonPoolParallelism() + 1)
+            .build();
+        
+        if (acknowledgmentIds != null && !acknowledgmentIds.isEmpty()) {
+            List<Long> ids = acknowledgmentIds.stream().distinct().collect(Collectors.toList());
+            for (int from = 0; from < ids.size(); from += VERIFICATION_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + VERIFICATION_CHUNK_SIZE, ids.size()));
+                verifyChunk(laptopAcknowledgmentRepository.findSignatureRowsByIdIn(chunk), result);
+            }
+        } else {
+            long afterId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = laptopAcknowledgmentRepository.findSignatureRowsAfter(afterId, PageRequest.of(0, VERIFICATION_CHUNK_SIZE));
+                verifyChunk(rows, result);
+                if (!rows.isEmpty()) {
+                    afterId = (Long) rows.get(rows.size() - 1)[0];
+                }
+            } while (rows.size() == VERIFICATION_CHUNK_SIZE);
+        }
+        
+        long elapsedNanos = System.nanoTime() - started;
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.setSignaturesPerSecond(elapsedNanos > 0 ? result.getTotalChecked() * 1_000_000_000.0 / elapsedNanos : 0.0);
+        log.info("Verified {} acknowledgment signatures in {} ms ({} invalid, {} unrecognized)",
+            result.getTotalChecked(), result.getElapsedMillis(), result.getInvalidCount(), result.getUnrecognizedCount());
+        return result;
+    }
+    
+    private void verifyChunk(List<Object[]> rows, SignatureAuditResult result) {
+        List<SignatureAuditResult.Entry> entries = rows.parallelStream()
+            .map(this::verifyRow)
+            .collect(Collectors.toList());
+        
+        for (SignatureAuditResult.Entry entry : entries) {
+            result.setTotalChecked(result.getTotalChecked() + 1);
+            switch (entry.getOutcome()) {
+                case VALID -> result.setValidCount(result.getValidCount() + 1);
+                case UNSIGNED -> result.setUnsignedCount(result.getUnsignedCount() + 1);
+                case INVALID -> result.setInvalidCount(result.getInvalidCount() + 1);
+                case UNRECOGNIZED -> result.setUnrecognizedCount(result.getUnrecognizedCount() + 1);
+            }
+            if (entry.getOutcome() == SignatureAuditResult.Outcome.INVALID
+                    || entry.getOutcome() == SignatureAuditResult.Outcome.UNRECOGNIZED) {
+                if (result.getFailures().size() < MAX_REPORTED_FAILURES) {
+                    result.getFailures().add(entry);
+                } else {
+                    result.setFailuresTruncated(true);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Verify one projection row from {@link LaptopAcknowledgmentRepository#findSignatureRowsAfter}.
+     * A generated signature decodes to "hash|timestamp|userId|laptopId" where hash is the Base64
+     * SHA-256 of the acknowledgment payload.
+     */
+    private SignatureAuditResult.Entry verifyRow(Object[] row) {
+        Long acknowledgmentId = (Long) row[0];
+        Long laptopId = (Long) row[1];
+        Long userId = (Long) row[5];
+        String signature = (String) row[8];
+        
+        if (signature == null || signature.isBlank()) {
+            return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.UNSIGNED, null);
+        }
+        
+        byte[] decoded;
+        byte[] signedHash;
+        int first;
+        int second;
+        int third;
+        try {
+            decoded = Base64.getDecoder().decode(signature);
+            first = indexOf(decoded, SEPARATOR, 0);
+            second = first < 0 ? -1 : indexOf(decoded, SEPARATOR, first + 1);
+            third = second < 0 ? -1 : indexOf(decoded, SEPARATOR, second + 1);
+            if (third < 0 || indexOf(decoded, SEPARATOR, third + 1) >= 0) {
+                return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.UNRECOGNIZED,
+                    "Signature is not a generated digital signature");
+            }
+            signedHash = Base64.getDecoder().decode(Arrays.copyOfRange(decoded, 0, first));
+        } catch (IllegalArgumentException e) {
+            return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.UNRECOGNIZED,
+                "Signature is not a generated digital signature");
+        }
+        
+        String signedUserId = new String(decoded, second + 1, third - second - 1, StandardCharsets.US_ASCII);
+        String signedLaptopId = new String(decoded, third + 1, decoded.length - third - 1, StandardCharsets.US_ASCII);
+        if (!signedLaptopId.equals(String.valueOf(laptopId))) {
+            return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.INVALID,
+                "Laptop ID mismatch");
         }
+        if (userId == null || !signedUserId.equals(userId.toString())) {
+            return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.INVALID,
+                "Signer does not match the acknowledging user");
+        }
+        
+        String payload = createSignaturePayload(laptopId, (String) row[2], (String) row[3], (String) row[4],
+            userId, (String) row[6], (String) row[7]);
+        if (!MessageDigest.isEqual(signedHash, sha256(payload.getBytes(StandardCharsets.UTF_8)))) {
+            return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.INVALID,
+                "Signature hash does not match the acknowledgment data");
+        }
+        return new SignatureAuditResult.Entry(acknowledgmentId, laptopId, SignatureAuditResult.Outcome.VALID, null);
+    }
+    
+    /**
+     * Get signature statistics for a user
+     */
+    @Transactional(readOnly = true)
+    public SignatureStatistics getSignatureStatistics(UserDTO currentUser) {
+        return toStatistics(laptopAcknowledgmentRepository.aggregateSignaturesByUserId(currentUser.getId()).get(0));
+    }
+    
+    /**
+     * Get signature statistics across the whole organization
+     */
+    @Transactional(readOnly = true)
+    public SignatureStatistics getOrganizationSignatureStatistics() {
+        return toStatistics(laptopAcknowledgmentRepository.aggregateSignatures().get(0));
+    }
+    
+    /**
+     * Get signature statistics per laptop station; laptops without a station are under "UNSPECIFIED"
+     */
+    @Transactional(readOnly = true)
+    public Map<String, SignatureStatistics> getStationSignatureStatistics() {
+        Map<String, SignatureStatistics> statistics = new TreeMap<>();
+        for (Object[] row : laptopAcknowledgmentRepository.aggregateSignaturesByStation()) {
+            statistics.put(row[3] != null ? row[3].toString() : UNSPECIFIED_STATION, toStatistics(row));
+        }
+        return statistics;
+    }
+    
+    // Maps an aggregate row of count, signed count and latest timestamp; SUM is null when no rows match
+    private SignatureStatistics toStatistics(Object[] row) {
+        long totalSignatures = row[0] != null ? ((Number) row[0]).longValue() : 0L;
+        long validSignatures = row[1] != null ? ((Number) row[1]).longValue() : 0L;
+        return SignatureStatistics.builder()
+            .totalSignatures(totalSignatures)
+            .validSignatures(validSignatures)
+            .invalidSignatures(totalSignatures - validSignatures)
+            .lastSignatureDate((LocalDateTime) row[2])
+            .build();
     }
     
     /**
      * Create signature payload for hashing
      */
     private String createSignaturePayload(LaptopAcknowledgmentDto acknowledgmentDto, UserDTO currentUser) {
-        return String.format("%s|%s|%s|%s|%s|%s|%s",
+        return createSignaturePayload(
             acknowledgmentDto.getLaptopId(),
             acknowledgmentDto.getLaptopSerialNumber(),
             acknowledgmentDto.getLaptopIssuedTo(),
             acknowledgmentDto.getLaptopStation(),
             currentUser.getId(),
             currentUser.getEmail(),
-            acknowledgmentDto.getNotes() != null ? acknowledgmentDto.getNotes() : ""
+            acknowledgmentDto.getNotes()
         );
     }
     
+    private String createSignaturePayload(Long laptopId, String serialNumber, String issuedTo, String station,
+                                          Long userId, String email, String notes) {
+        return String.format("%s|%s|%s|%s|%s|%s|%s",
+            laptopId, serialNumber, issuedTo, station, userId, email, notes != null ? notes : "");
+    }
+    
     /**
      * Generate SHA-256 hash of the given string
      */
-    private String generateHash(String input) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-        return Base64.getEncoder().encodeToString(hash);
+    private String generateHash(String input) {
+        return Base64.getEncoder().encodeToString(sha256(input.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    /**
+     * SHA-256 with the calling thread's digest; digest() resets it for the next call
+     */
+    private static byte[] sha256(byte[] input) {
+        return SHA_256.get().digest(input);
+    }
+    
+    private static int indexOf(byte[] bytes, byte value, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
     }
     
     /**
@@ -2,15 +2,20 @@ package io.getarrays.securecapita.maintenance;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MaintenanceRepository extends JpaRepository<Maintenance, Long> {
     
     List<Maintenance> findByLaptopId(Long laptopId);
+
+    @Query("SELECT m FROM Maintenance m WHERE m.laptop.id IN :laptopIds ORDER BY m.id")
+    List<Maintenance> findByLaptopIdIn(@Param("laptopIds") Collection<Long> laptopIds);
     
     List<Maintenance> findByStatus(MaintenanceStatus status);
     
@@ -0,0 +1,259 @@
+package io.getarrays.securecapita.recordings;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed, content-addressed store for archived recording audio. Each file is kept once,
+ * gzip compressed and named by the SHA-256 of its original content. A recording in the store has
+ * the stored path {@code cold:<hash><extension>}. Reads decompress into a small directory of
+ * recently used files, evicted least recently used first once it exceeds its size limit, so
+ * range requests and repeat plays work on a plain file. Every {@link #rehydrate} pins the copy
+ * until the matching {@link #release}, and pinned copies are never evicted, so a response that
+ * has been handed a copy can always read it to the end.
+ */
+@Component
+@Slf4j
+public class RecordingColdStore {
+
+    public static final String COLD_PREFIX = "cold:";
+
+    private static final int HASH_LENGTH = 64;
+    private static final Pattern COLD_PATH = Pattern.compile("cold:[0-9a-f]{64}(\\.[A-Za-z0-9]{1,10})?");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path rehydratedDir;
+    private final long rehydratedMaxBytes;
+
+    // Rehydrated file name -> size, in access order; guarded by its own monitor, as are the pins
+    private final LinkedHashMap<String, Long> rehydrated = new LinkedHashMap<>(16, 0.75f, true);
+    private long rehydratedBytes;
+    // Rehydrated file name -> number of readers that have not released it yet
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Map<String, Object> rehydrationLocks = new ConcurrentHashMap<>();
+
+    public RecordingColdStore(@Value("${recordings.cold-storage.root:uploads/cold}") String root,
+                              @Value("${recordings.cold-storage.rehydrated-max-bytes:1073741824}") long rehydratedMaxBytes) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.rehydratedDir = this.root.resolve(".rehydrated");
+        this.rehydratedMaxBytes = rehydratedMaxBytes;
+    }
+
+    // Rehydrated copies from a previous run are not tracked, so start empty
+    @PostConstruct
+    void clearRehydrated() {
+        if (!Files.isDirectory(rehydratedDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rehydratedDir)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clear rehydrated recordings in {}: {}", rehydratedDir, e.getMessage());
+        }
+    }
+
+    public static boolean isCold(String storedPath) {
+        return storedPath != null && storedPath.startsWith(COLD_PREFIX);
+    }
+
+    /**
+     * Stored path for content in the store, keeping the extension of the original file so the
+     * content type can still be told from it
+     */
+    public static String storedPath(String contentHash, String originalPath) {
+        String name = Paths.get(originalPath).getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        String extension = dotIndex > 0 ? name.substring(dotIndex) : "";
+        String storedPath = COLD_PREFIX + contentHash + extension;
+        return COLD_PATH.matcher(storedPath).matches() ? storedPath : COLD_PREFIX + contentHash;
+    }
+
+    public boolean contains(String storedPath) {
+        return Files.isRegularFile(archiveFile(hashOf(storedPath)));
+    }
+
+    public Path archiveFile(String contentHash) {
+        return root.resolve(contentHash.substring(0, 2)).resolve(contentHash + ".gz");
+    }
+
+    /**
+     * Compress a file into the store, hashing it on the way
+     *
+     * @return the content hash the file is stored under
+     */
+    public String store(Path file) throws IOException {
+        Files.createDirectories(root);
+        MessageDigest digest = newSha256();
+        Path temp = Files.createTempFile(root, "store-", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE) {
+                     {
+                         def.setLevel(Deflater.BEST_COMPRESSION);
+                     }
+                 }) {
+                in.transferTo(out);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            Path target = archiveFile(contentHash);
+            // Identical content is already stored; keep the existing copy
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                move(temp, target);
+            }
+            return contentHash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Decompressed copy of a stored recording, reused while it stays in the recently used set. The
+     * copy is pinned; every call must be followed by one {@link #release} once the copy is read.
+     */
+    public Path rehydrate(String storedPath) throws IOException {
+        String contentHash = hashOf(storedPath);
+        String name = storedPath.substring(COLD_PREFIX.length());
+        Path target = rehydratedDir.resolve(name);
+        if (isRehydrated(name, target)) {
+            return target;
+        }
+
+        // One decompression per file even when several requests arrive together
+        Object lock = rehydrationLocks.computeIfAbsent(name, key -> new Object());
+        try {
+            synchronized (lock) {
+                if (isRehydrated(name, target)) {
+                    return target;
+                }
+                Path archive = archiveFile(contentHash);
+                if (!Files.exists(archive)) {
+                    throw new NoSuchFileException(archive.toString());
+                }
+                long started = System.currentTimeMillis();
+                Files.createDirectories(rehydratedDir);
+                Path temp = Files.createTempFile(rehydratedDir, "rehydrate-", ".tmp");
+                try {
+                    // GZIPInputStream checks the CRC at the end, so a damaged archive fails here
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(archive), BUFFER_SIZE);
+                         OutputStream out = Files.newOutputStream(temp)) {
+                        in.transferTo(out);
+                    }
+                    move(temp, target);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+
+                long size = Files.size(target);
+                synchronized (rehydrated) {
+                    Long previous = rehydrated.put(name, size);
+                    rehydratedBytes += size - (previous != null ? previous : 0L);
+                    pins.merge(name, 1, Integer::sum);
+                    evictOverLimit();
+                }
+                log.info("Rehydrated {} ({} bytes) in {} ms", name, size, System.currentTimeMillis() - started);
+                return target;
+            }
+        } finally {
+            rehydrationLocks.remove(name);
+        }
+    }
+
+    /**
+     * Unpin a copy returned by {@link #rehydrate}, letting it be evicted again
+     */
+    public void release(String storedPath) {
+        String name = storedPath.substring(COLD_PREFIX.length());
+        synchronized (rehydrated) {
+            Integer remaining = pins.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                // The set may have gone over its limit while this copy was pinned
+                evictOverLimit();
+            }
+        }
+    }
+
+    // Pins the copy when it is there, in the same step as the check, so it cannot be evicted in between
+    private boolean isRehydrated(String name, Path target) {
+        synchronized (rehydrated) {
+            // get() also marks the entry as recently used
+            if (rehydrated.get(name) == null || !Files.exists(target)) {
+                return false;
+            }
+            pins.merge(name, 1, Integer::sum);
+            return true;
+        }
+    }
+
+    // Caller holds the rehydrated monitor; pinned copies are skipped, so the set can stay over its
+    // limit until they are released
+    private void evictOverLimit() {
+        Iterator<Map.Entry<String, Long>> eldest = rehydrated.entrySet().iterator();
+        while (rehydratedBytes > rehydratedMaxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            eldest.remove();
+            rehydratedBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(rehydratedDir.resolve(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not remove rehydrated recording {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    // The hash and extension become file names, so nothing else is accepted
+    private static String hashOf(String storedPath) {
+        if (!isCold(storedPath) || !COLD_PATH.matcher(storedPath).matches()) {
+            throw new IllegalArgumentException("Not a cold storage path: " + storedPath);
+        }
+        return storedPath.substring(COLD_PREFIX.length(), COLD_PREFIX.length() + HASH_LENGTH);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes the content hash of recordings uploaded before content hashes existed, so file
+ * requests never hash a whole file inline. Until a recording is hashed its file is served without
+ * an ETag. Files are hashed one at a time on a background thread, once per stored file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingContentHashBackfill {
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+
+    @Value("${recordings.content-hash.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            start();
+        }
+    }
+
+    /**
+     * @return false when a backfill is already running
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::backfill, "recording-hash-backfill");
+        thread.setDaemon(true);
+        // Keep request threads ahead of the backfill
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return true;
+    }
+
+    private void backfill() {
+        int hashed = 0;
+        try {
+            for (String storedPath : recordingsRepository.findDistinctFilePathsWithoutContentHash()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (hash(storedPath)) {
+                    hashed++;
+                }
+            }
+            log.info("Content hash backfill hashed {} files", hashed);
+        } catch (Exception e) {
+            log.error("Content hash backfill failed: {}", e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private boolean hash(String storedPath) {
+        long started = System.currentTimeMillis();
+        try (RecordingStorage.StoredFile storedFile = recordingStorage.open(storedPath)) {
+            if (!Files.isRegularFile(storedFile.path())) {
+                log.warn("Audio file missing, no content hash for {}", storedPath);
+                return false;
+            }
+            Date modifiedAt = new Date(Files.getLastModifiedTime(storedFile.path()).toMillis());
+            MessageDigest digest = newSha256();
+            try (InputStream in = new DigestInputStream(Files.newInputStream(storedFile.path()), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            int updated = recordingsRepository.setMissingContentHash(storedPath,
+                    HexFormat.of().formatHex(digest.digest()), modifiedAt);
+            log.info("Computed content hash of {} for {} recordings in {} ms", storedPath, updated,
+                    System.currentTimeMillis() - started);
+            return updated > 0;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Cannot compute content hash of {}: {}", storedPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
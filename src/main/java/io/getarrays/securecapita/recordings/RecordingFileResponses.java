@@ -0,0 +1,238 @@
+package io.getarrays.securecapita.recordings;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds recording file responses with HTTP Range support (RFC 7233): a full 200 response, a 206
+ * for one range, a multipart/byteranges 206 for several ranges and a 416 when no range can be
+ * satisfied. Overlapping and adjacent ranges are merged, and a Range header asking for too many
+ * ranges, or for more bytes in total than the file holds, is answered with the whole file. Bytes
+ * are copied with {@link FileChannel#transferTo} so no file is held in memory. Responses carry
+ * the stored content hash as a strong ETag, Last-Modified and Cache-Control.
+ */
+final class RecordingFileResponses {
+
+    private static final String EXPOSED_HEADERS =
+            "Content-Disposition, Content-Range, Accept-Ranges, Content-Length, ETag, Last-Modified";
+    private static final long ARCHIVED_MAX_AGE_DAYS = 365;
+    // More ranges than a player or download manager asks for; beyond this the whole file is cheaper to send
+    private static final int MAX_RANGES = 16;
+
+    private RecordingFileResponses() {
+    }
+
+    /**
+     * True when the client's cached copy is current: If-None-Match matches the stored content hash,
+     * or, without If-None-Match, If-Modified-Since is not older than the content change date.
+     * Uses only the stored recording metadata, never the file.
+     */
+    static boolean isNotModified(Recordings recording, HttpHeaders requestHeaders) {
+        String eTag = eTag(recording);
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // If-None-Match uses weak comparison, so W/ prefixes are ignored
+            return eTag != null && ifNoneMatch.stream()
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(eTag));
+        }
+        long lastModified = lastModified(recording);
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return lastModified >= 0 && ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    static ResponseEntity<StreamingResponseBody> notModified(Recordings recording) {
+        return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), recording).build();
+    }
+
+    /**
+     * Takes over the stored file: it is closed once the body has been written, or straight away
+     * when the response has no body.
+     *
+     * @param length file size from the caller's single attribute read
+     */
+    static ResponseEntity<StreamingResponseBody> fileResponse(RecordingStorage.StoredFile storedFile, long length,
+                                                              Recordings recording, String contentType,
+                                                              String contentDisposition, HttpHeaders requestHeaders) {
+        Path file = storedFile.path();
+        List<long[]> regions;
+        try {
+            regions = isRangeApplicable(recording, requestHeaders)
+                    ? toRegions(requestHeaders.getFirst(HttpHeaders.RANGE), length)
+                    : new ArrayList<>();
+        } catch (IllegalArgumentException e) {
+            storedFile.close();
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder builder;
+        StreamingResponseBody body;
+        if (regions.isEmpty()) {
+            builder = ResponseEntity.ok()
+                    .contentType(MediaType.valueOf(contentType))
+                    .contentLength(length);
+            body = outputStream -> {
+                try (storedFile) {
+                    transfer(file, 0, length, outputStream);
+                }
+            };
+        } else if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(MediaType.valueOf(contentType))
+                    .contentLength(end - start + 1)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            body = outputStream -> {
+                try (storedFile) {
+                    transfer(file, start, end - start + 1, outputStream);
+                }
+            };
+        } else {
+            String boundary = UUID.randomUUID().toString();
+            builder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+            body = outputStream -> {
+                try (storedFile) {
+                    writeMultipart(file, regions, length, contentType, boundary, outputStream);
+                }
+            };
+        }
+
+        return withValidators(builder, recording)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                .header(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, EXPOSED_HEADERS)
+                .body(body);
+    }
+
+    static String eTag(Recordings recording) {
+        return recording.getContentHash() != null ? "\"" + recording.getContentHash() + "\"" : null;
+    }
+
+    private static long lastModified(Recordings recording) {
+        return recording.getContentUpdatedAt() != null ? recording.getContentUpdatedAt().getTime() : -1;
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, Recordings recording) {
+        String eTag = eTag(recording);
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        long lastModified = lastModified(recording);
+        if (lastModified >= 0) {
+            builder.lastModified(lastModified);
+        }
+        // Archived recordings never change; others may be replaced, so clients revalidate (cheaply, via 304)
+        String cacheControl = Boolean.TRUE.equals(recording.getIsArchived())
+                ? CacheControl.maxAge(ARCHIVED_MAX_AGE_DAYS, TimeUnit.DAYS).cachePrivate().getHeaderValue() + ", immutable"
+                : CacheControl.noCache().cachePrivate().getHeaderValue();
+        return builder.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    // If-Range: only serve the range when the client's validator still matches, otherwise send the whole file
+    private static boolean isRangeApplicable(Recordings recording, HttpHeaders requestHeaders) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison: a weak validator never matches
+            return ifRange.equals(eTag(recording));
+        }
+        try {
+            long date = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            long lastModified = lastModified(recording);
+            return lastModified >= 0 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Inclusive [start, end] byte positions in file order, with overlapping and adjacent ranges merged;
+    // empty when no Range header was sent or the ranges are not worth serving separately
+    private static List<long[]> toRegions(String rangeHeader, long length) {
+        List<long[]> regions = new ArrayList<>();
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return regions;
+        }
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        if (ranges.size() > MAX_RANGES) {
+            return regions;
+        }
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            // Throws IllegalArgumentException when the range starts beyond the end of the file
+            long[] region = {range.getRangeStart(length), range.getRangeEnd(length)};
+            requested += region[1] - region[0] + 1;
+            regions.add(region);
+        }
+        if (requested > length) {
+            // Overlapping ranges asking for the same bytes over and over
+            return new ArrayList<>();
+        }
+
+        regions.sort(Comparator.comparingLong(region -> region[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] region : regions) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && region[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], region[1]);
+            } else {
+                merged.add(region);
+            }
+        }
+        return merged;
+    }
+
+    private static void writeMultipart(Path file, List<long[]> regions, long length, String contentType,
+                                       String boundary, OutputStream outputStream) throws IOException {
+        for (long[] region : regions) {
+            String partHeader = "\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + length + "\r\n\r\n";
+            outputStream.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            transfer(file, region[0], region[1] - region[0] + 1, outputStream);
+        }
+        outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void transfer(Path file, long position, long count, OutputStream outputStream) throws IOException {
+        // The target channel is not closed here; the servlet container owns the response stream
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (count > 0) {
+                long transferred = channel.transferTo(position, count, target);
+                if (transferred <= 0) {
+                    throw new EOFException("Recording file ended before the requested range: " + file);
+                }
+                position += transferred;
+                count -= transferred;
+            }
+        }
+        outputStream.flush();
+    }
+}
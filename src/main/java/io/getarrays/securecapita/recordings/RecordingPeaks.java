@@ -0,0 +1,204 @@
+package io.getarrays.securecapita.recordings;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Waveform peaks of one audio file: for every block of samples the minimum and maximum, mixed
+ * down to one channel and scaled to signed 8 bits, at several zoom levels. Level 0 is the finest;
+ * each following level covers four times as many samples per peak.
+ * <p>
+ * File format (big-endian): magic "PEAK", version, sample rate (float), channels, total frames
+ * (long), level count, then per level the samples per peak, the number of peaks and the
+ * min/max byte pairs.
+ */
+final class RecordingPeaks {
+
+    static final int[] SAMPLES_PER_PEAK = {256, 1024, 4096, 16384};
+
+    private static final int MAGIC = 0x5045414B;
+    private static final int VERSION = 1;
+    private static final int FRAMES_PER_READ = 8192;
+
+    final float sampleRate;
+    final int channels;
+    final long frames;
+    final List<Level> levels;
+
+    record Level(int samplesPerPeak, byte[] data) {
+        int length() {
+            return data.length / 2;
+        }
+    }
+
+    private RecordingPeaks(float sampleRate, int channels, long frames, List<Level> levels) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.frames = frames;
+        this.levels = levels;
+    }
+
+    double durationSeconds() {
+        return sampleRate > 0 ? frames / (double) sampleRate : 0.0;
+    }
+
+    /**
+     * Decode the file once, streaming, and build every zoom level. Only the finest level is held
+     * while decoding; the others are merged from it.
+     */
+    static RecordingPeaks compute(Path audioFile) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(audioFile.toFile());
+             AudioInputStream pcm = toPcm(source)) {
+            AudioFormat format = pcm.getFormat();
+            int channels = format.getChannels();
+            int bytesPerSample = (format.getSampleSizeInBits() + 7) / 8;
+            int frameSize = format.getFrameSize();
+            if (bytesPerSample < 1 || bytesPerSample > 4 || frameSize != channels * bytesPerSample) {
+                throw new UnsupportedAudioFileException("Unsupported sample layout: " + format);
+            }
+            boolean signed = format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED;
+            boolean bigEndian = format.isBigEndian();
+
+            int samplesPerPeak = SAMPLES_PER_PEAK[0];
+            ByteArrayOutputStream finest = new ByteArrayOutputStream();
+            byte[] buffer = new byte[frameSize * FRAMES_PER_READ];
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int framesInPeak = 0;
+            long frames = 0;
+            int read;
+            // AudioInputStream only returns whole frames
+            while ((read = pcm.read(buffer)) != -1) {
+                for (int offset = 0; offset + frameSize <= read; offset += frameSize) {
+                    for (int channel = 0; channel < channels; channel++) {
+                        int sample = sample8(buffer, offset + channel * bytesPerSample, bytesPerSample, signed, bigEndian);
+                        min = Math.min(min, sample);
+                        max = Math.max(max, sample);
+                    }
+                    frames++;
+                    if (++framesInPeak == samplesPerPeak) {
+                        finest.write(min);
+                        finest.write(max);
+                        min = Integer.MAX_VALUE;
+                        max = Integer.MIN_VALUE;
+                        framesInPeak = 0;
+                    }
+                }
+            }
+            if (framesInPeak > 0) {
+                finest.write(min);
+                finest.write(max);
+            }
+
+            List<Level> levels = new ArrayList<>();
+            levels.add(new Level(samplesPerPeak, finest.toByteArray()));
+            for (int i = 1; i < SAMPLES_PER_PEAK.length; i++) {
+                Level previous = levels.get(i - 1);
+                levels.add(new Level(SAMPLES_PER_PEAK[i], merge(previous.data(), SAMPLES_PER_PEAK[i] / previous.samplesPerPeak())));
+            }
+            return new RecordingPeaks(format.getSampleRate(), channels, frames, levels);
+        }
+    }
+
+    void write(Path target) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeFloat(sampleRate);
+            out.writeInt(channels);
+            out.writeLong(frames);
+            out.writeInt(levels.size());
+            for (Level level : levels) {
+                out.writeInt(level.samplesPerPeak());
+                out.writeInt(level.length());
+                out.write(level.data());
+            }
+        }
+    }
+
+    /**
+     * Read the header and one zoom level, skipping over the others
+     */
+    static RecordingPeaks read(Path file, int zoom) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a peaks file: " + file);
+            }
+            float sampleRate = in.readFloat();
+            int channels = in.readInt();
+            long frames = in.readLong();
+            int levelCount = in.readInt();
+            if (zoom < 0 || zoom >= levelCount) {
+                throw new IllegalArgumentException("Zoom level must be between 0 and " + (levelCount - 1));
+            }
+            for (int i = 0; i < zoom; i++) {
+                in.readInt();
+                in.skipNBytes(2L * in.readInt());
+            }
+            int samplesPerPeak = in.readInt();
+            byte[] data = new byte[2 * in.readInt()];
+            in.readFully(data);
+            return new RecordingPeaks(sampleRate, channels, frames, List.of(new Level(samplesPerPeak, data)));
+        }
+    }
+
+    // Compressed formats such as u-law and a-law are decoded to 16-bit PCM first
+    private static AudioInputStream toPcm(AudioInputStream source) throws UnsupportedAudioFileException {
+        AudioFormat format = source.getFormat();
+        if (format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED || format.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED) {
+            return source;
+        }
+        AudioFormat target = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        try {
+            return AudioSystem.getAudioInputStream(target, source);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedAudioFileException("Cannot decode " + format.getEncoding() + " audio");
+        }
+    }
+
+    // One sample scaled to a signed 8-bit value
+    private static int sample8(byte[] buffer, int offset, int bytesPerSample, boolean signed, boolean bigEndian) {
+        int value = 0;
+        for (int i = 0; i < bytesPerSample; i++) {
+            int index = bigEndian ? offset + i : offset + bytesPerSample - 1 - i;
+            value = (value << 8) | (buffer[index] & 0xff);
+        }
+        int bits = bytesPerSample * 8;
+        if (signed) {
+            value = (value << (32 - bits)) >> (32 - bits);
+        } else {
+            value -= 1 << (bits - 1);
+        }
+        return value >> (bits - 8);
+    }
+
+    private static byte[] merge(byte[] pairs, int factor) {
+        int length = pairs.length / 2;
+        int mergedLength = (length + factor - 1) / factor;
+        byte[] merged = new byte[mergedLength * 2];
+        for (int i = 0; i < mergedLength; i++) {
+            byte min = Byte.MAX_VALUE;
+            byte max = Byte.MIN_VALUE;
+            for (int j = i * factor; j < Math.min((i + 1) * factor, length); j++) {
+                min = (byte) Math.min(min, pairs[2 * j]);
+                max = (byte) Math.max(max, pairs[2 * j + 1]);
+            }
+            merged[2 * i] = min;
+            merged[2 * i + 1] = max;
+        }
+        return merged;
+    }
+}
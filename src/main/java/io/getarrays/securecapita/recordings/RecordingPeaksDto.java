@@ -0,0 +1,33 @@
+package io.getarrays.securecapita.recordings;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one zoom level of a recording's waveform peaks. {@code data} holds signed 8-bit
+ * min/max pairs, one pair per {@code samplesPerPeak} frames, and is sent base64 encoded.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecordingPeaksDto {
+
+    public enum Status { READY, PENDING, FAILED }
+
+    private Long recordingId;
+    private Status status;
+    private Float sampleRate;
+    private Integer channels;
+    private Double durationSeconds;
+    private Integer zoom;
+    private int[] zoomLevels;      // Samples per peak of every available zoom level, finest first
+    private Integer samplesPerPeak;
+    private Integer bits;
+    private Integer length;        // Number of min/max pairs
+    private byte[] data;
+}
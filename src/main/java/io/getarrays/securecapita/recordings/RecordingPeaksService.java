@@ -0,0 +1,255 @@
+package io.getarrays.securecapita.recordings;
+
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates waveform peaks files in the background so the player can draw a recording without
+ * downloading its audio. Peaks are stored under the storage root in {@code .peaks}, named after
+ * the stored audio file, so recordings sharing a file share its peaks. Work is queued after a
+ * recording is created and by a backfill over existing files.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingPeaksService {
+
+    private static final String PEAKS_DIR = ".peaks";
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+
+    @Value("${recordings.peaks.workers:2}")
+    private int workers;
+
+    @Value("${recordings.peaks.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${recordings.peaks.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    // Stored file paths queued or in progress, and those whose audio could not be decoded
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "recording-peaks-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            // Peaks are a convenience; keep request threads ahead of them
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue peaks generation for the recording's file unless the peaks exist or are already queued
+     *
+     * @return true when peaks are queued or being generated
+     */
+    public boolean schedule(Recordings recording) {
+        String storedPath = recording.getFilePath();
+        if (storedPath == null || Files.exists(peaksFile(storedPath)) || failed.contains(storedPath)) {
+            return false;
+        }
+        return submit(storedPath, null);
+    }
+
+    /**
+     * Keep existing peaks when a file gets a new stored path, e.g. on moving to cold storage
+     */
+    public void renamePeaks(String fromStoredPath, String toStoredPath) {
+        Path from = peaksFile(fromStoredPath);
+        try {
+            if (Files.exists(from)) {
+                Files.move(from, peaksFile(toStoredPath), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Could not move waveform peaks of {}: {}", fromStoredPath, e.getMessage());
+        }
+    }
+
+    public RecordingPeaksDto getPeaks(Long recordingId, int zoom) throws IOException {
+        Recordings recording = recordingsRepository.findById(recordingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Recording not found with id: " + recordingId));
+        if (recording.getFilePath() == null) {
+            throw new ResourceNotFoundException("Recording has no audio file: " + recordingId);
+        }
+        if (zoom < 0 || zoom >= RecordingPeaks.SAMPLES_PER_PEAK.length) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + (RecordingPeaks.SAMPLES_PER_PEAK.length - 1));
+        }
+
+        Path peaksFile = peaksFile(recording.getFilePath());
+        if (!Files.exists(peaksFile)) {
+            if (failed.contains(recording.getFilePath())) {
+                return RecordingPeaksDto.builder().recordingId(recordingId).status(RecordingPeaksDto.Status.FAILED).build();
+            }
+            schedule(recording);
+            return RecordingPeaksDto.builder().recordingId(recordingId).status(RecordingPeaksDto.Status.PENDING).build();
+        }
+
+        RecordingPeaks peaks = RecordingPeaks.read(peaksFile, zoom);
+        RecordingPeaks.Level level = peaks.levels.get(0);
+        return RecordingPeaksDto.builder()
+                .recordingId(recordingId)
+                .status(RecordingPeaksDto.Status.READY)
+                .sampleRate(peaks.sampleRate)
+                .channels(peaks.channels)
+                .durationSeconds(peaks.durationSeconds())
+                .zoom(zoom)
+                .zoomLevels(RecordingPeaks.SAMPLES_PER_PEAK.clone())
+                .samplesPerPeak(level.samplesPerPeak())
+                .bits(8)
+                .length(level.length())
+                .data(level.data())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (backfillOnStartup) {
+            startBackfill();
+        }
+    }
+
+    /**
+     * Queue every stored file without peaks. Runs on its own thread and feeds the workers a few
+     * files at a time so the queue stays free for newly created recordings.
+     *
+     * @return false when a backfill is already running
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::backfill, "recording-peaks-backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    private void backfill() {
+        Semaphore inFlight = new Semaphore(workers * 2);
+        int queued = 0;
+        try {
+            for (String storedPath : recordingsRepository.findDistinctFilePaths()) {
+                if (Files.exists(peaksFile(storedPath)) || failed.contains(storedPath) || pending.contains(storedPath)) {
+                    continue;
+                }
+                inFlight.acquire();
+                if (submit(storedPath, inFlight::release)) {
+                    queued++;
+                } else {
+                    inFlight.release();
+                }
+            }
+            log.info("Waveform peaks backfill queued {} files", queued);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Waveform peaks backfill failed: {}", e.getMessage());
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    private boolean submit(String storedPath, Runnable onDone) {
+        if (!pending.add(storedPath)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(storedPath);
+                } finally {
+                    pending.remove(storedPath);
+                    if (onDone != null) {
+                        onDone.run();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(storedPath);
+            log.warn("Waveform peaks queue is full; {} will be generated on a later request", storedPath);
+            return false;
+        }
+    }
+
+    private void generate(String storedPath) {
+        Path target = peaksFile(storedPath);
+        if (Files.exists(target)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            RecordingPeaks peaks;
+            try (RecordingStorage.StoredFile audioFile = recordingStorage.open(storedPath)) {
+                if (!Files.isRegularFile(audioFile.path())) {
+                    log.warn("Audio file missing, no waveform peaks for {}", storedPath);
+                    return;
+                }
+                peaks = RecordingPeaks.compute(audioFile.path());
+            }
+
+            // Write beside the target and move into place so readers never see a partial file
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "peaks-", ".tmp");
+            try {
+                peaks.write(temp);
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            log.info("Generated waveform peaks for {} ({}s of audio) in {} ms", storedPath,
+                    Math.round(peaks.durationSeconds()), System.currentTimeMillis() - started);
+        } catch (UnsupportedAudioFileException | IllegalArgumentException e) {
+            failed.add(storedPath);
+            log.warn("Cannot generate waveform peaks for {}: {}", storedPath, e.getMessage());
+        } catch (IOException e) {
+            log.error("Error generating waveform peaks for {}: {}", storedPath, e.getMessage());
+        }
+    }
+
+    private Path peaksFile(String storedPath) {
+        return recordingStorage.getRoot().resolve(PEAKS_DIR).resolve(storedPath.replace('/', '_').replace('\\', '_') + ".peaks");
+    }
+}
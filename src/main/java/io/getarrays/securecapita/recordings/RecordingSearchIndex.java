@@ -0,0 +1,193 @@
+package io.getarrays.securecapita.recordings;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * In-memory inverted index over the recording text fields searched by clerks. Text is split into
+ * lower-case words; each query word matches indexed words it is a prefix of, every query word
+ * must match, and results are ranked by field weight and word rarity. Maintained on write by
+ * {@link RecordingSearchIndexListener} and built by {@link RecordingSearchIndexLoader}.
+ */
+@Component
+public class RecordingSearchIndex {
+
+    public enum Field {
+        CASE_DETAILS(Recordings::getCaseDetails, 3.0f),
+        JUDGE(Recordings::getJudge, 2.0f),
+        CASE_TYPE(Recordings::getCaseType, 2.0f),
+        COURT_ROOM(Recordings::getCourtRoom, 1.5f),
+        NOTES(Recordings::getNotes, 1.0f);
+
+        private final Function<Recordings, String> getter;
+        private final float weight;
+
+        Field(Function<Recordings, String> getter, float weight) {
+            this.getter = getter;
+            this.weight = weight;
+        }
+
+        public String valueOf(Recordings recording) {
+            return getter.apply(recording);
+        }
+    }
+
+    private static final int MAX_QUERY_TERMS = 10;
+    // A prefix match counts for less than the whole word, so "smith" ranks Smith above Smithson
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Map<Long, Float>> postings = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public Set<Long> indexedIds() {
+        return documents.keySet();
+    }
+
+    public static Map<Field, String> valuesOf(Recordings recording) {
+        Map<Field, String> values = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            values.put(field, field.valueOf(recording));
+        }
+        return values;
+    }
+
+    // Replace the indexed text and filter values of one recording
+    public synchronized void index(Long recordingId, Map<Field, String> values, RecordingStatus status, boolean archived) {
+        Map<String, Float> termWeights = new HashMap<>();
+        for (Field field : Field.values()) {
+            for (String term : tokenize(values.get(field))) {
+                termWeights.merge(term, field.weight, Float::sum);
+            }
+        }
+
+        Document previous = documents.put(recordingId, new Document(termWeights, status, archived));
+        if (previous != null) {
+            removePostings(recordingId, previous.termWeights().keySet());
+        }
+        termWeights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, key -> new ConcurrentHashMap<>()).put(recordingId, weight));
+    }
+
+    public synchronized void remove(Long recordingId) {
+        Document previous = documents.remove(recordingId);
+        if (previous != null) {
+            removePostings(recordingId, previous.termWeights().keySet());
+        }
+    }
+
+    /**
+     * Ids of recordings matching every word of the query, best match first (newest first on ties).
+     * Null filters are not applied.
+     */
+    public List<Long> search(String query, RecordingStatus status, Boolean archived) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        double documentCount = Math.max(documents.size(), 1);
+        Map<Long, Double> scores = null;
+        int matchedTerms = 0;
+        for (String term : terms) {
+            if (matchedTerms++ == MAX_QUERY_TERMS) {
+                break;
+            }
+            // Best score this query word gives each recording over the indexed words it prefixes
+            Map<Long, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Long, Float>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                Map<Long, Float> posting = entry.getValue();
+                double idf = Math.log(1 + documentCount / Math.max(posting.size(), 1));
+                double factor = entry.getKey().equals(term) ? 1.0 : PREFIX_MATCH_FACTOR;
+                posting.forEach((id, weight) -> termScores.merge(id, weight * idf * factor, Math::max));
+            }
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Long, Double> previous = scores;
+                scores = new HashMap<>();
+                for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                    Double score = previous.get(entry.getKey());
+                    if (score != null) {
+                        scores.put(entry.getKey(), score + entry.getValue());
+                    }
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> matches = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            if (document != null
+                    && (status == null || status == document.status())
+                    && (archived == null || archived == document.archived())) {
+                matches.add(entry);
+            }
+        }
+        matches.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()));
+
+        List<Long> ids = new ArrayList<>(matches.size());
+        for (Map.Entry<Long, Double> match : matches) {
+            ids.add(match.getKey());
+        }
+        return ids;
+    }
+
+    // Lower-case words of letters and digits, e.g. "State v. O'Neil, HC-1042" -> state, v, o, neil, hc, 1042
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private void removePostings(Long recordingId, Collection<String> terms) {
+        for (String term : terms) {
+            Map<Long, Float> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(recordingId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private record Document(Map<String, Float> termWeights, RecordingStatus status, boolean archived) {
+    }
+}
@@ -0,0 +1,39 @@
+package io.getarrays.securecapita.recordings;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
+/**
+ * JPA lifecycle listener on {@link Recordings} that keeps {@link RecordingSearchIndex} up to date
+ * once the writing transaction commits. Covers single and bulk saves and deletes alike.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecordingSearchIndexListener {
+
+    private final RecordingSearchIndex recordingSearchIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Recordings recording) {
+        Long recordingId = recording.getId();
+        // Copy the values now; the entity may change again before the commit
+        Map<RecordingSearchIndex.Field, String> values = RecordingSearchIndex.valuesOf(recording);
+        RecordingStatus status = recording.getStatus();
+        boolean archived = Boolean.TRUE.equals(recording.getIsArchived());
+        afterCommit(() -> recordingSearchIndex.index(recordingId, values, status, archived));
+    }
+
+    @PostRemove
+    public void onRemove(Recordings recording) {
+        Long recordingId = recording.getId();
+        afterCommit(() -> recordingSearchIndex.remove(recordingId));
+    }
+}
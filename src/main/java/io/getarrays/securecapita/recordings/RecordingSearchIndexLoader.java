@@ -0,0 +1,58 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds {@link RecordingSearchIndex} from the database at startup, and rebuilds it on request
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingSearchIndexLoader {
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingSearchIndex recordingSearchIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int indexed = rebuild();
+        recordingSearchIndex.markReady();
+        log.info("Recording search index built for {} recordings", indexed);
+    }
+
+    /**
+     * Re-index every recording and drop entries whose recording no longer exists. The index stays
+     * searchable while this runs.
+     */
+    @Transactional(readOnly = true)
+    public synchronized int rebuild() {
+        Set<Long> seen = new HashSet<>();
+        for (Object[] row : recordingsRepository.findSearchableColumns()) {
+            Map<RecordingSearchIndex.Field, String> values = new EnumMap<>(RecordingSearchIndex.Field.class);
+            values.put(RecordingSearchIndex.Field.CASE_DETAILS, (String) row[1]);
+            values.put(RecordingSearchIndex.Field.JUDGE, (String) row[2]);
+            values.put(RecordingSearchIndex.Field.CASE_TYPE, (String) row[3]);
+            values.put(RecordingSearchIndex.Field.COURT_ROOM, (String) row[4]);
+            values.put(RecordingSearchIndex.Field.NOTES, (String) row[5]);
+            Long recordingId = (Long) row[0];
+            recordingSearchIndex.index(recordingId, values, (RecordingStatus) row[6], Boolean.TRUE.equals(row[7]));
+            seen.add(recordingId);
+        }
+        for (Long recordingId : Set.copyOf(recordingSearchIndex.indexedIds())) {
+            if (!seen.contains(recordingId)) {
+                recordingSearchIndex.remove(recordingId);
+            }
+        }
+        return seen.size();
+    }
+}
@@ -0,0 +1,27 @@
+package io.getarrays.securecapita.recordings;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
+/**
+ * JPA lifecycle listener on {@link Recordings} that evicts the cached statistics once a change
+ * commits, so the reports reflect it on the next load.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecordingStatisticsListener {
+
+    private final RecordingStatisticsService recordingStatisticsService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Recordings recording) {
+        afterCommit(recordingStatisticsService::evict);
+    }
+}
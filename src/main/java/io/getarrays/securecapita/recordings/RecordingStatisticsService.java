@@ -0,0 +1,196 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recording report statistics from a single grouped scan of the recordings table, cached for a
+ * short time so the reports page does not scan the table on every load. Changes to recordings
+ * evict the cache through {@link RecordingStatisticsListener}. Each evict bumps a version, and a
+ * snapshot is only served while the version it was started under is current, so an aggregate that
+ * was already running when a change committed is never cached over the evict.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecordingStatisticsService {
+
+    private final RecordingsRepository recordingsRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${recordings.statistics.cache-ttl-ms:30000}")
+    private long cacheTtlMs;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile CachedSnapshot cached;
+
+    public Snapshot getSnapshot() {
+        CachedSnapshot current = cached;
+        if (isFresh(current)) {
+            return current.snapshot();
+        }
+        synchronized (this) {
+            // Another request may have refreshed the cache while this one waited
+            current = cached;
+            if (isFresh(current)) {
+                return current.snapshot();
+            }
+            long started = version.get();
+            // A transaction of its own, so the scan sees everything committed before the version was read
+            // rather than the possibly older view of a caller's transaction
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transactionTemplate.setReadOnly(true);
+            Snapshot snapshot = transactionTemplate.execute(status -> aggregate());
+            cached = new CachedSnapshot(snapshot, started, System.currentTimeMillis() + cacheTtlMs);
+            return snapshot;
+        }
+    }
+
+    public void evict() {
+        version.incrementAndGet();
+        cached = null;
+    }
+
+    private boolean isFresh(CachedSnapshot current) {
+        return current != null && current.version() == version.get() && current.expiresAt() > System.currentTimeMillis();
+    }
+
+    private Snapshot aggregate() {
+        Totals overall = new Totals();
+        Map<RecordingStatus, Long> byStatus = new EnumMap<>(RecordingStatus.class);
+        Map<String, Totals> byJudge = new HashMap<>();
+        Map<String, Totals> byCaseType = new HashMap<>();
+        long archived = 0;
+
+        // Rows: status, isArchived, judge, caseType, count, duration sum, duration count, size sum, size count
+        for (Object[] row : recordingsRepository.aggregateGroupedByDimensions()) {
+            long count = ((Number) row[4]).longValue();
+            if (row[0] != null) {
+                byStatus.merge((RecordingStatus) row[0], count, Long::sum);
+            }
+            if (Boolean.TRUE.equals(row[1])) {
+                archived += count;
+            }
+            overall.add(row);
+            // Recordings without a judge or case type are left out, as the per-value reports always did
+            if (row[2] != null) {
+                byJudge.computeIfAbsent(normalize((String) row[2]), key -> new Totals((String) row[2])).add(row);
+            }
+            if (row[3] != null) {
+                byCaseType.computeIfAbsent(normalize((String) row[3]), key -> new Totals((String) row[3])).add(row);
+            }
+        }
+
+        return new Snapshot(overall, archived, Collections.unmodifiableMap(byStatus),
+                Collections.unmodifiableMap(byJudge), Collections.unmodifiableMap(byCaseType));
+    }
+
+    // The database compares judges and case types case-insensitively and ignoring trailing spaces, so
+    // the same value can come back in several spellings; key the maps the same way
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Aggregated statistics at one point in time; shared between requests and not modified after it is built.
+     * The judge and case type maps are keyed by the normalized value; look them up through
+     * {@link #judge} and {@link #caseType}.
+     */
+    public record Snapshot(Totals overall, long archivedCount, Map<RecordingStatus, Long> statusCounts,
+                           Map<String, Totals> byJudge, Map<String, Totals> byCaseType) {
+
+        public long nonArchivedCount() {
+            return overall.getCount() - archivedCount;
+        }
+
+        public Totals judge(String judge) {
+            return judge != null ? byJudge.get(normalize(judge)) : null;
+        }
+
+        public Totals caseType(String caseType) {
+            return caseType != null ? byCaseType.get(normalize(caseType)) : null;
+        }
+
+        public Map<String, Long> judgeCounts() {
+            return counts(byJudge);
+        }
+
+        public Map<String, Long> caseTypeCounts() {
+            return counts(byCaseType);
+        }
+
+        private static Map<String, Long> counts(Map<String, Totals> totals) {
+            Map<String, Long> counts = new HashMap<>();
+            totals.values().forEach(value -> counts.put(value.getLabel(), value.getCount()));
+            return counts;
+        }
+    }
+
+    /**
+     * Count, sums and non-null counts used for averages, matching SQL AVG which skips nulls
+     */
+    public static class Totals {
+        // First spelling seen of the judge or case type, or null for the overall totals
+        private final String label;
+        private long count;
+        private double durationSum;
+        private long durationCount;
+        private double fileSizeSum;
+        private long fileSizeCount;
+
+        private Totals() {
+            this(null);
+        }
+
+        private Totals(String label) {
+            this.label = label;
+        }
+
+        private void add(Object[] row) {
+            count += ((Number) row[4]).longValue();
+            durationSum += row[5] != null ? ((Number) row[5]).doubleValue() : 0.0;
+            durationCount += ((Number) row[6]).longValue();
+            fileSizeSum += row[7] != null ? ((Number) row[7]).doubleValue() : 0.0;
+            fileSizeCount += ((Number) row[8]).longValue();
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getDurationSum() {
+            return durationSum;
+        }
+
+        public double getFileSizeSum() {
+            return fileSizeSum;
+        }
+
+        public double getAverageDuration() {
+            return durationCount > 0 ? durationSum / durationCount : 0.0;
+        }
+
+        public double getAverageFileSize() {
+            return fileSizeCount > 0 ? fileSizeSum / fileSizeCount : 0.0;
+        }
+    }
+
+    private record CachedSnapshot(Snapshot snapshot, long version, long expiresAt) {
+    }
+}
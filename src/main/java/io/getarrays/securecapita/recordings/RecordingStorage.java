@@ -0,0 +1,123 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single storage root for recording audio files. Stored file paths are relative to the root
+ * (normally just the file name), so resolving a recording is one path join with no probing.
+ * Archived audio moved to {@link RecordingColdStore} has a {@code cold:} stored path instead;
+ * {@link #open} covers both.
+ */
+@Component
+@Slf4j
+public class RecordingStorage {
+
+    private final Path root;
+    private final RecordingColdStore coldStore;
+
+    public RecordingStorage(@Value("${recordings.storage.root:uploads/audio}") String root, RecordingColdStore coldStore) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.coldStore = coldStore;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Absolute location of a stored path. Paths are kept inside the root, so ".." segments or an
+     * absolute path that points elsewhere are rejected.
+     */
+    public Path resolve(String storedPath) {
+        if (storedPath == null || storedPath.isBlank()) {
+            throw new IllegalArgumentException("Recording has no file path");
+        }
+        if (RecordingColdStore.isCold(storedPath)) {
+            throw new IllegalArgumentException("Recording is in cold storage: " + storedPath);
+        }
+        Path resolved = root.resolve(storedPath).normalize();
+        if (!resolved.startsWith(root)) {
+            throw new IllegalArgumentException("Recording file path is outside the storage root: " + storedPath);
+        }
+        return resolved;
+    }
+
+    public Path resolve(Recordings recording) {
+        return resolve(recording.getFilePath());
+    }
+
+    /**
+     * Readable file for a stored path: the file under the root, or a decompressed copy of a
+     * cold-stored one. The copy stays in place until the returned file is closed, so close it only
+     * once it has been read, which for a streamed response is at the end of the body.
+     */
+    public StoredFile open(String storedPath) throws IOException {
+        if (!RecordingColdStore.isCold(storedPath)) {
+            return new StoredFile(resolve(storedPath), null);
+        }
+        return new StoredFile(coldStore.rehydrate(storedPath), () -> coldStore.release(storedPath));
+    }
+
+    public StoredFile open(Recordings recording) throws IOException {
+        return open(recording.getFilePath());
+    }
+
+    // Existence check that does not decompress cold-stored files
+    public boolean exists(String storedPath) {
+        try {
+            return RecordingColdStore.isCold(storedPath) ? coldStore.contains(storedPath) : Files.isRegularFile(resolve(storedPath));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stored (relative) form of a location inside the root
+     */
+    public String toStoredPath(Path location) {
+        return root.relativize(location.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    /**
+     * A readable recording file; closing it lets a rehydrated copy be evicted. Closing twice is harmless.
+     */
+    public static final class StoredFile implements Closeable {
+
+        private final Path path;
+        private final Runnable release;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private StoredFile(Path path, Runnable release) {
+            this.path = path;
+            this.release = release;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        @Override
+        public void close() {
+            if (release != null && closed.compareAndSet(false, true)) {
+                release.run();
+            }
+        }
+    }
+
+    public Path createRoot() throws IOException {
+        if (!Files.isDirectory(root)) {
+            Files.createDirectories(root);
+            log.info("Created recording storage root {}", root);
+        }
+        return root;
+    }
+}
@@ -0,0 +1,112 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-time normalization of recording file paths. Older rows store absolute paths or paths
+ * relative to whatever directory the server ran in, which used to be probed on every request.
+ * Each such file is located once using the old lookup order, moved under the
+ * {@link RecordingStorage} root and its path rewritten to the file name, or to the file name with the
+ * recording id added when another file already has that name. Rows whose path is already
+ * a bare file name are not selected, so later startups have nothing to do. A deduplicated upload
+ * keeps the bare name of the file it shares, which may differ from its own file name.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingStorageMigration {
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        List<Recordings> pending = recordingsRepository.findWithUnnormalizedFilePath();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int migrated = 0;
+        List<Long> missing = new ArrayList<>();
+        for (Recordings recording : pending) {
+            try {
+                Path source = locateLegacyFile(recording.getFilePath(), recording.getFileName());
+                if (source == null) {
+                    missing.add(recording.getId());
+                    continue;
+                }
+                Path target = recordingStorage.createRoot().resolve(recording.getFileName()).normalize();
+                if (!target.startsWith(recordingStorage.getRoot())) {
+                    missing.add(recording.getId());
+                    continue;
+                }
+                if (Files.exists(target) && !Files.isSameFile(source, target)) {
+                    // Another recording's file already has this name; never overwrite it
+                    target = uniqueTarget(target, recording.getId());
+                }
+                if (!Files.exists(target)) {
+                    Files.move(source, target);
+                }
+                recordingsRepository.updateFilePath(recording.getId(), recordingStorage.toStoredPath(target));
+                migrated++;
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not migrate recording {} file {}: {}", recording.getId(), recording.getFilePath(), e.getMessage());
+            }
+        }
+
+        log.info("Normalized {} recording file paths into {}", migrated, recordingStorage.getRoot());
+        if (!missing.isEmpty()) {
+            log.warn("Recording files not found for ids {}; their paths were left unchanged", missing);
+        }
+    }
+
+    // name-<id>.ext, then name-<id>-2.ext and so on until the name is free
+    private static Path uniqueTarget(Path target, Long recordingId) {
+        String fileName = target.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        Path candidate = target.resolveSibling(base + "-" + recordingId + extension);
+        for (int i = 2; Files.exists(candidate); i++) {
+            candidate = target.resolveSibling(base + "-" + recordingId + "-" + i + extension);
+        }
+        return candidate;
+    }
+
+    // The lookup order previously applied on every download request
+    private Path locateLegacyFile(String filePath, String fileName) {
+        List<Path> candidates = new ArrayList<>();
+        if (filePath != null && !filePath.isBlank()) {
+            String home = System.getProperty("user.home");
+            String workingDir = System.getProperty("user.dir");
+            candidates.add(Paths.get(filePath));
+            candidates.add(Paths.get(home, filePath));
+            candidates.add(Paths.get(filePath.startsWith("/") ? filePath : "/" + filePath));
+            candidates.add(Paths.get(home, "recordings", filePath));
+            candidates.add(Paths.get(home, "Downloads", "recordings", filePath));
+            candidates.add(Paths.get(workingDir, filePath));
+            candidates.add(Paths.get(workingDir, "src", "main", "resources", "recordings", filePath));
+        }
+        if (fileName != null) {
+            candidates.add(recordingStorage.getRoot().resolve(fileName));
+            candidates.add(Paths.get(System.getProperty("user.home"), fileName));
+        }
+        for (Path candidate : candidates) {
+            if (Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package io.getarrays.securecapita.recordings;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves the audio of archived recordings from the hot storage root into {@link RecordingColdStore}.
+ * Each file is compressed, all recordings sharing it are pointed at the cold copy, and only then
+ * is the hot file deleted. Files still used by a recording that is not archived stay hot.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingTieringService {
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+    private final RecordingColdStore recordingColdStore;
+    private final RecordingPeaksService recordingPeaksService;
+
+    @Value("${recordings.cold-storage.archived-for-days:7}")
+    private int archivedForDays;
+
+    @Value("${recordings.cold-storage.batch-size:100}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${recordings.cold-storage.cron:0 30 2 * * *}")
+    public void scheduledRun() {
+        moveArchivedToColdStorage();
+    }
+
+    /**
+     * @return a summary of the run, or null when a run is already in progress
+     */
+    public Map<String, Object> moveArchivedToColdStorage() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        long started = System.currentTimeMillis();
+        int moved = 0;
+        int skipped = 0;
+        int failed = 0;
+        long hotBytesFreed = 0;
+        long coldBytes = 0;
+        try {
+            Date archivedBefore = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(archivedForDays));
+            long afterId = 0;
+            List<Recordings> batch;
+            do {
+                batch = recordingsRepository.findHotArchivedAfter(afterId, archivedBefore, PageRequest.of(0, batchSize));
+                for (Recordings recording : batch) {
+                    afterId = recording.getId();
+                    try {
+                        long[] sizes = moveToColdStorage(recording);
+                        if (sizes == null) {
+                            skipped++;
+                        } else {
+                            moved++;
+                            hotBytesFreed += sizes[0];
+                            coldBytes += sizes[1];
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        failed++;
+                        log.error("Could not move recording {} to cold storage: {}", recording.getId(), e.getMessage());
+                    }
+                }
+            } while (batch.size() == batchSize);
+        } finally {
+            running.set(false);
+        }
+
+        log.info("Cold storage run moved {} files ({} bytes freed, {} bytes stored), skipped {}, failed {}",
+                moved, hotBytesFreed, coldBytes, skipped, failed);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("moved", moved);
+        summary.put("skipped", skipped);
+        summary.put("failed", failed);
+        summary.put("hotBytesFreed", hotBytesFreed);
+        summary.put("coldBytesStored", coldBytes);
+        summary.put("elapsedMillis", System.currentTimeMillis() - started);
+        return summary;
+    }
+
+    // Returns the hot and cold sizes, or null when the file has to stay hot
+    private long[] moveToColdStorage(Recordings recording) throws IOException {
+        String hotPath = recording.getFilePath();
+        // A file shared with an active recording (deduplicated upload) stays where it is
+        if (recordingsRepository.countByFilePathAndIsArchivedFalse(hotPath) > 0) {
+            return null;
+        }
+        Path hotFile = recordingStorage.resolve(hotPath);
+        if (!Files.isRegularFile(hotFile)) {
+            log.warn("Archived recording {} has no file at {}", recording.getId(), hotFile);
+            return null;
+        }
+        long hotSize = Files.size(hotFile);
+
+        String contentHash = recordingColdStore.store(hotFile);
+        if (recording.getContentHash() != null && !recording.getContentHash().equals(contentHash)) {
+            log.warn("Recording {} content differs from its stored hash; storing it under {}", recording.getId(), contentHash);
+        }
+        String coldPath = RecordingColdStore.storedPath(contentHash, hotPath);
+
+        // Rows are switched before the hot file goes, so a crash in between leaves only a stray hot file
+        recordingsRepository.moveToColdStorage(hotPath, coldPath, contentHash);
+        recordingPeaksService.renamePeaks(hotPath, coldPath);
+        Files.delete(hotFile);
+        return new long[]{hotSize, Files.size(recordingColdStore.archiveFile(contentHash))};
+    }
+}
@@ -0,0 +1,70 @@
+package io.getarrays.securecapita.recordings;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Resumable upload endpoints for large recordings. A client initiates an upload, sends the file in
+ * raw chunks with the offset each chunk starts at, and completes it to create the recording.
+ * After a dropped connection the status tells the client where to resume.
+ */
+@RestController
+@RequestMapping("/api/v1/recordings/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class RecordingUploadController {
+
+    private final RecordingUploadService recordingUploadService;
+
+    @PostMapping
+    public ResponseEntity<RecordingUploadStatusDto> initiate(
+            @RequestParam String fileName,
+            @RequestParam long totalSize,
+            @RequestParam(required = false) String caseDetails,
+            @RequestParam(required = false) String judge,
+            @RequestParam(required = false) Double durationMinutes,
+            @RequestParam(required = false) String caseType,
+            @RequestParam(required = false) String courtRoom,
+            @RequestParam(required = false) String notes
+    ) throws IOException {
+        RecordingUploadStatusDto status = recordingUploadService.initiate(
+                fileName, totalSize, caseDetails, judge, durationMinutes, caseType, courtRoom, notes);
+        return ResponseEntity.status(HttpStatus.CREATED).body(status);
+    }
+
+    // The chunk is the raw request body, read as a stream rather than buffered as multipart
+    @PutMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<RecordingUploadStatusDto> appendChunk(@PathVariable String uploadId,
+                                                                @RequestParam long offset,
+                                                                HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(recordingUploadService.appendChunk(uploadId, offset, request.getInputStream()));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<RecordingUploadStatusDto> getStatus(@PathVariable String uploadId) throws IOException {
+        return ResponseEntity.ok(recordingUploadService.getStatus(uploadId));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<RecordingUploadStatusDto> complete(@PathVariable String uploadId) throws IOException {
+        return ResponseEntity.ok(recordingUploadService.complete(uploadId));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abort(@PathVariable String uploadId) throws IOException {
+        recordingUploadService.abort(uploadId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Wrong offset: reply with the current status so the client can resend from the right byte
+    @ExceptionHandler(RecordingUploadService.UploadOffsetMismatchException.class)
+    public ResponseEntity<RecordingUploadStatusDto> handleOffsetMismatch(RecordingUploadService.UploadOffsetMismatchException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getStatus());
+    }
+}
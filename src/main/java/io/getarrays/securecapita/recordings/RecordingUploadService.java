@@ -0,0 +1,398 @@
+package io.getarrays.securecapita.recordings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.getarrays.securecapita.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumable chunked upload of recordings: initiate, append chunks by offset, complete.
+ * Chunks are read straight from the request body and appended to a partial file under the
+ * storage root while a SHA-256 is updated with the same bytes. On completion the hash is used to
+ * detect content that is already stored, in which case the new recording shares the existing file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecordingUploadService {
+
+    private static final String UPLOADS_DIR = ".uploads";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+    private final ObjectMapper objectMapper;
+    private final RecordingPeaksService recordingPeaksService;
+
+    private final Map<String, RecordingUploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${recordings.upload.max-bytes:1073741824}")
+    private long maxUploadBytes;
+
+    @Value("${recordings.upload.expiry-hours:24}")
+    private long expiryHours;
+
+    public RecordingUploadStatusDto initiate(String originalFileName, long totalSize, String caseDetails, String judge,
+                                             Double durationMinutes, String caseType, String courtRoom, String notes) throws IOException {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            throw new IllegalArgumentException("File name is required");
+        }
+        if (totalSize <= 0 || totalSize > maxUploadBytes) {
+            throw new IllegalArgumentException("Total size must be between 1 and " + maxUploadBytes + " bytes");
+        }
+
+        RecordingUploadSession session = RecordingUploadSession.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .originalFileName(Path.of(originalFileName).getFileName().toString())
+                .totalSize(totalSize)
+                .createdAt(new Date())
+                .caseDetails(caseDetails)
+                .judge(judge)
+                .durationMinutes(durationMinutes)
+                .caseType(caseType)
+                .courtRoom(courtRoom)
+                .notes(notes)
+                .digest(newSha256())
+                .offset(0)
+                .build();
+
+        Files.createDirectories(uploadsDir());
+        Files.createFile(partFile(session.getUploadId()));
+        objectMapper.writeValue(sidecarFile(session.getUploadId()).toFile(), session);
+        sessions.put(session.getUploadId(), session);
+
+        log.info("Initiated upload {} for {} ({} bytes)", session.getUploadId(), session.getOriginalFileName(), totalSize);
+        return toStatus(session);
+    }
+
+    public RecordingUploadStatusDto getStatus(String uploadId) throws IOException {
+        RecordingUploadSession session = getSession(uploadId);
+        synchronized (session) {
+            return toStatus(session);
+        }
+    }
+
+    /**
+     * Append one chunk. The chunk must start at the current offset; a client that lost a response
+     * asks for the status and resends from the returned offset.
+     */
+    public RecordingUploadStatusDto appendChunk(String uploadId, long offset, InputStream body) throws IOException {
+        RecordingUploadSession session = getSession(uploadId);
+        synchronized (session) {
+            if (offset != session.getOffset()) {
+                throw new UploadOffsetMismatchException(toStatus(session));
+            }
+
+            Path part = partFile(uploadId);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long position = session.getOffset();
+            // Hash a copy while writing and keep it only once the chunk is fully on disk, so a failed
+            // chunk never reaches the session digest and the written bytes are never read back
+            MessageDigest chunkDigest = copyOf(session.getDigest());
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                channel.position(position);
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (position + read > session.getTotalSize()) {
+                        // Drop the whole chunk so the partial file stays consistent with the digest
+                        channel.truncate(session.getOffset());
+                        throw new IllegalArgumentException("Chunk exceeds the declared total size of " + session.getTotalSize() + " bytes");
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    chunkDigest.update(buffer, 0, read);
+                    position += read;
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // A dropped connection mid-chunk: keep what was written before the chunk started
+                truncate(part, session.getOffset());
+                throw e;
+            }
+
+            session.setDigest(chunkDigest);
+            session.setOffset(position);
+            return toStatus(session);
+        }
+    }
+
+    /**
+     * Store the finished upload as a recording. Nothing about the session changes until the row is
+     * saved, and a moved file is moved back if the save fails, so a failed call can simply be
+     * retried. Two uploads of identical content completing at the same moment can still both miss
+     * each other's row and keep two copies of the file.
+     */
+    public RecordingUploadStatusDto complete(String uploadId) throws IOException {
+        RecordingUploadSession session = getSession(uploadId);
+        synchronized (session) {
+            if (session.getOffset() != session.getTotalSize()) {
+                throw new IllegalArgumentException("Upload is incomplete: received " + session.getOffset()
+                        + " of " + session.getTotalSize() + " bytes");
+            }
+
+            // digest() resets the digest it is called on, so finish a copy and keep the session's intact for a retry
+            String contentHash = HexFormat.of().formatHex(copyOf(session.getDigest()).digest());
+            String fileName = buildFileName(session.getOriginalFileName(), uploadId);
+            Path part = partFile(uploadId);
+
+            // Identical content already stored: share its file instead of keeping a second copy
+            Optional<Recordings> existing = recordingsRepository.findFirstByContentHash(contentHash)
+                    .filter(this::isStored);
+            Path target = null;
+            String storedPath;
+            if (existing.isPresent()) {
+                storedPath = existing.get().getFilePath();
+            } else {
+                target = recordingStorage.createRoot().resolve(fileName);
+                moveIntoPlace(part, target);
+                storedPath = recordingStorage.toStoredPath(target);
+            }
+
+            Recordings recording;
+            try {
+                recording = recordingsRepository.save(Recordings.builder()
+                        .recordingDateTime(new Date())
+                        .caseDetails(session.getCaseDetails())
+                        .judge(session.getJudge())
+                        .durationMinutes(session.getDurationMinutes())
+                        .caseType(session.getCaseType())
+                        .courtRoom(session.getCourtRoom())
+                        .notes(session.getNotes())
+                        .status(RecordingStatus.COMPLETED)
+                        .fileSizeMb(session.getTotalSize() / (1024.0 * 1024.0))
+                        .filePath(storedPath)
+                        .fileName(fileName)
+                        .contentHash(contentHash)
+                        .contentUpdatedAt(new Date())
+                        .build());
+            } catch (RuntimeException e) {
+                if (target != null) {
+                    moveIntoPlace(target, part);
+                }
+                throw e;
+            }
+
+            // The recording exists from here on; what is left is cleanup, which must not make a retry store it twice
+            sessions.remove(uploadId);
+            try {
+                // Sidecar first: without it the session cannot be restored and completed again
+                Files.deleteIfExists(sidecarFile(uploadId));
+                if (existing.isPresent()) {
+                    Files.deleteIfExists(part);
+                    log.info("Upload {} duplicates recording {}; reusing its file", uploadId, existing.get().getId());
+                }
+            } catch (IOException e) {
+                log.warn("Could not remove upload files of {}: {}", uploadId, e.getMessage());
+            }
+            recordingPeaksService.schedule(recording);
+
+            RecordingUploadStatusDto status = toStatus(session);
+            status.setComplete(true);
+            status.setDeduplicated(existing.isPresent());
+            status.setContentHash(contentHash);
+            status.setRecording(recording);
+            return status;
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        RecordingUploadSession session = getSession(uploadId);
+        synchronized (session) {
+            sessions.remove(uploadId);
+            Files.deleteIfExists(partFile(uploadId));
+            Files.deleteIfExists(sidecarFile(uploadId));
+        }
+    }
+
+    // Abandoned uploads are removed once they are older than the expiry
+    @Scheduled(fixedDelayString = "${recordings.upload.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        Path dir = uploadsDir();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(expiryHours);
+        try (DirectoryStream<Path> sidecars = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path sidecar : sidecars) {
+                String uploadId = uploadIdOf(sidecar);
+                Path part = partFile(uploadId);
+                long lastActivity = Files.exists(part)
+                        ? Files.getLastModifiedTime(part).toMillis()
+                        : Files.getLastModifiedTime(sidecar).toMillis();
+                if (lastActivity < cutoff) {
+                    sessions.remove(uploadId);
+                    Files.deleteIfExists(part);
+                    Files.deleteIfExists(sidecar);
+                    log.info("Removed expired upload {}", uploadId);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error removing expired uploads: {}", e.getMessage());
+        }
+    }
+
+    private RecordingUploadSession getSession(String uploadId) throws IOException {
+        try {
+            UUID.fromString(uploadId);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        RecordingUploadSession session = sessions.get(uploadId);
+        if (session != null) {
+            return session;
+        }
+
+        // Not in memory, e.g. after a restart: restore from the sidecar and re-hash the partial file once
+        Path sidecar = sidecarFile(uploadId);
+        Path part = partFile(uploadId);
+        if (!Files.exists(sidecar) || !Files.exists(part)) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        RecordingUploadSession restored = objectMapper.readValue(sidecar.toFile(), RecordingUploadSession.class);
+        long size = Files.size(part);
+        restored.setDigest(newSha256());
+        updateDigest(restored.getDigest(), part, 0, size);
+        restored.setOffset(size);
+        RecordingUploadSession previous = sessions.putIfAbsent(uploadId, restored);
+        return previous != null ? previous : restored;
+    }
+
+    private boolean isStored(Recordings recording) {
+        return recordingStorage.exists(recording.getFilePath());
+    }
+
+    private static void updateDigest(MessageDigest digest, Path file, long from, long to) throws IOException {
+        if (to <= from) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(from);
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            long remaining = to - from;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new IOException("Partial upload file is shorter than expected");
+                }
+                buffer.flip();
+                digest.update(buffer);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static void truncate(Path part, long size) {
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException e) {
+            log.error("Could not roll back partial upload {}: {}", part, e.getMessage());
+        }
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Unique, readable stored name: original base name plus part of the upload id
+    private static String buildFileName(String originalFileName, String uploadId) {
+        String base = originalFileName;
+        String extension = "";
+        int dotIndex = originalFileName.lastIndexOf('.');
+        if (dotIndex > 0) {
+            extension = originalFileName.substring(dotIndex);
+            base = originalFileName.substring(0, dotIndex);
+        }
+        return base + "_" + uploadId.replace("-", "").substring(0, 12) + extension;
+    }
+
+    private RecordingUploadStatusDto toStatus(RecordingUploadSession session) {
+        return RecordingUploadStatusDto.builder()
+                .uploadId(session.getUploadId())
+                .offset(session.getOffset())
+                .totalSize(session.getTotalSize())
+                .complete(false)
+                .build();
+    }
+
+    private Path uploadsDir() {
+        return recordingStorage.getRoot().resolve(UPLOADS_DIR);
+    }
+
+    private Path partFile(String uploadId) {
+        return uploadsDir().resolve(uploadId + ".part");
+    }
+
+    private Path sidecarFile(String uploadId) {
+        return uploadsDir().resolve(uploadId + ".json");
+    }
+
+    private static String uploadIdOf(Path sidecar) {
+        String name = sidecar.getFileName().toString();
+        return name.substring(0, name.length() - ".json".length());
+    }
+
+    private static MessageDigest copyOf(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Digest " + digest.getAlgorithm() + " cannot be copied", e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Thrown when a chunk does not start at the current offset; carries the status to resume from
+     */
+    public static class UploadOffsetMismatchException extends RuntimeException {
+        private final RecordingUploadStatusDto status;
+
+        UploadOffsetMismatchException(RecordingUploadStatusDto status) {
+            super("Chunk offset does not match; expected " + status.getOffset());
+            this.status = status;
+        }
+
+        public RecordingUploadStatusDto getStatus() {
+            return status;
+        }
+    }
+}
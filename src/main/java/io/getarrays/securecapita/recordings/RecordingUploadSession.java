@@ -0,0 +1,42 @@
+package io.getarrays.securecapita.recordings;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.security.MessageDigest;
+import java.util.Date;
+
+/**
+ * State of one resumable recording upload. The metadata is written as a JSON sidecar next to the
+ * partial file so an upload can resume after a restart; the running digest and offset are kept
+ * in memory and rebuilt from the partial file when needed.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+class RecordingUploadSession {
+
+    private String uploadId;
+    private String originalFileName;
+    private long totalSize;
+    private Date createdAt;
+
+    // Recording metadata supplied when the upload was initiated
+    private String caseDetails;
+    private String judge;
+    private Double durationMinutes;
+    private String caseType;
+    private String courtRoom;
+    private String notes;
+
+    // SHA-256 of the bytes received so far, updated as chunks stream in
+    @JsonIgnore
+    private MessageDigest digest;
+
+    @JsonIgnore
+    private long offset;
+}
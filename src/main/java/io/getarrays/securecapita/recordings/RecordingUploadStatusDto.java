@@ -0,0 +1,27 @@
+package io.getarrays.securecapita.recordings;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO describing a resumable upload: how many bytes the server holds and, once completed,
+ * the created recording
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecordingUploadStatusDto {
+
+    private String uploadId;
+    private long offset;      // Next byte expected; resume by sending the chunk starting here
+    private long totalSize;
+    private boolean complete;
+    private Boolean deduplicated; // Set on completion: true when identical content was already stored
+    private String contentHash;
+    private Recordings recording;
+}
@@ -22,8 +22,11 @@ import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
  * @since 2025
  */
 @Entity
-@Table(name = "recordings")
-@EntityListeners(AuditingEntityListener.class)
+@Table(name = "recordings", indexes = {
+        @Index(name = "idx_recordings_file_name", columnList = "file_name"),
+        @Index(name = "idx_recordings_content_hash", columnList = "content_hash")
+})
+@EntityListeners({AuditingEntityListener.class, RecordingStatisticsListener.class, RecordingSearchIndexListener.class})
 @Getter
 @Setter
 @ToString
@@ -141,6 +144,20 @@ public class Recordings extends Auditable<String> {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "UTC")
     private Date archiveDate;
 
+    /**
+     * Hex SHA-256 of the audio file, used as the strong ETag for media responses
+     */
+    @Column(name = "content_hash", length = 64, nullable = true)
+    private String contentHash;
+
+    /**
+     * When the audio content (not the metadata) last changed, used as Last-Modified
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "content_updated_at", nullable = true)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "UTC")
+    private Date contentUpdatedAt;
+
     @PrePersist
     protected void onCreate() {
         if (status == null) {
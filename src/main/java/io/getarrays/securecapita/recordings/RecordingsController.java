@@ -15,8 +15,9 @@ import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBo
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,10 @@ import java.util.Map;
 public class RecordingsController {
 
     private final RecordingsService recordingsService;
+    private final RecordingStorage recordingStorage;
+    private final RecordingSearchIndexLoader recordingSearchIndexLoader;
+    private final RecordingPeaksService recordingPeaksService;
+    private final RecordingTieringService recordingTieringService;
 
     @PostMapping(consumes = {"multipart/form-data"})
     public ResponseEntity<Recordings> createRecording(
@@ -60,6 +65,40 @@ public class RecordingsController {
         return recordingsService.streamAudio(id);
     }
 
+    // Waveform peaks for the player; 202 while they are still being generated
+    @GetMapping("/{id}/peaks")
+    public ResponseEntity<RecordingPeaksDto> getPeaks(@PathVariable Long id,
+                                                      @RequestParam(defaultValue = "2") int zoom) throws IOException {
+        RecordingPeaksDto peaks = recordingPeaksService.getPeaks(id, zoom);
+        return switch (peaks.getStatus()) {
+            case READY -> ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "private, max-age=300")
+                    .body(peaks);
+            case PENDING -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(peaks);
+            case FAILED -> ResponseEntity.unprocessableEntity().body(peaks);
+        };
+    }
+
+    // Queue waveform peaks for every stored file that has none yet
+    @PostMapping("/peaks/backfill")
+    public ResponseEntity<Map<String, Object>> backfillPeaks() {
+        boolean started = recordingPeaksService.startBackfill();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(Map.of("started", started));
+    }
+
+    // Move archived recordings to the compressed cold store now rather than at the scheduled time
+    @PostMapping("/cold-storage/run")
+    public ResponseEntity<Map<String, Object>> runColdStorageTiering() {
+        Map<String, Object> summary = recordingTieringService.moveArchivedToColdStorage();
+        if (summary == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "Cold storage run already in progress"));
+        }
+        return ResponseEntity.ok(summary);
+    }
+
     // Basic CRUD operations
     @PostMapping
     public ResponseEntity<Recordings> create(@RequestBody Recordings recording) {
@@ -204,9 +243,10 @@ public class RecordingsController {
         return ResponseEntity.ok(recordingsService.getNonArchivedRecordings());
     }
 
-    // Advanced search endpoint
+    // Advanced search endpoint; with q, a ranked full-text search over the recording text fields
     @GetMapping("/search")
     public ResponseEntity<Page<Recordings>> searchRecordings(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String caseDetails,
             @RequestParam(required = false) String judge,
             @RequestParam(required = false) String caseType,
@@ -217,6 +257,11 @@ public class RecordingsController {
             @RequestParam(defaultValue = "recordingDateTime") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir) {
         
+        if (q != null && !q.isBlank()) {
+            // Results come back in relevance order, so sortBy and sortDir do not apply
+            return ResponseEntity.ok(recordingsService.fullTextSearch(q, status, isArchived, PageRequest.of(page, size)));
+        }
+        
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -225,6 +270,13 @@ public class RecordingsController {
             caseDetails, judge, caseType, status, isArchived, pageable));
     }
 
+    // Rebuild the full-text search index from the database
+    @PostMapping("/search/rebuild-index")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() {
+        int indexed = recordingSearchIndexLoader.rebuild();
+        return ResponseEntity.ok(Map.of("indexedRecordings", indexed));
+    }
+
     // Business logic endpoints
     @PutMapping("/{id}/mark-backed")
     public ResponseEntity<Recordings> markAsBacked(@PathVariable Long id) {
@@ -423,9 +475,11 @@ public class RecordingsController {
         return ResponseEntity.ok(response);
     }
 
-    // File download endpoints
+    // File download endpoints; all of them honour HTTP Range and conditional requests
     @GetMapping("/{id}/download")
-    public ResponseEntity<byte[]> downloadRecording(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadRecording(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
             Recordings recording = recordingsService.getById(id);
             if (recording == null) {
@@ -434,32 +488,10 @@ public class RecordingsController {
             
             if (recording.getFilePath() == null || recording.getFileName() == null) {
                 return ResponseEntity.badRequest()
-                        .body("Recording has no file path or file name".getBytes());
+                        .body(outputStream -> outputStream.write("Recording has no file path or file name".getBytes()));
             }
 
-            // Try multiple possible file paths
-            Path filePath = resolveFilePath(recording.getFilePath(), recording.getFileName());
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Check if it's a file (not directory)
-            if (!Files.isRegularFile(filePath)) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            byte[] audioData = Files.readAllBytes(filePath);
-            
-            // Determine content type based on file extension
-            String contentType = getContentType(recording.getFileName());
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + recording.getFileName() + "\"")
-                    .header(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Disposition")
-                    .contentType(MediaType.valueOf(contentType))
-                    .contentLength(audioData.length)
-                    .body(audioData);
+            return serveRecordingFile(recording, "attachment", requestHeaders);
                     
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -469,55 +501,37 @@ public class RecordingsController {
     }
 
     @GetMapping("/download/{fileName}")
-    public ResponseEntity<byte[]> downloadRecordingByFileName(@PathVariable String fileName) {
+    public ResponseEntity<StreamingResponseBody> downloadRecordingByFileName(
+            @PathVariable String fileName,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
-            // Find recording by file name
-            List<Recordings> recordings = recordingsService.getAll();
-            Recordings recording = recordings.stream()
-                    .filter(r -> fileName.equals(r.getFileName()))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (recording == null) {
-                return ResponseEntity.notFound().build();
+            // Indexed lookup by file name
+            Recordings recording = recordingsService.getByFileName(fileName);
+            if (recording.getFilePath() == null) {
+                return ResponseEntity.badRequest()
+                        .body(outputStream -> outputStream.write("Recording has no file path or file name".getBytes()));
             }
 
-            return downloadRecording(recording.getId());
+            return serveRecordingFile(recording, "attachment", requestHeaders);
             
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @GetMapping("/{id}/stream")
-    public ResponseEntity<StreamingResponseBody> streamRecording(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> streamRecording(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
             Recordings recording = recordingsService.getById(id);
             if (recording == null || recording.getFilePath() == null || recording.getFileName() == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            Path filePath = resolveFilePath(recording.getFilePath(), recording.getFileName());
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            StreamingResponseBody stream = outputStream -> {
-                try {
-                    Files.copy(filePath, outputStream);
-                } catch (IOException e) {
-                    throw new RuntimeException("Error streaming file", e);
-                }
-            };
-
-            String contentType = getContentType(recording.getFileName());
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + recording.getFileName() + "\"")
-                    .contentType(MediaType.valueOf(contentType))
-                    .contentLength(Files.size(filePath))
-                    .body(stream);
+            return serveRecordingFile(recording, "attachment", requestHeaders);
                     
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -527,33 +541,16 @@ public class RecordingsController {
     }
 
     @GetMapping("/{id}/play")
-    public ResponseEntity<StreamingResponseBody> playRecording(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> playRecording(
+            @PathVariable Long id,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
             Recordings recording = recordingsService.getById(id);
             if (recording == null || recording.getFilePath() == null || recording.getFileName() == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            Path filePath = resolveFilePath(recording.getFilePath(), recording.getFileName());
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            StreamingResponseBody stream = outputStream -> {
-                try {
-                    Files.copy(filePath, outputStream);
-                } catch (IOException e) {
-                    throw new RuntimeException("Error streaming file", e);
-                }
-            };
-
-            String contentType = getContentType(recording.getFileName());
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + recording.getFileName() + "\"")
-                    .contentType(MediaType.valueOf(contentType))
-                    .contentLength(Files.size(filePath))
-                    .body(stream);
+            return serveRecordingFile(recording, "inline", requestHeaders);
                     
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -601,8 +598,8 @@ public class RecordingsController {
                 "recordingId", recording.getId(),
                 "fileName", recording.getFileName() != null ? recording.getFileName() : "null",
                 "filePath", recording.getFilePath() != null ? recording.getFilePath() : "null",
-                "userHome", System.getProperty("user.home"),
-                "fileLocations", checkFileLocations(recording.getFilePath(), recording.getFileName())
+                "storageRoot", recordingStorage.getRoot().toString(),
+                "fileLocation", checkFileLocation(recording)
             );
 
             return ResponseEntity.ok(debugInfo);
@@ -613,100 +610,63 @@ public class RecordingsController {
     }
 
     // Helper methods
-    private Map<String, Object> checkFileLocations(String filePath, String fileName) {
-        Map<String, Object> locations = new java.util.HashMap<>();
-        
-        // Try the full path first
-        Path fullPath = Paths.get(filePath);
-        locations.put("fullPath", Map.of(
-            "path", fullPath.toString(),
-            "exists", Files.exists(fullPath)
-        ));
-
-        // Try relative to user home directory
-        Path homePath = Paths.get(System.getProperty("user.home"), filePath);
-        locations.put("homePath", Map.of(
-            "path", homePath.toString(),
-            "exists", Files.exists(homePath)
-        ));
-
-        // Try relative to server root
-        Path rootPath = Paths.get(filePath.startsWith("/") ? filePath : "/" + filePath);
-        locations.put("rootPath", Map.of(
-            "path", rootPath.toString(),
-            "exists", Files.exists(rootPath)
-        ));
-
-        // Try in recordings directory under user home
-        Path recordingsPath = Paths.get(System.getProperty("user.home"), "recordings", filePath);
-        locations.put("recordingsPath", Map.of(
-            "path", recordingsPath.toString(),
-            "exists", Files.exists(recordingsPath)
-        ));
-
-        // Try in downloads directory (like images)
-        Path downloadsPath = Paths.get(System.getProperty("user.home"), "Downloads", "recordings", filePath);
-        locations.put("downloadsPath", Map.of(
-            "path", downloadsPath.toString(),
-            "exists", Files.exists(downloadsPath)
-        ));
-
-        return locations;
-    }
-
-    private Path resolveFilePath(String filePath, String fileName) {
-        // Try the full path first
-        Path fullPath = Paths.get(filePath);
-        if (Files.exists(fullPath) && Files.isRegularFile(fullPath)) {
-            return fullPath;
-        }
-
-        // Try relative to user home directory
-        Path homePath = Paths.get(System.getProperty("user.home"), filePath);
-        if (Files.exists(homePath) && Files.isRegularFile(homePath)) {
-            return homePath;
+    private ResponseEntity<StreamingResponseBody> serveRecordingFile(Recordings recording, String dispositionType,
+                                                                     HttpHeaders requestHeaders) throws IOException {
+        // Revalidation is answered from the stored content hash, before touching the file system
+        if (RecordingFileResponses.isNotModified(recording, requestHeaders)) {
+            return RecordingFileResponses.notModified(recording);
         }
 
-        // Try relative to server root
-        Path rootPath = Paths.get(filePath.startsWith("/") ? filePath : "/" + filePath);
-        if (Files.exists(rootPath) && Files.isRegularFile(rootPath)) {
-            return rootPath;
-        }
-
-        // Try in recordings directory under user home
-        Path recordingsPath = Paths.get(System.getProperty("user.home"), "recordings", filePath);
-        if (Files.exists(recordingsPath) && Files.isRegularFile(recordingsPath)) {
-            return recordingsPath;
+        // The file stays pinned until the response body has been written; every other way out closes it
+        RecordingStorage.StoredFile storedFile;
+        try {
+            storedFile = recordingStorage.open(recording);
+        } catch (IllegalArgumentException | NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
         }
+        try {
+            // One attribute read both checks the file and gives its length
+            Path filePath = storedFile.path();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                storedFile.close();
+                return ResponseEntity.notFound().build();
+            }
+            if (!attributes.isRegularFile()) {
+                storedFile.close();
+                return ResponseEntity.badRequest().build();
+            }
 
-        // Try in downloads directory (like images)
-        Path downloadsPath = Paths.get(System.getProperty("user.home"), "Downloads", "recordings", filePath);
-        if (Files.exists(downloadsPath) && Files.isRegularFile(downloadsPath)) {
-            return downloadsPath;
-        }
+            // Determine content type based on file extension
+            String contentType = getContentType(recording.getFileName());
 
-        // Try in current working directory
-        Path currentPath = Paths.get(System.getProperty("user.dir"), filePath);
-        if (Files.exists(currentPath) && Files.isRegularFile(currentPath)) {
-            return currentPath;
+            // A recording not yet hashed by RecordingContentHashBackfill is served without an ETag
+            return RecordingFileResponses.fileResponse(storedFile, attributes.size(), recording, contentType,
+                    dispositionType + "; filename=\"" + recording.getFileName() + "\"", requestHeaders);
+        } catch (IOException | RuntimeException e) {
+            storedFile.close();
+            throw e;
         }
+    }
 
-        // Try in src/main/resources (for development)
-        Path resourcesPath = Paths.get(System.getProperty("user.dir"), "src", "main", "resources", "recordings", filePath);
-        if (Files.exists(resourcesPath) && Files.isRegularFile(resourcesPath)) {
-            return resourcesPath;
+    private Map<String, Object> checkFileLocation(Recordings recording) {
+        if (RecordingColdStore.isCold(recording.getFilePath())) {
+            return Map.of(
+                "coldStorage", true,
+                "exists", recordingStorage.exists(recording.getFilePath())
+            );
         }
-
-        // Try just the filename in user home
-        if (fileName != null) {
-            Path fileNamePath = Paths.get(System.getProperty("user.home"), fileName);
-            if (Files.exists(fileNamePath) && Files.isRegularFile(fileNamePath)) {
-                return fileNamePath;
-            }
+        try {
+            Path path = recordingStorage.resolve(recording);
+            return Map.of(
+                "path", path.toString(),
+                "exists", Files.isRegularFile(path)
+            );
+        } catch (IllegalArgumentException e) {
+            return Map.of("error", e.getMessage());
         }
-
-        // Return the original path (will fail if not found)
-        return fullPath;
     }
 
     private String getContentType(String fileName) {
@@ -3,9 +3,11 @@ package io.getarrays.securecapita.recordings;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
@@ -73,6 +75,53 @@ public interface RecordingsRepository extends JpaRepository<Recordings, Long> {
     
     // Find recordings by file path
     List<Recordings> findByFilePathContaining(String filePath);
+
+    // Only the columns covered by RecordingSearchIndex, to build it without loading whole entities
+    @Query("SELECT r.id, r.caseDetails, r.judge, r.caseType, r.courtRoom, r.notes, r.status, r.isArchived FROM Recordings r")
+    List<Object[]> findSearchableColumns();
+
+    // Each stored audio file once, for the waveform peaks backfill
+    @Query("SELECT DISTINCT r.filePath FROM Recordings r WHERE r.filePath IS NOT NULL")
+    List<String> findDistinctFilePaths();
+
+    // Archived recordings still on the hot disk (not "cold:" paths), in id order for keyset paging
+    @Query("SELECT r FROM Recordings r WHERE r.isArchived = true AND r.id > :afterId " +
+           "AND (r.archiveDate IS NULL OR r.archiveDate < :archivedBefore) " +
+           "AND r.filePath IS NOT NULL AND r.filePath NOT LIKE 'cold:%' ORDER BY r.id")
+    List<Recordings> findHotArchivedAfter(@Param("afterId") Long afterId, @Param("archivedBefore") Date archivedBefore, Pageable pageable);
+
+    long countByFilePathAndIsArchivedFalse(String filePath);
+
+    // Points every recording sharing a hot file at its cold-stored copy
+    @Transactional
+    @Modifying
+    @Query("UPDATE Recordings r SET r.filePath = :coldPath, r.contentHash = :contentHash WHERE r.filePath = :hotPath")
+    int moveToColdStorage(@Param("hotPath") String hotPath, @Param("coldPath") String coldPath, @Param("contentHash") String contentHash);
+
+    // Stored files of recordings uploaded before content hashes existed
+    @Query("SELECT DISTINCT r.filePath FROM Recordings r WHERE r.contentHash IS NULL AND r.filePath IS NOT NULL")
+    List<String> findDistinctFilePathsWithoutContentHash();
+
+    // Only fills rows still unhashed and still pointing at the hashed file, so a concurrent move or upload wins
+    @Transactional
+    @Modifying
+    @Query("UPDATE Recordings r SET r.contentHash = :contentHash, " +
+           "r.contentUpdatedAt = COALESCE(r.contentUpdatedAt, :modifiedAt) " +
+           "WHERE r.filePath = :filePath AND r.contentHash IS NULL")
+    int setMissingContentHash(@Param("filePath") String filePath, @Param("contentHash") String contentHash,
+                              @Param("modifiedAt") Date modifiedAt);
+
+    // Rows whose file path is not yet a bare storage-relative file name
+    @Query("SELECT r FROM Recordings r WHERE r.fileName IS NOT NULL AND (r.filePath IS NULL OR LOCATE('/', r.filePath) > 0 OR LOCATE('\\\\', r.filePath) > 0)")
+    List<Recordings> findWithUnnormalizedFilePath();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Recordings r SET r.filePath = :filePath WHERE r.id = :id")
+    int updateFilePath(@Param("id") Long id, @Param("filePath") String filePath);
+
+    // Used to detect an upload whose content is already stored
+    Optional<Recordings> findFirstByContentHash(String contentHash);
     
     // Search recordings by multiple criteria
     @Query("SELECT r FROM Recordings r WHERE " +
@@ -100,6 +149,12 @@ public interface RecordingsRepository extends JpaRepository<Recordings, Long> {
     @Query("SELECT r.caseType, COUNT(r) FROM Recordings r WHERE r.caseType IS NOT NULL GROUP BY r.caseType")
     List<Object[]> countRecordingsByCaseType();
     
+    // One row per combination of the reported dimensions, with the counts and sums behind every statistic
+    @Query("SELECT r.status, r.isArchived, r.judge, r.caseType, COUNT(r), " +
+           "SUM(r.durationMinutes), COUNT(r.durationMinutes), SUM(r.fileSizeMb), COUNT(r.fileSizeMb) " +
+           "FROM Recordings r GROUP BY r.status, r.isArchived, r.judge, r.caseType")
+    List<Object[]> aggregateGroupedByDimensions();
+
     // Get total duration of recordings
     @Query("SELECT SUM(r.durationMinutes) FROM Recordings r WHERE r.durationMinutes IS NOT NULL")
     Double getTotalDuration();
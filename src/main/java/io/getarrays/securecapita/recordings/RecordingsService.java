@@ -25,6 +25,7 @@ public interface RecordingsService {
     Recordings create(Recordings recording);
     Recordings update(Recordings recording);
     Recordings getById(Long id);
+    Recordings getByFileName(String fileName);
     List<Recordings> getAll();
     void delete(Long id);
     
@@ -67,6 +68,8 @@ public interface RecordingsService {
     // Advanced search
     Page<Recordings> searchRecordings(String caseDetails, String judge, String caseType, 
                                      RecordingStatus status, Boolean isArchived, Pageable pageable);
+    // Ranked full-text search over case details, judge, case type, court room and notes
+    Page<Recordings> fullTextSearch(String query, RecordingStatus status, Boolean isArchived, Pageable pageable);
     
     // Business logic methods
     Recordings markAsBacked(Long id);
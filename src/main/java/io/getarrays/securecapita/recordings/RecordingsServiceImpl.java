@@ -1,29 +1,37 @@
 package io.getarrays.securecapita.recordings;
 
+import io.getarrays.securecapita.exception.ApiException;
 import io.getarrays.securecapita.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
+import static io.getarrays.securecapita.utils.TransactionUtils.afterCommit;
+
 /**
  * Service implementation for Recordings entity.
  * Provides business logic for court recordings management.
@@ -39,6 +47,10 @@ import java.util.*;
 public class RecordingsServiceImpl implements RecordingsService {
 
     private final RecordingsRepository recordingsRepository;
+    private final RecordingStorage recordingStorage;
+    private final RecordingStatisticsService recordingStatisticsService;
+    private final RecordingSearchIndex recordingSearchIndex;
+    private final RecordingPeaksService recordingPeaksService;
 
     // Basic CRUD operations
     @Override
@@ -97,6 +109,13 @@ public class RecordingsServiceImpl implements RecordingsService {
         recordingsRepository.deleteById(id);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Recordings getByFileName(String fileName) {
+        return recordingsRepository.findByFileName(fileName)
+            .orElseThrow(() -> new ResourceNotFoundException("Recording not found with file name: " + fileName));
+    }
+
     // Duplicate prevention
     @Override
     @Transactional(readOnly = true)
@@ -258,6 +277,32 @@ public class RecordingsServiceImpl implements RecordingsService {
         return recordingsRepository.searchRecordings(caseDetails, judge, caseType, status, isArchived, pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Recordings> fullTextSearch(String query, RecordingStatus status, Boolean isArchived, Pageable pageable) {
+        if (!recordingSearchIndex.isReady()) {
+            throw new ApiException("Recording search index is still loading, please try again shortly");
+        }
+        // Ranked by relevance, so only the page's ids are loaded from the database
+        List<Long> ids = recordingSearchIndex.search(query, status, isArchived);
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+
+        Map<Long, Recordings> byId = new HashMap<>();
+        for (Recordings recording : recordingsRepository.findAllById(pageIds)) {
+            byId.put(recording.getId(), recording);
+        }
+        List<Recordings> content = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            Recordings recording = byId.get(id);
+            if (recording != null) {
+                content.add(recording);
+            }
+        }
+        return new PageImpl<>(content, pageable, ids.size());
+    }
+
     // Business logic methods
     @Override
     public Recordings markAsBacked(Long id) {
@@ -329,6 +374,9 @@ public class RecordingsServiceImpl implements RecordingsService {
         
         Recordings recording = getById(id);
         recording.setFilePath(filePath);
+        // Points at different content; the hash is recomputed on the next media request
+        recording.setContentHash(null);
+        recording.setContentUpdatedAt(null);
         
         return recordingsRepository.save(recording);
     }
@@ -339,6 +387,9 @@ public class RecordingsServiceImpl implements RecordingsService {
         
         Recordings recording = getById(id);
         recording.setFileName(fileName);
+        // Points at different content; the hash is recomputed on the next media request
+        recording.setContentHash(null);
+        recording.setContentUpdatedAt(null);
         
         return recordingsRepository.save(recording);
     }
@@ -370,50 +421,23 @@ public class RecordingsServiceImpl implements RecordingsService {
         return recordingsRepository.findByStatusAndBackupDateIsNull(RecordingStatus.RECORDING);
     }
 
-    // Reporting methods
+    // Reporting methods, all served from the cached statistics snapshot
     @Override
     @Transactional(readOnly = true)
     public Map<RecordingStatus, Long> getRecordingCountByStatus() {
-        List<Object[]> results = recordingsRepository.countRecordingsByStatus();
-        Map<RecordingStatus, Long> statusCounts = new HashMap<>();
-        
-        for (Object[] result : results) {
-            RecordingStatus status = (RecordingStatus) result[0];
-            Long count = (Long) result[1];
-            statusCounts.put(status, count);
-        }
-        
-        return statusCounts;
+        return new HashMap<>(recordingStatisticsService.getSnapshot().statusCounts());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<String, Long> getRecordingCountByJudge() {
-        List<Object[]> results = recordingsRepository.countRecordingsByJudge();
-        Map<String, Long> judgeCounts = new HashMap<>();
-        
-        for (Object[] result : results) {
-            String judge = (String) result[0];
-            Long count = (Long) result[1];
-            judgeCounts.put(judge, count);
-        }
-        
-        return judgeCounts;
+        return recordingStatisticsService.getSnapshot().judgeCounts();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<String, Long> getRecordingCountByCaseType() {
-        List<Object[]> results = recordingsRepository.countRecordingsByCaseType();
-        Map<String, Long> caseTypeCounts = new HashMap<>();
-        
-        for (Object[] result : results) {
-            String caseType = (String) result[0];
-            Long count = (Long) result[1];
-            caseTypeCounts.put(caseType, count);
-        }
-        
-        return caseTypeCounts;
+        return recordingStatisticsService.getSnapshot().caseTypeCounts();
     }
 
     @Override
@@ -425,55 +449,43 @@ public class RecordingsServiceImpl implements RecordingsService {
     @Override
     @Transactional(readOnly = true)
     public Long getRecordingsCountByStatus(RecordingStatus status) {
-        return (long) recordingsRepository.findByStatus(status).size();
+        return recordingStatisticsService.getSnapshot().statusCounts().getOrDefault(status, 0L);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Long getArchivedRecordingsCount() {
-        return (long) recordingsRepository.findByIsArchived(true).size();
+        return recordingStatisticsService.getSnapshot().archivedCount();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Long getNonArchivedRecordingsCount() {
-        return (long) recordingsRepository.findByIsArchived(false).size();
+        return recordingStatisticsService.getSnapshot().nonArchivedCount();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Double getTotalDuration() {
-        Double total = recordingsRepository.getTotalDuration();
-        return total != null ? total : 0.0;
+        return recordingStatisticsService.getSnapshot().overall().getDurationSum();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Double getTotalFileSize() {
-        Double total = recordingsRepository.getTotalFileSize();
-        return total != null ? total : 0.0;
+        return recordingStatisticsService.getSnapshot().overall().getFileSizeSum();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Double getAverageDuration() {
-        List<Recordings> recordings = recordingsRepository.findAll();
-        return recordings.stream()
-            .filter(r -> r.getDurationMinutes() != null)
-            .mapToDouble(Recordings::getDurationMinutes)
-            .average()
-            .orElse(0.0);
+        return recordingStatisticsService.getSnapshot().overall().getAverageDuration();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Double getAverageFileSize() {
-        List<Recordings> recordings = recordingsRepository.findAll();
-        return recordings.stream()
-            .filter(r -> r.getFileSizeMb() != null)
-            .mapToDouble(Recordings::getFileSizeMb)
-            .average()
-            .orElse(0.0);
+        return recordingStatisticsService.getSnapshot().overall().getAverageFileSize();
     }
 
     // Time-based queries
@@ -512,18 +524,21 @@ public class RecordingsServiceImpl implements RecordingsService {
     @Override
     @Transactional(readOnly = true)
     public Map<String, Object> getRecordingStatistics() {
+        // Every value comes from the same snapshot, so the figures are consistent with each other
+        RecordingStatisticsService.Snapshot snapshot = recordingStatisticsService.getSnapshot();
+        RecordingStatisticsService.Totals overall = snapshot.overall();
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("totalRecordings", getTotalRecordingCount());
-        stats.put("totalDuration", getTotalDuration());
-        stats.put("totalFileSize", getTotalFileSize());
-        stats.put("averageDuration", getAverageDuration());
-        stats.put("averageFileSize", getAverageFileSize());
-        stats.put("archivedCount", getArchivedRecordingsCount());
-        stats.put("nonArchivedCount", getNonArchivedRecordingsCount());
-        stats.put("statusCounts", getRecordingCountByStatus());
-        stats.put("judgeCounts", getRecordingCountByJudge());
-        stats.put("caseTypeCounts", getRecordingCountByCaseType());
+        stats.put("totalRecordings", overall.getCount());
+        stats.put("totalDuration", overall.getDurationSum());
+        stats.put("totalFileSize", overall.getFileSizeSum());
+        stats.put("averageDuration", overall.getAverageDuration());
+        stats.put("averageFileSize", overall.getAverageFileSize());
+        stats.put("archivedCount", snapshot.archivedCount());
+        stats.put("nonArchivedCount", snapshot.nonArchivedCount());
+        stats.put("statusCounts", new HashMap<>(snapshot.statusCounts()));
+        stats.put("judgeCounts", snapshot.judgeCounts());
+        stats.put("caseTypeCounts", snapshot.caseTypeCounts());
         
         return stats;
     }
@@ -531,50 +546,25 @@ public class RecordingsServiceImpl implements RecordingsService {
     @Override
     @Transactional(readOnly = true)
     public Map<String, Object> getRecordingStatisticsByJudge(String judge) {
-        List<Recordings> judgeRecordings = recordingsRepository.findByJudge(judge);
-        
-        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> stats = totalsToMap(recordingStatisticsService.getSnapshot().judge(judge));
         stats.put("judge", judge);
-        stats.put("totalRecordings", (long) judgeRecordings.size());
-        stats.put("totalDuration", judgeRecordings.stream()
-            .filter(r -> r.getDurationMinutes() != null)
-            .mapToDouble(Recordings::getDurationMinutes)
-            .sum());
-        stats.put("totalFileSize", judgeRecordings.stream()
-            .filter(r -> r.getFileSizeMb() != null)
-            .mapToDouble(Recordings::getFileSizeMb)
-            .sum());
-        stats.put("averageDuration", judgeRecordings.stream()
-            .filter(r -> r.getDurationMinutes() != null)
-            .mapToDouble(Recordings::getDurationMinutes)
-            .average()
-            .orElse(0.0));
-        
         return stats;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<String, Object> getRecordingStatisticsByCaseType(String caseType) {
-        List<Recordings> caseTypeRecordings = recordingsRepository.findByCaseType(caseType);
-        
-        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> stats = totalsToMap(recordingStatisticsService.getSnapshot().caseType(caseType));
         stats.put("caseType", caseType);
-        stats.put("totalRecordings", (long) caseTypeRecordings.size());
-        stats.put("totalDuration", caseTypeRecordings.stream()
-            .filter(r -> r.getDurationMinutes() != null)
-            .mapToDouble(Recordings::getDurationMinutes)
-            .sum());
-        stats.put("totalFileSize", caseTypeRecordings.stream()
-            .filter(r -> r.getFileSizeMb() != null)
-            .mapToDouble(Recordings::getFileSizeMb)
-            .sum());
-        stats.put("averageDuration", caseTypeRecordings.stream()
-            .filter(r -> r.getDurationMinutes() != null)
-            .mapToDouble(Recordings::getDurationMinutes)
-            .average()
-            .orElse(0.0));
-        
+        return stats;
+    }
+
+    private static Map<String, Object> totalsToMap(RecordingStatisticsService.Totals totals) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalRecordings", totals != null ? totals.getCount() : 0L);
+        stats.put("totalDuration", totals != null ? totals.getDurationSum() : 0.0);
+        stats.put("totalFileSize", totals != null ? totals.getFileSizeSum() : 0.0);
+        stats.put("averageDuration", totals != null ? totals.getAverageDuration() : 0.0);
         return stats;
     }
 
@@ -622,8 +612,6 @@ public class RecordingsServiceImpl implements RecordingsService {
         recordingsRepository.deleteAllById(ids);
     }
 
-    private final Path uploadDir = Paths.get("uploads/audio");
-
     public Recordings createRecording(
             String caseDetails,
             String judge,
@@ -634,9 +622,7 @@ public class RecordingsServiceImpl implements RecordingsService {
             MultipartFile audioFile
     ) throws IOException {
 
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
+        Path uploadDir = recordingStorage.createRoot();
 
         // Generate unique filename
         String originalName = audioFile.getOriginalFilename();
@@ -650,7 +636,11 @@ public class RecordingsServiceImpl implements RecordingsService {
 
         String fileName = originalName + "_" + System.currentTimeMillis() + extension;
         Path filePath = uploadDir.resolve(fileName);
-        Files.copy(audioFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // Hash while copying so the ETag is known without reading the file again
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(audioFile.getInputStream(), digest)) {
+            Files.copy(in, filePath, StandardCopyOption.REPLACE_EXISTING);
+        }
 
         // Calculate file size in MB
         double fileSizeMb = audioFile.getSize() / (1024.0 * 1024.0);
@@ -665,29 +655,52 @@ public class RecordingsServiceImpl implements RecordingsService {
                 .notes(notes)
                 .status(RecordingStatus.COMPLETED)
                 .fileSizeMb(fileSizeMb)
-                .filePath(filePath.toString())
+                .filePath(recordingStorage.toStoredPath(filePath))
                 .fileName(fileName)
+                .contentHash(HexFormat.of().formatHex(digest.digest()))
+                .contentUpdatedAt(new Date())
                 .build();
 
-        return recordingsRepository.save(recording);
+        Recordings saved = recordingsRepository.save(recording);
+        afterCommit(() -> recordingPeaksService.schedule(saved));
+        return saved;
     }
 
     public ResponseEntity<Resource> streamAudio(Long id) throws IOException {
         Recordings recording = recordingsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Recording not found"));
 
-        Path path = Paths.get(recording.getFilePath());
-        if (!Files.exists(path)) {
-            throw new FileNotFoundException("File not found on server");
-        }
-
-        // Load as resource
-        Resource resource = new UrlResource(path.toUri());
-
-        // Detect MIME type (optional)
-        String contentType = Files.probeContentType(path);
-        if (contentType == null) {
-            contentType = "application/octet-stream";
+        RecordingStorage.StoredFile storedFile = recordingStorage.open(recording);
+        Path path = storedFile.path();
+        Resource resource;
+        long contentLength;
+        String contentType;
+        try {
+            if (!Files.exists(path)) {
+                throw new FileNotFoundException("File not found on server");
+            }
+            contentLength = Files.size(path);
+
+            // Detect MIME type (optional)
+            contentType = Files.probeContentType(path);
+            if (contentType == null) {
+                contentType = "application/octet-stream";
+            }
+
+            // Open now rather than when the body is written, and keep a rehydrated copy pinned until the stream is closed
+            resource = new InputStreamResource(new FilterInputStream(Files.newInputStream(path)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        storedFile.close();
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            storedFile.close();
+            throw e;
         }
 
         // 🔥 Use original file name from DB for download header
@@ -695,10 +708,19 @@ public class RecordingsServiceImpl implements RecordingsService {
 
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(contentType))
+                .contentLength(contentLength)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + originalFileName + "\"")
                 .body(resource);
     }
 
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     private String detectContentType(String filename) {
         if (filename == null) return "application/octet-stream";
         String lower = filename.toLowerCase();
@@ -2,6 +2,7 @@ package io.getarrays.securecapita.task;
 
 import io.getarrays.securecapita.domain.User;
 import io.getarrays.securecapita.service.EmailService;
+import io.getarrays.securecapita.utils.IdGenerator;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -27,6 +28,7 @@ public class RepetitiveTaskReminderService {
 
     private final TaskRepository taskRepository;
     private final EmailService emailService;
+    private final IdGenerator idGenerator;
 
     /**
      * Send daily reminders for repetitive tasks that need status updates
@@ -293,7 +295,7 @@ public class RepetitiveTaskReminderService {
      * Generate code for next cycle
      */
     private String generateNextCycleCode(String originalCode) {
-        return originalCode + "-NC-" + System.currentTimeMillis();
+        return idGenerator.nextCode(originalCode + "-NC-");
     }
 
     /**
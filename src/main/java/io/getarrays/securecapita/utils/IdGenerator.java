@@ -0,0 +1,146 @@
+package io.getarrays.securecapita.utils;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style generator for unique, time ordered ids without a database round trip. An id is
+ * 41 bits of milliseconds since 2024-01-01 UTC, 10 bits of node id and a 12 bit sequence within
+ * the millisecond. Generation is a single compare-and-set; when more than 4096 ids are asked for in
+ * one millisecond, or the clock steps back, the sequence carries into the next millisecond instead
+ * of waiting, so ids stay strictly increasing on a node.
+ * <p>
+ * The carry-forward alone would not survive a restart, so each node also persists a lease: the
+ * latest timestamp it may issue ids for, kept a few seconds ahead of the clock and renewed in the
+ * background. After a restart the node continues from its lease, so ids never repeat even when
+ * the clock has stepped back in the meantime. Ids are not handed out if the lease cannot be saved.
+ * A node without a configured node id claims one from the lease table at startup: one no node has
+ * used, or else one whose lease has not been renewed for a while.
+ * <p>
+ * Human-facing codes are a prefix followed by the id in 13 Crockford base32 characters, which sort
+ * in generation order and avoid the easily confused letters I, L, O and U.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 13;
+
+    // Give each node its own id in a cluster, or leave it unset on every node to claim one from the lease table
+    @Value("${ids.node-id:-1}")
+    private long configuredNodeId;
+
+    // A claimed node's lease that ended this long ago means the node has stopped, and its node id may be reused
+    @Value("${ids.node-claim-abandoned-ms:60000}")
+    private long abandonedMs;
+
+    // How far past the latest issued timestamp a node reserves at a time
+    @Value("${ids.lease-ms:10000}")
+    private long leaseMs;
+
+    private final IdGeneratorLeaseStore leaseStore;
+
+    // -1 until a node id is claimed; published to nextId by the write to reservedUntil
+    private long nodeId = -1;
+
+    // Milliseconds since the epoch shifted left by SEQUENCE_BITS, plus the sequence
+    private final AtomicLong lastState = new AtomicLong();
+
+    // Milliseconds since the epoch this node may issue ids up to; -1 until the persisted lease is loaded
+    private volatile long reservedUntil = -1;
+
+    @PostConstruct
+    void init() {
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId > MAX_NODE_ID) {
+                throw new IllegalStateException("ids.node-id must be between 0 and " + MAX_NODE_ID);
+            }
+            nodeId = configuredNodeId;
+        }
+    }
+
+    // Claims the node id and takes the first lease at startup, so a node that cannot get one fails to start
+    @EventListener(ApplicationReadyEvent.class)
+    public void leaseOnStartup() {
+        if (reservedUntil < 0) {
+            reserve(System.currentTimeMillis() - EPOCH);
+        }
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if ((next >>> SEQUENCE_BITS) > reservedUntil) {
+                reserve(next >>> SEQUENCE_BITS);
+            } else if (lastState.compareAndSet(last, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | nodeId << SEQUENCE_BITS | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // Extends the lease before it runs out, so nextId rarely has to wait for the database
+    @Scheduled(fixedDelayString = "${ids.lease-renew-ms:1000}")
+    public void renewLease() {
+        if (reservedUntil >= 0) {
+            reserve(System.currentTimeMillis() - EPOCH + leaseMs / 2);
+        }
+    }
+
+    /**
+     * A new human-facing code, e.g. {@code nextCode("WB")} gives {@code WB06A5F3K2Q0001}.
+     */
+    public String nextCode(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    public static String encode(long id) {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            code[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(code);
+    }
+
+    // Makes sure ids may be issued up to the given time, loading the persisted lease on first use
+    private synchronized void reserve(long needed) {
+        if (reservedUntil < 0) {
+            if (nodeId < 0) {
+                long now = System.currentTimeMillis();
+                nodeId = leaseStore.claim(MAX_NODE_ID, now, now - abandonedMs);
+                log.info("ids.node-id is not set; claimed node id {}", nodeId);
+            }
+            leaseStore.load(nodeId).ifPresent(persisted -> {
+                // A normal restart finds the lease up to leaseMs ahead; more than that means the clock stepped back
+                long behind = persisted - System.currentTimeMillis();
+                if (behind > leaseMs) {
+                    log.warn("Clock is {} ms behind the last id lease of node {}; continuing from the lease", behind, nodeId);
+                }
+                lastState.accumulateAndGet((persisted - EPOCH + 1) << SEQUENCE_BITS, Math::max);
+            });
+        } else if (needed <= reservedUntil) {
+            return;
+        }
+        long until = Math.max(needed, lastState.get() >>> SEQUENCE_BITS) + leaseMs;
+        leaseStore.save(nodeId, until + EPOCH);
+        reservedUntil = until;
+    }
+}
@@ -0,0 +1,34 @@
+package io.getarrays.securecapita.utils;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far ahead each {@link IdGenerator} node has reserved timestamps. Written by
+ * {@link IdGeneratorLeaseStore}; the entity only exists so the table is created with the schema.
+ */
+@Entity
+@Table(name = "id_generator_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdGeneratorLease {
+
+    @Id
+    @Column(name = "node_id")
+    private Long nodeId;
+
+    // Epoch milliseconds; every id the node has issued has a timestamp at or before this
+    @Column(name = "reserved_until", nullable = false)
+    private long reservedUntil;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
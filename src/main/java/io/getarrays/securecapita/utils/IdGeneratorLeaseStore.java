@@ -0,0 +1,106 @@
+package io.getarrays.securecapita.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Persists the {@link IdGenerator} lease of each node. Writes run in their own transaction, so a
+ * lease taken while generating an id for a caller's transaction survives that transaction rolling back.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdGeneratorLeaseStore {
+
+    private static final String SELECT_SQL = "SELECT reserved_until FROM id_generator_leases WHERE node_id = ?";
+    private static final String UPDATE_SQL = "UPDATE id_generator_leases SET reserved_until = ?, updated_at = ? WHERE node_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO id_generator_leases (node_id, reserved_until, updated_at) VALUES (?, ?, ?)";
+    private static final String SELECT_NODES_SQL = "SELECT node_id, reserved_until FROM id_generator_leases";
+    // Only succeeds while the lease is still abandoned, so two nodes cannot take over the same one
+    private static final String TAKE_OVER_SQL = "UPDATE id_generator_leases SET reserved_until = ?, updated_at = ? " +
+            "WHERE node_id = ? AND reserved_until < ?";
+    private static final int CLAIM_ATTEMPTS = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * The epoch milliseconds the node last reserved up to, if it has ever issued ids
+     */
+    public OptionalLong load(long nodeId) {
+        List<Long> rows = jdbcTemplate.queryForList(SELECT_SQL, Long.class, nodeId);
+        return rows.isEmpty() ? OptionalLong.empty() : OptionalLong.of(rows.get(0));
+    }
+
+    /**
+     * Claim a node id for a node without a configured one: a node id that has never issued ids, or
+     * else one whose lease ended before {@code abandonedBefore}, i.e. whose node has stopped renewing
+     * it. Claiming sets the lease to {@code now}, which is past the previous lease, so the claiming
+     * node still continues after every id issued under the node id before.
+     *
+     * @throws IllegalStateException when every node id is in use
+     */
+    public long claim(long maxNodeId, long now, long abandonedBefore) {
+        TransactionTemplate requiresNew = requiresNew();
+        for (int attempt = 0; attempt < CLAIM_ATTEMPTS; attempt++) {
+            try {
+                Long nodeId = requiresNew.execute(status -> claimOnce(maxNodeId, now, abandonedBefore));
+                if (nodeId != null) {
+                    return nodeId;
+                }
+            } catch (DuplicateKeyException e) {
+                // Another node inserted the same node id first; read the leases again
+            }
+        }
+        throw new IllegalStateException("Could not claim an id generator node id after " + CLAIM_ATTEMPTS + " attempts");
+    }
+
+    public void save(long nodeId, long reservedUntil) {
+        requiresNew().executeWithoutResult(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            if (jdbcTemplate.update(UPDATE_SQL, reservedUntil, now, nodeId) == 0) {
+                jdbcTemplate.update(INSERT_SQL, nodeId, reservedUntil, now);
+            }
+        });
+    }
+
+    // An unused node id, else the one abandoned longest ago; null when another node took it over first
+    private Long claimOnce(long maxNodeId, long now, long abandonedBefore) {
+        Map<Long, Long> leases = new HashMap<>();
+        jdbcTemplate.query(SELECT_NODES_SQL, rs -> {
+            leases.put(rs.getLong(1), rs.getLong(2));
+        });
+        Timestamp updatedAt = Timestamp.valueOf(LocalDateTime.now());
+        // Claimed node ids are taken from the top, away from the low ones usually configured by hand
+        for (long nodeId = maxNodeId; nodeId >= 0; nodeId--) {
+            if (!leases.containsKey(nodeId)) {
+                jdbcTemplate.update(INSERT_SQL, nodeId, now, updatedAt);
+                return nodeId;
+            }
+        }
+        long abandoned = leases.entrySet().stream()
+                .filter(lease -> lease.getValue() < abandonedBefore)
+                .min(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElseThrow(() -> new IllegalStateException("All " + (maxNodeId + 1) + " id generator node ids are in use"));
+        return jdbcTemplate.update(TAKE_OVER_SQL, now, updatedAt, abandoned, abandonedBefore) == 1 ? abandoned : null;
+    }
+
+    // Lease writes must not join, or roll back with, the transaction of the caller asking for an id
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return requiresNew;
+    }
+}
@@ -0,0 +1,197 @@
+package io.getarrays.securecapita.utils;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads import files row by row without loading the whole file: CSV line by line and
+ * XLSX through the POI streaming (SAX) API. The first row is the header; each following row is
+ * handed over as a map of normalized header name (lower case, letters and digits only) to value.
+ */
+public class ImportFileReader {
+
+    /**
+     * @param rowHandler receives the spreadsheet row number (header is row 1) and the row values
+     */
+    public static void read(MultipartFile file, BiConsumer<Integer, Map<String, String>> rowHandler) throws IOException {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        if (name.endsWith(".xlsx")) {
+            readXlsx(file, rowHandler);
+        } else if (name.endsWith(".csv")) {
+            readCsv(file, rowHandler);
+        } else {
+            throw new IllegalArgumentException("Unsupported file type. Please upload a .csv or .xlsx file");
+        }
+    }
+
+    public static String normalizeHeader(String header) {
+        return header == null ? "" : header.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static void readCsv(MultipartFile file, BiConsumer<Integer, Map<String, String>> rowHandler) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null) {
+                return;
+            }
+            // Strip a UTF-8 byte order mark left by spreadsheet exports
+            if (line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            List<String> headers = new ArrayList<>();
+            for (String header : splitCsvLine(line)) {
+                headers.add(normalizeHeader(header));
+            }
+
+            int rowNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> values = splitCsvLine(line);
+                Map<String, String> row = new HashMap<>();
+                for (int i = 0; i < headers.size() && i < values.size(); i++) {
+                    row.put(headers.get(i), values.get(i));
+                }
+                rowHandler.accept(rowNumber, row);
+            }
+        }
+    }
+
+    // RFC 4180 style splitting: quoted fields may contain commas and doubled quotes
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString().trim());
+        return values;
+    }
+
+    private static void readXlsx(MultipartFile file, BiConsumer<Integer, Map<String, String>> rowHandler) throws IOException {
+        // OPCPackage reads a file lazily, whereas opening a stream would buffer the whole archive
+        Path tempFile = Files.createTempFile("import-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                XSSFReader xssfReader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                Iterator<InputStream> sheets = xssfReader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    return;
+                }
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(xssfReader.getStylesTable(), strings,
+                            new SheetRowHandler(rowHandler), new IsoDateFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not read the spreadsheet: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static class SheetRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final BiConsumer<Integer, Map<String, String>> rowHandler;
+        private final Map<Integer, String> headers = new HashMap<>();
+        private Map<String, String> row;
+        private int currentRow;
+        private int currentColumn;
+
+        SheetRowHandler(BiConsumer<Integer, Map<String, String>> rowHandler) {
+            this.rowHandler = rowHandler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            currentRow = rowNum;
+            currentColumn = -1;
+            row = new HashMap<>();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (rowNum > 0 && !row.isEmpty()) {
+                rowHandler.accept(rowNum + 1, row);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Empty cells are skipped by the parser, so take the column from the reference when present
+            currentColumn = cellReference != null ? new CellReference(cellReference).getCol() : currentColumn + 1;
+            String value = formattedValue != null ? formattedValue.trim() : "";
+            if (currentRow == 0) {
+                headers.put(currentColumn, normalizeHeader(value));
+            } else if (headers.containsKey(currentColumn) && !value.isEmpty()) {
+                row.put(headers.get(currentColumn), value);
+            }
+        }
+    }
+
+    // Renders date-formatted cells as yyyy-MM-dd whatever display format the sheet uses
+    private static class IsoDateFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd");
+                iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return iso.format(DateUtil.getJavaDate(value, TimeZone.getTimeZone("UTC")));
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString);
+        }
+    }
+}
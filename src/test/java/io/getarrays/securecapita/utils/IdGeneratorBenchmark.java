@@ -0,0 +1,35 @@
+package io.getarrays.securecapita.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Single-thread throughput of {@link IdGenerator}. The rate depends on the machine, so this only
+ * reports it and is skipped unless asked for:
+ * {@code mvn test -Dtests.skip=false -Dtest=IdGeneratorBenchmark -Dbenchmarks=true}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class IdGeneratorBenchmark {
+
+    @Test
+    void throughput() {
+        IdGenerator generator = new IdGenerator(new InMemoryIdGeneratorLeaseStore());
+        ReflectionTestUtils.setField(generator, "configuredNodeId", 7L);
+        ReflectionTestUtils.setField(generator, "leaseMs", 10_000L);
+        generator.init();
+        // Warm up before measuring
+        for (int i = 0; i < 1_000_000; i++) {
+            generator.nextId();
+        }
+        int count = 5_000_000;
+        long started = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            generator.nextId();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("IdGenerator: {} ids in {} ms ({} ids/s)", count, Math.round(seconds * 1000), (long) (count / seconds));
+    }
+}
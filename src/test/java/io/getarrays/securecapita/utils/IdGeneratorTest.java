@@ -0,0 +1,141 @@
+package io.getarrays.securecapita.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uniqueness, ordering and node id claiming of {@link IdGenerator}, with the leases kept in memory.
+ * Run with {@code mvn test -Dtests.skip=false -Dtest=IdGeneratorTest}; throughput is measured by
+ * {@link IdGeneratorBenchmark}.
+ */
+class IdGeneratorTest {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int TIMESTAMP_SHIFT = 22;
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndIncreasingWithinEach() throws Exception {
+        IdGenerator generator = generator(new InMemoryIdGeneratorLeaseStore());
+        int threads = 8;
+        int perThread = 250_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[perThread];
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+
+            long[] all = new long[threads * perThread];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 1; i < ids.length; i++) {
+                    assertTrue(ids[i] > ids[i - 1], "ids must increase within a thread");
+                }
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void restartContinuesAfterIdsIssuedBeforeIt() {
+        InMemoryIdGeneratorLeaseStore store = new InMemoryIdGeneratorLeaseStore();
+        long before = 0;
+        IdGenerator first = generator(store);
+        for (int i = 0; i < 10_000; i++) {
+            before = first.nextId();
+        }
+
+        IdGenerator restarted = generator(store);
+        assertTrue(restarted.nextId() > before);
+    }
+
+    @Test
+    void restartAfterClockSteppedBackDoesNotReuseTimestamps() {
+        InMemoryIdGeneratorLeaseStore store = new InMemoryIdGeneratorLeaseStore();
+        // A previous run leased an hour ahead of the current clock, as if the clock has since stepped back
+        long leased = System.currentTimeMillis() + 3_600_000;
+        store.save(7, leased);
+
+        IdGenerator generator = generator(store);
+        long id = generator.nextId();
+        assertTrue((id >>> TIMESTAMP_SHIFT) + EPOCH > leased, "id must be newer than the previous lease");
+        assertTrue(store.load(7).getAsLong() > leased, "the lease must move forward with the issued ids");
+    }
+
+    @Test
+    void codesSortInGenerationOrder() {
+        IdGenerator generator = generator(new InMemoryIdGeneratorLeaseStore());
+        String previous = generator.nextCode("WB");
+        for (int i = 0; i < 100_000; i++) {
+            String code = generator.nextCode("WB");
+            assertEquals(15, code.length());
+            assertTrue(code.compareTo(previous) > 0, code + " must sort after " + previous);
+            previous = code;
+        }
+    }
+
+    @Test
+    void nodesWithoutConfiguredIdClaimUnusedOrAbandonedNodeIds() {
+        InMemoryIdGeneratorLeaseStore store = new InMemoryIdGeneratorLeaseStore();
+        long first = nodeId(unconfiguredGenerator(store).nextId());
+        long second = nodeId(unconfiguredGenerator(store).nextId());
+        assertNotEquals(first, second);
+
+        // Every other node id is live; only node 3's lease has not been renewed
+        long now = System.currentTimeMillis();
+        for (long nodeId = 0; nodeId <= 1023; nodeId++) {
+            store.save(nodeId, now + 10_000);
+        }
+        store.save(3, now - 120_000);
+        IdGenerator generator = unconfiguredGenerator(store);
+        assertEquals(3, nodeId(generator.nextId()));
+        assertTrue(store.load(3).getAsLong() > now, "the claimed lease must be renewed");
+    }
+
+    private static IdGenerator generator(IdGeneratorLeaseStore store) {
+        return generator(store, 7L);
+    }
+
+    private static IdGenerator unconfiguredGenerator(IdGeneratorLeaseStore store) {
+        return generator(store, -1L);
+    }
+
+    private static IdGenerator generator(IdGeneratorLeaseStore store, long nodeId) {
+        IdGenerator generator = new IdGenerator(store);
+        ReflectionTestUtils.setField(generator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(generator, "abandonedMs", 60_000L);
+        ReflectionTestUtils.setField(generator, "leaseMs", 10_000L);
+        generator.init();
+        return generator;
+    }
+
+    private static long nodeId(long id) {
+        return (id >>> 12) & 1023;
+    }
+}
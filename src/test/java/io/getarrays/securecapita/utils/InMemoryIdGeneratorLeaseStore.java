@@ -0,0 +1,45 @@
+package io.getarrays.securecapita.utils;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link IdGeneratorLeaseStore} without a database, for tests and benchmarks of {@link IdGenerator}
+ */
+class InMemoryIdGeneratorLeaseStore extends IdGeneratorLeaseStore {
+
+    private final Map<Long, Long> leases = new ConcurrentHashMap<>();
+
+    InMemoryIdGeneratorLeaseStore() {
+        super(null, null);
+    }
+
+    @Override
+    public OptionalLong load(long nodeId) {
+        Long lease = leases.get(nodeId);
+        return lease != null ? OptionalLong.of(lease) : OptionalLong.empty();
+    }
+
+    @Override
+    public synchronized long claim(long maxNodeId, long now, long abandonedBefore) {
+        for (long nodeId = maxNodeId; nodeId >= 0; nodeId--) {
+            if (!leases.containsKey(nodeId)) {
+                leases.put(nodeId, now);
+                return nodeId;
+            }
+        }
+        long abandoned = leases.entrySet().stream()
+                .filter(lease -> lease.getValue() < abandonedBefore)
+                .min(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElseThrow(() -> new IllegalStateException("All node ids are in use"));
+        leases.put(abandoned, now);
+        return abandoned;
+    }
+
+    @Override
+    public void save(long nodeId, long reservedUntil) {
+        leases.put(nodeId, reservedUntil);
+    }
+}